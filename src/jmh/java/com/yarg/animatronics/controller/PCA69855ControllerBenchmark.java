@@ -0,0 +1,97 @@
+package com.yarg.animatronics.controller;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yarg.animatronics.datamodel.boards.PCA6985PwmBoard;
+
+/**
+ * Benchmarks of the controller write paths against a simulated bus that is not real-time, so transactions are counted
+ * but never waited for and the benchmarks measure the controller itself rather than the bus.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PCA69855ControllerBenchmark {
+
+	private static final int BOARD_ADDRESS = 0x40;
+	private static final int CHANNELS = 16;
+
+	@Param({"false", "true"})
+	public boolean autoIncrement;
+
+	private PCA69855Controller controller;
+	private SimulatedI2CBus bus;
+	private int[] onTicks;
+	private int[][] offTicks;
+	private int frame;
+
+	@Setup
+	public void setup() throws IOException, InterruptedException {
+
+		bus = new SimulatedI2CBus(1, SimulatedI2CBus.ClockRate.FAST);
+		bus.setRealTime(false);
+		bus.addDevice(BOARD_ADDRESS);
+		controller = new PCA69855Controller(bus, false);
+
+		PCA6985PwmBoard board = new PCA6985PwmBoard();
+		board.setPwmBoardAddress(BOARD_ADDRESS);
+		controller.addBoard(board);
+		controller.setAutoIncrement(autoIncrement);
+
+		// Two frames that differ on every channel, so alternating between them writes every channel.
+		onTicks = new int[CHANNELS];
+		offTicks = new int[2][CHANNELS];
+		for (int channel = 0; channel < CHANNELS; channel++) {
+			offTicks[0][channel] = 205 + channel;
+			offTicks[1][channel] = 410 - channel;
+		}
+	}
+
+	/*
+	 * Write a channel whose value changed since the last write.
+	 */
+	@Benchmark
+	public long writePwmChanged() throws IOException {
+
+		frame ^= 1;
+		controller.writePwm(BOARD_ADDRESS, 0, 0, offTicks[frame][0]);
+		return bus.getTransactions();
+	}
+
+	/*
+	 * Write a channel with the value it already holds, which the shadow registers skip.
+	 */
+	@Benchmark
+	public long writePwmUnchanged() throws IOException {
+
+		controller.writePwm(BOARD_ADDRESS, 0, 0, offTicks[0][0]);
+		return bus.getTransactions();
+	}
+
+	/*
+	 * Write a frame where every channel changed since the last frame.
+	 */
+	@Benchmark
+	public long writeAllPwmChanged() throws IOException {
+
+		frame ^= 1;
+		controller.writeAllPwm(BOARD_ADDRESS, onTicks, offTicks[frame]);
+		return bus.getTransactions();
+	}
+}
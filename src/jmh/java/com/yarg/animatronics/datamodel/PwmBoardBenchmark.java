@@ -0,0 +1,97 @@
+package com.yarg.animatronics.datamodel;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yarg.animatronics.datamodel.boards.PCA6985PwmBoard;
+import com.yarg.animatronics.datamodel.motors.TowerProMG995R;
+
+/**
+ * Benchmarks of adding motors to a board and reading them back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PwmBoardBenchmark {
+
+	private TowerProMG995R[] motors;
+	private PCA6985PwmBoard fullBoard;
+
+	@Setup
+	public void setup() {
+
+		fullBoard = new PCA6985PwmBoard();
+		motors = new TowerProMG995R[fullBoard.getNumberOfChannels()];
+		for (int i = 0; i < motors.length; i++) {
+			motors[i] = new TowerProMG995R();
+			motors[i].setPwmChannel(i + 1);
+			fullBoard.addMotor(motors[i]);
+		}
+	}
+
+	/*
+	 * Fill a board with a motor on every channel.
+	 */
+	@Benchmark
+	public PCA6985PwmBoard addMotors() {
+
+		PCA6985PwmBoard board = new PCA6985PwmBoard();
+		for (TowerProMG995R motor : motors) {
+			board.addMotor(motor);
+		}
+
+		return board;
+	}
+
+	@Benchmark
+	public List<PwmMotor> getAttachedMotors() {
+		return fullBoard.getAttachedMotors();
+	}
+
+	/*
+	 * Look up the motor of every channel of a full board.
+	 */
+	@Benchmark
+	public int motorOnChannel() {
+
+		int channels = 0;
+		for (int channel = 1; channel <= fullBoard.getNumberOfChannels(); channel++) {
+			channels += fullBoard.motorOnChannel(channel).getPwmChannel();
+		}
+
+		return channels;
+	}
+}
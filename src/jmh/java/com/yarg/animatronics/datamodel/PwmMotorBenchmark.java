@@ -0,0 +1,190 @@
+package com.yarg.animatronics.datamodel;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yarg.animatronics.datamodel.motors.TowerProMG995R;
+
+/**
+ * Benchmarks of the angle and tick conversions and of keyframe lookup and insertion on motors with many keys.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PwmMotorBenchmark {
+
+	// Number of precomputed inputs, a power of two so the next input is a mask away.
+	private static final int INPUTS = 1024;
+	private static final int INPUT_MASK = INPUTS - 1;
+
+	// Time between keys, in milliseconds.
+	private static final long KEY_INTERVAL = 20L;
+
+	@Param({"100", "10000", "1000000"})
+	public int numberOfKeys;
+
+	@Param({"LINEAR", "CATMULL_ROM"})
+	public InterpolationMode interpolation;
+
+	private TowerProMG995R motor;
+	private AnimationCursor cursor;
+	private double[] angles;
+	private int[] ticks;
+	private long[] times;
+	private int input;
+	private long playbackTime;
+	private long[] keyTimes;
+	private int[] keyTicks;
+
+	@Setup
+	public void setup() {
+
+		motor = createMotor(numberOfKeys);
+		motor.setInterpolation(interpolation);
+		cursor = new AnimationCursor(motor);
+
+		long duration = (numberOfKeys - 1) * KEY_INTERVAL;
+		angles = new double[INPUTS];
+		ticks = new int[INPUTS];
+		times = new long[INPUTS];
+		for (int i = 0; i < INPUTS; i++) {
+			angles[i] = motor.getMinAngle() + (motor.getMaxAngle() - motor.getMinAngle()) * i / INPUTS;
+			ticks[i] = motor.getMinTick() + (motor.getMaxTick() - motor.getMinTick()) * i / INPUTS;
+			times[i] = (duration * ((i * 617L) & INPUT_MASK)) / INPUTS;
+		}
+
+		keyTimes = new long[numberOfKeys];
+		keyTicks = new int[numberOfKeys];
+		for (int i = 0; i < numberOfKeys; i++) {
+			keyTimes[i] = motor.getTimeAtIndex(i);
+			keyTicks[i] = motor.getTickAtIndex(i);
+		}
+	}
+
+	@Benchmark
+	public int convertAngleToTicks() {
+		return motor.convertAngleToTicks(angles[input++ & INPUT_MASK]);
+	}
+
+	@Benchmark
+	public double convertTicksToAngle() {
+		return motor.convertTicksToAngle(ticks[input++ & INPUT_MASK]);
+	}
+
+	/*
+	 * Lookup of the key in effect at random times.
+	 */
+	@Benchmark
+	public int getKeyIndexAtTime() {
+		return motor.getKeyIndexAtTime(times[input++ & INPUT_MASK]);
+	}
+
+	/*
+	 * Interpolated tick at random times.
+	 */
+	@Benchmark
+	public int getTickAtTime() {
+		return motor.getTickAtTime(times[input++ & INPUT_MASK]);
+	}
+
+	/*
+	 * Interpolated tick at the frame times of 50 Hz playback, which is how frames are rendered.
+	 */
+	@Benchmark
+	public int getTickAtPlaybackTime() {
+
+		playbackTime += 20L;
+		if (playbackTime > numberOfKeys * KEY_INTERVAL) {
+			playbackTime = 0L;
+		}
+
+		return cursor.getTickAtTime(playbackTime);
+	}
+
+	/*
+	 * Insert a key in the middle of the animation and remove it again, so the motor is the same after every call.
+	 */
+	@Benchmark
+	public int insertAndRemoveKey() {
+
+		int index = motor.addAnimationKeyAtIndex(numberOfKeys / 2);
+		motor.removeKeyAtIndex(index);
+		return index;
+	}
+
+	/*
+	 * Build a motor by appending every key.
+	 */
+	@Benchmark
+	public TowerProMG995R appendKeys() {
+		return createMotor(numberOfKeys);
+	}
+
+	/*
+	 * Build a motor by appending all keys in one run.
+	 */
+	@Benchmark
+	public TowerProMG995R appendKeyRun() {
+
+		TowerProMG995R runMotor = new TowerProMG995R();
+		runMotor.appendAnimationKeys(keyTimes, keyTicks, 0, numberOfKeys);
+		return runMotor;
+	}
+
+	/*
+	 * Replace the middle half of the keys with the same keys, so the motor is the same after every call.
+	 */
+	@Benchmark
+	public int replaceKeyRange() {
+
+		int from = numberOfKeys / 4;
+		int to = numberOfKeys - from;
+		motor.replaceKeyRange(from, to, keyTimes, keyTicks, from, to - from);
+		return motor.getNumberOfKeys();
+	}
+
+	private static TowerProMG995R createMotor(int numberOfKeys) {
+
+		TowerProMG995R motor = new TowerProMG995R();
+		for (int i = 0; i < numberOfKeys; i++) {
+			int index = motor.addAnimationKey();
+			motor.setTimeAtIndex(index, i * KEY_INTERVAL);
+			motor.setTickAtIndex(index, motor.getMinTick() + (i * 37) % (motor.getMaxTick() - motor.getMinTick()));
+		}
+
+		return motor;
+	}
+}
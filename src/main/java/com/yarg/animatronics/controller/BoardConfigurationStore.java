@@ -0,0 +1,268 @@
+package com.yarg.animatronics.controller;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+import com.yarg.animatronics.datamodel.boards.PCA6985PwmBoard;
+
+/**
+ * Last configuration of the boards of a controller, kept in a small local file. Boards usually stay powered and
+ * configured while the controller restarts. A controller with a configuration store reads back the registers of a
+ * board and compares them with the saved configuration before resetting it. When they match the reset is skipped,
+ * which avoids a servo twitch and makes recovery faster.
+ *
+ * The controller keeps the file up to date: it saves a board when the board is added, forgets it when it is removed,
+ * and saves every board, dropping boards no longer on the controller, on saveConfiguration and close. The store only
+ * has to be loaded before it is given to the controller.
+ *
+ * <pre>
+ *   int    magic "PCAC"
+ *   short  version
+ *   int    number of boards
+ *   per board
+ *     int    bus number
+ *     int    board address
+ *     byte   MODE1
+ *     byte   MODE2
+ *     byte   PRE_SCALE
+ *     short  known channels, one bit per channel
+ *     byte[] LEDn registers, 64 bytes starting at LED0_ON_L
+ * </pre>
+ */
+public class BoardConfigurationStore {
+
+	private static final int MAGIC = 0x50434143;
+	private static final short VERSION = 1;
+	private static final int LED_REGISTERS = 16 * PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL;
+
+	private final File file;
+	private final LinkedHashMap<Long, BoardSnapshot> keyToSnapshotMap = new LinkedHashMap<>();
+
+	/**
+	 * Create an empty store backed by the file specified. Call load to read configurations saved earlier.
+	 * @param file File the configurations are kept in.
+	 */
+	public BoardConfigurationStore(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Get the file the configurations are kept in.
+	 * @return Store file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Replace the configurations held with the ones in the file. A missing file holds no configurations.
+	 * @throws IOException If the file can't be read or is not a configuration store.
+	 */
+	public synchronized void load() throws IOException {
+
+		keyToSnapshotMap.clear();
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a board configuration file: " + file + ".");
+			}
+			short version = in.readShort();
+			if (version != VERSION) {
+				throw new IOException("Unsupported board configuration version " + version + ".");
+			}
+
+			int numberOfBoards = in.readInt();
+			for (int i = 0; i < numberOfBoards; i++) {
+				int busNumber = in.readInt();
+				int boardAddress = in.readInt();
+				int mode1 = in.readUnsignedByte();
+				int mode2 = in.readUnsignedByte();
+				int preScale = in.readUnsignedByte();
+				int knownChannels = in.readUnsignedShort();
+				byte[] ledRegisters = new byte[LED_REGISTERS];
+				in.readFully(ledRegisters);
+				putSnapshot(new BoardSnapshot(busNumber, boardAddress, mode1, mode2, preScale, knownChannels,
+						ledRegisters));
+			}
+		} catch (FileNotFoundException e) {
+			// Nothing saved yet.
+		} catch (EOFException e) {
+			keyToSnapshotMap.clear();
+			throw new IOException("Board configuration file ends early: " + file + ".", e);
+		}
+	}
+
+	/**
+	 * Write the configurations held to the file. The file is replaced in a single step where the file system allows
+	 * it, so a crash while saving leaves the previous configurations.
+	 * @throws IOException
+	 */
+	public synchronized void save() throws IOException {
+
+		File tempFile = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeInt(keyToSnapshotMap.size());
+
+			for (BoardSnapshot snapshot : keyToSnapshotMap.values()) {
+				out.writeInt(snapshot.busNumber);
+				out.writeInt(snapshot.boardAddress);
+				out.writeByte(snapshot.mode1);
+				out.writeByte(snapshot.mode2);
+				out.writeByte(snapshot.preScale);
+				out.writeShort(snapshot.knownChannels);
+				out.write(snapshot.ledRegisters);
+			}
+		}
+
+		try {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Get the configuration held for a board.
+	 * @param busNumber I2C bus number of the board.
+	 * @param boardAddress Address of the board.
+	 * @return Configuration of the board, or null if none is held.
+	 */
+	public synchronized BoardSnapshot getSnapshot(int busNumber, int boardAddress) {
+		return keyToSnapshotMap.get(key(busNumber, boardAddress));
+	}
+
+	/**
+	 * Hold the configuration of a board, replacing any held for the same bus and address. Not written to the file
+	 * until save is called.
+	 * @param snapshot Configuration of the board.
+	 */
+	public synchronized void putSnapshot(BoardSnapshot snapshot) {
+		keyToSnapshotMap.put(key(snapshot.busNumber, snapshot.boardAddress), snapshot);
+	}
+
+	/**
+	 * Forget the configuration of a board. Not written to the file until save is called.
+	 * @param busNumber I2C bus number of the board.
+	 * @param boardAddress Address of the board.
+	 */
+	public synchronized void removeSnapshot(int busNumber, int boardAddress) {
+		keyToSnapshotMap.remove(key(busNumber, boardAddress));
+	}
+
+	/**
+	 * Forget the configurations of the boards on a bus other than the boards specified. Not written to the file until
+	 * save is called.
+	 * @param busNumber I2C bus number of the boards.
+	 * @param boardAddresses Addresses of the boards to keep.
+	 */
+	public synchronized void retainSnapshots(int busNumber, Collection<Integer> boardAddresses) {
+		keyToSnapshotMap.values().removeIf(snapshot -> snapshot.busNumber == busNumber
+				&& !boardAddresses.contains(Integer.valueOf(snapshot.boardAddress)));
+	}
+
+	/**
+	 * Get the number of boards configurations are held for.
+	 * @return Number of boards.
+	 */
+	public synchronized int getNumberOfSnapshots() {
+		return keyToSnapshotMap.size();
+	}
+
+	private static Long key(int busNumber, int boardAddress) {
+		return Long.valueOf((long) busNumber << 32 | (boardAddress & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * Register values of a single board. Immutable.
+	 */
+	public static final class BoardSnapshot {
+
+		private final int busNumber;
+		private final int boardAddress;
+		private final int mode1;
+		private final int mode2;
+		private final int preScale;
+		private final int knownChannels;
+		private final byte[] ledRegisters;
+
+		/**
+		 * Create a snapshot of a board.
+		 * @param busNumber I2C bus number of the board.
+		 * @param boardAddress Address of the board.
+		 * @param mode1 MODE1 register value.
+		 * @param mode2 MODE2 register value.
+		 * @param preScale PRE_SCALE register value.
+		 * @param knownChannels Channels whose LEDn register values are known, one bit per channel.
+		 * @param ledRegisters LEDn register values, 64 bytes starting at LED0_ON_L. Copied.
+		 */
+		public BoardSnapshot(int busNumber, int boardAddress, int mode1, int mode2, int preScale, int knownChannels,
+				byte[] ledRegisters) {
+
+			if (ledRegisters.length != LED_REGISTERS) {
+				throw new IllegalArgumentException("Expected " + LED_REGISTERS + " LED register values.");
+			}
+
+			this.busNumber = busNumber;
+			this.boardAddress = boardAddress;
+			this.mode1 = mode1 & 0xFF;
+			this.mode2 = mode2 & 0xFF;
+			this.preScale = preScale & 0xFF;
+			this.knownChannels = knownChannels & 0xFFFF;
+			this.ledRegisters = ledRegisters.clone();
+		}
+
+		public int getBusNumber() {
+			return busNumber;
+		}
+
+		public int getBoardAddress() {
+			return boardAddress;
+		}
+
+		public int getMode1() {
+			return mode1;
+		}
+
+		public int getMode2() {
+			return mode2;
+		}
+
+		public int getPreScale() {
+			return preScale;
+		}
+
+		/**
+		 * Get the channels whose LEDn register values are known.
+		 * @return One bit per channel, bit 0 for channel 0.
+		 */
+		public int getKnownChannels() {
+			return knownChannels;
+		}
+
+		/**
+		 * Get the LEDn register values.
+		 * @return Copy of the 64 register values starting at LED0_ON_L.
+		 */
+		public byte[] getLedRegisters() {
+			return ledRegisters.clone();
+		}
+	}
+}
@@ -0,0 +1,293 @@
+package com.yarg.animatronics.controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import com.pi4j.io.i2c.I2CFactory.UnsupportedBusNumberException;
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.log.Logger;
+import com.yarg.animatronics.log.Logger.SEVERITY;
+
+/**
+ * Writes frames to boards spread over several I2C buses. Each bus has its own controller and its own worker thread, so
+ * the writes of one frame go out on all buses at the same time instead of one bus after the other.
+ *
+ * Board writes are queued with writeAllPwm and sent with flush, which returns once every bus has finished its writes.
+ * The tick arrays passed to writeAllPwm must not change until flush returns. Queueing and flushing must happen on a
+ * single thread.
+ */
+public class MultiBusDispatcher implements Closeable {
+
+	private final LinkedHashMap<Integer, BusWorker> busNumberToWorkerMap = new LinkedHashMap<>();
+	private final List<BusWorker> workers = new ArrayList<>();
+	private final Semaphore finishedWorkers = new Semaphore(0);
+	private final boolean verbose;
+
+	private BusWorker[] activeWorkers = new BusWorker[0];
+
+	/**
+	 * Create a dispatcher without any buses.
+	 * @param verbose Enable verbose logging of controllers created by the dispatcher.
+	 */
+	public MultiBusDispatcher(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	/**
+	 * Add a bus, creating a controller for it with PCA69855Controller(int, boolean). Does nothing if the bus is
+	 * already added.
+	 * @param busNumber I2C bus number.
+	 * @return Controller of the bus.
+	 * @throws UnsupportedBusNumberException
+	 * @throws IOException
+	 */
+	public PCA69855Controller addBus(int busNumber) throws UnsupportedBusNumberException, IOException {
+
+		BusWorker worker = busNumberToWorkerMap.get(busNumber);
+		if (worker != null) {
+			return worker.controller;
+		}
+
+		PCA69855Controller controller = new PCA69855Controller(busNumber, verbose);
+		addBus(busNumber, controller);
+		return controller;
+	}
+
+	/**
+	 * Add a bus with the controller specified. The controller must not be shared with another bus.
+	 * @param busNumber I2C bus number.
+	 * @param controller Controller of the bus.
+	 */
+	public synchronized void addBus(int busNumber, PCA69855Controller controller) {
+
+		if (busNumberToWorkerMap.containsKey(busNumber)) {
+			throw new IllegalArgumentException("Bus " + busNumber + " has already been added.");
+		}
+
+		BusWorker worker = new BusWorker(busNumber, controller);
+		busNumberToWorkerMap.put(busNumber, worker);
+		workers.add(worker);
+		activeWorkers = new BusWorker[workers.size()];
+
+		worker.thread.start();
+	}
+
+	/**
+	 * Get the controller of the bus.
+	 * @param busNumber I2C bus number.
+	 * @return Controller of the bus.
+	 * @throws IllegalArgumentException If the bus has not been added.
+	 */
+	public PCA69855Controller getController(int busNumber) {
+		return getWorker(busNumber).controller;
+	}
+
+	/**
+	 * Add a board to the controller of the bus the board is connected to, adding the bus first if needed.
+	 * @param board Board to add.
+	 * @throws UnsupportedBusNumberException
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void addBoard(PwmBoard board) throws UnsupportedBusNumberException, IOException, InterruptedException {
+		addBus(board.getI2cBusNumber()).addBoard(board);
+	}
+
+	/**
+	 * Add boards to the controllers of the buses they are connected to, adding buses first if needed. The boards of
+	 * each bus are added together with PCA69855Controller.addBoards(List).
+	 * @param boards Boards to add.
+	 * @throws UnsupportedBusNumberException
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void addBoards(List<PwmBoard> boards) throws UnsupportedBusNumberException, IOException, InterruptedException {
+
+		LinkedHashMap<Integer, List<PwmBoard>> busNumberToBoardsMap = new LinkedHashMap<>();
+		for (PwmBoard board : boards) {
+			busNumberToBoardsMap.computeIfAbsent(board.getI2cBusNumber(), busNumber -> new ArrayList<>()).add(board);
+		}
+
+		for (Integer busNumber : busNumberToBoardsMap.keySet()) {
+			addBus(busNumber).addBoards(busNumberToBoardsMap.get(busNumber));
+		}
+	}
+
+	/**
+	 * Queue a write of the on and off tick values of every channel of a board. See
+	 * PCA69855Controller.writeAllPwm(int, int[], int[]).
+	 * @param busNumber I2C bus number of the board.
+	 * @param boardAddress Address of the board.
+	 * @param on On tick values, one per channel.
+	 * @param off Off tick values, one per channel.
+	 */
+	public void writeAllPwm(int busNumber, int boardAddress, int[] on, int[] off) {
+		getWorker(busNumber).queue(boardAddress, on, off);
+	}
+
+	/**
+	 * Send all queued writes and wait for every bus to finish. The writes of the first bus with queued writes are sent
+	 * on the calling thread, the writes of the other buses on their worker threads.
+	 * @throws IOException If a write on any of the buses failed. The other buses still finish their writes.
+	 * @throws IllegalArgumentException If a write was queued for a board the controller of its bus does not have.
+	 * The other buses still finish their writes.
+	 * @throws InterruptedException
+	 */
+	public void flush() throws IOException, InterruptedException {
+
+		int numberOfActiveWorkers = 0;
+		for (BusWorker worker : workers) {
+			if (worker.numberOfWrites > 0) {
+				activeWorkers[numberOfActiveWorkers++] = worker;
+			}
+		}
+
+		if (numberOfActiveWorkers == 0) {
+			return;
+		}
+
+		for (int i = 1; i < numberOfActiveWorkers; i++) {
+			activeWorkers[i].start.release();
+		}
+
+		try {
+			activeWorkers[0].writeQueued();
+		} finally {
+			// Frame barrier, every bus must finish before the next frame is queued.
+			finishedWorkers.acquireUninterruptibly(numberOfActiveWorkers - 1);
+		}
+
+		Exception error = null;
+		for (int i = 0; i < numberOfActiveWorkers; i++) {
+			BusWorker worker = activeWorkers[i];
+			if (worker.error != null) {
+				if (error == null) {
+					error = worker.error;
+				} else {
+					error.addSuppressed(worker.error);
+				}
+				worker.error = null;
+			}
+			activeWorkers[i] = null;
+		}
+
+		if (error instanceof IOException) {
+			throw (IOException) error;
+		} else if (error != null) {
+			throw (RuntimeException) error;
+		}
+	}
+
+	/**
+	 * Stop the worker threads. Controllers are left as they are.
+	 */
+	@Override
+	public synchronized void close() {
+
+		for (BusWorker worker : workers) {
+			worker.thread.interrupt();
+		}
+
+		for (BusWorker worker : workers) {
+			try {
+				worker.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private BusWorker getWorker(int busNumber) {
+
+		BusWorker worker = busNumberToWorkerMap.get(busNumber);
+		if (worker == null) {
+			throw new IllegalArgumentException("Bus " + busNumber + " has not been added.");
+		}
+
+		return worker;
+	}
+
+	/*
+	 * Queued board writes of a bus and the thread that sends them. Write slots are reused from frame to frame.
+	 */
+	private class BusWorker {
+
+		final PCA69855Controller controller;
+		final Thread thread;
+		final Semaphore start = new Semaphore(0);
+
+		int[] boardAddresses = new int[4];
+		int[][] onTicks = new int[4][];
+		int[][] offTicks = new int[4][];
+		int numberOfWrites;
+
+		// IOException or RuntimeException of the last writes, reported by flush.
+		Exception error;
+
+		BusWorker(int busNumber, PCA69855Controller controller) {
+
+			this.controller = controller;
+
+			thread = new Thread(this::run, "animatronics-i2c-bus-" + busNumber);
+			thread.setPriority(Thread.MAX_PRIORITY);
+			thread.setDaemon(true);
+		}
+
+		void queue(int boardAddress, int[] on, int[] off) {
+
+			if (numberOfWrites == boardAddresses.length) {
+				int capacity = numberOfWrites * 2;
+				boardAddresses = Arrays.copyOf(boardAddresses, capacity);
+				onTicks = Arrays.copyOf(onTicks, capacity);
+				offTicks = Arrays.copyOf(offTicks, capacity);
+			}
+
+			boardAddresses[numberOfWrites] = boardAddress;
+			onTicks[numberOfWrites] = on;
+			offTicks[numberOfWrites] = off;
+			numberOfWrites++;
+		}
+
+		void writeQueued() {
+
+			try {
+				for (int i = 0; i < numberOfWrites; i++) {
+					controller.writeAllPwm(boardAddresses[i], onTicks[i], offTicks[i]);
+				}
+			} catch (IOException | RuntimeException e) {
+				// Kept for flush, the worker carries on with the next frame.
+				error = e;
+			} finally {
+				for (int i = 0; i < numberOfWrites; i++) {
+					onTicks[i] = null;
+					offTicks[i] = null;
+				}
+				numberOfWrites = 0;
+			}
+		}
+
+		void run() {
+
+			try {
+				while (true) {
+					start.acquire();
+					try {
+						writeQueued();
+					} finally {
+						finishedWorkers.release();
+					}
+				}
+			} catch (InterruptedException e) {
+				if (verbose && Logger.isEnabled(SEVERITY.INFO)) {
+					Logger.log(SEVERITY.INFO, "Stopped " + thread.getName() + ".");
+				}
+			}
+		}
+	}
+}
@@ -1,23 +1,41 @@
 package com.yarg.animatronics.controller;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import com.pi4j.io.i2c.I2CBus;
 import com.pi4j.io.i2c.I2CDevice;
 import com.pi4j.io.i2c.I2CFactory;
 import com.pi4j.io.i2c.I2CFactory.UnsupportedBusNumberException;
+import com.yarg.animatronics.controller.BoardConfigurationStore.BoardSnapshot;
 import com.yarg.animatronics.datamodel.PwmBoard;
 import com.yarg.animatronics.datamodel.boards.PCA6985PwmBoard;
 import com.yarg.animatronics.log.Logger;
 import com.yarg.animatronics.log.Logger.SEVERITY;
+import com.yarg.animatronics.metrics.ControllerMetrics;
+import com.yarg.animatronics.timing.TimeSource;
 
-public class PCA69855Controller {
+public class PCA69855Controller implements Closeable {
+
+	// Maximum time the oscillator takes to start after leaving sleep, from the PCA9685 datasheet.
+	private static final long OSCILLATOR_STARTUP_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
 
 	protected HashMap<Integer, I2CDevice> boardAddressToI2cDeviceMap = new HashMap<>();
 	protected boolean verbose;
+	protected boolean autoIncrement;
 
 	private I2CBus i2cBus;
+	private final HashMap<Integer, ShadowRegisters> boardAddressToShadowRegistersMap = new HashMap<>();
+	private final byte[] ledRegisterBuffer = new byte[16 * PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL];
+	private final ControllerMetrics metrics = new ControllerMetrics();
+	private TimeSource timeSource = TimeSource.system();
+	private BoardConfigurationStore configurationStore;
 
 	/**
 	 * Configured with I2C Bus set to BUS_1 and verbose output set to false.
@@ -30,7 +48,8 @@ public class PCA69855Controller {
 
 	/**
 	 * Configured with the I2C Bus set to BUS_1 and verbose specified by the consumer.
-	 * @param verbose Enable verbose logging of controller execution.
+	 * @param verbose Enable verbose logging of controller execution. Start asynchronous logging with
+	 * Logger.startAsync so writing the log never holds up the bus.
 	 * @throws IOException
 	 * @throws UnsupportedBusNumberException
 	 */
@@ -41,15 +60,138 @@ public class PCA69855Controller {
 	/**
 	 * Configured with the I2C Bus and verbose specified by the consumer.
 	 * @param i2cBusNumber I2CBus number to use.
-	 * @param verbose Enable verbose logging of controller execution.
+	 * @param verbose Enable verbose logging of controller execution. Start asynchronous logging with
+	 * Logger.startAsync so writing the log never holds up the bus.
 	 * @throws IOException
 	 * @throws UnsupportedBusNumberException
 	 */
 	public PCA69855Controller(int i2cBusNumber, boolean verbose) throws UnsupportedBusNumberException, IOException {
+		this(I2CFactory.getInstance(i2cBusNumber), verbose);
+	}
+
+	/**
+	 * Configured with the I2C Bus instance and verbose specified by the consumer.
+	 * @param i2cBus I2CBus to use.
+	 * @param verbose Enable verbose logging of controller execution. Start asynchronous logging with
+	 * Logger.startAsync so writing the log never holds up the bus.
+	 */
+	public PCA69855Controller(I2CBus i2cBus, boolean verbose) {
 
 		this.verbose = verbose;
+		this.i2cBus = i2cBus;
+	}
+
+	/**
+	 * Get the number of the I2C bus the controller writes to.
+	 * @return I2C bus number.
+	 */
+	public int getBusNumber() {
+		return i2cBus.getBusNumber();
+	}
+
+	/**
+	 * Get the I2C traffic counters and board write times of the controller.
+	 * @return Metrics of the controller.
+	 */
+	public ControllerMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Get the clock used to wait for the oscillator of a board to start.
+	 * @return Time source of the controller.
+	 */
+	public TimeSource getTimeSource() {
+		return timeSource;
+	}
+
+	/**
+	 * Set the clock used to wait for the oscillator of a board to start. Defaults to TimeSource.system().
+	 * @param timeSource Time source of the controller.
+	 */
+	public void setTimeSource(TimeSource timeSource) {
+		this.timeSource = timeSource;
+	}
+
+	/**
+	 * Get the store of the last configuration of the boards.
+	 * @return Configuration store, or null if boards are always reset when added.
+	 */
+	public BoardConfigurationStore getConfigurationStore() {
+		return configurationStore;
+	}
+
+	/**
+	 * Set the store of the last configuration of the boards. With a store, a board added that still holds the mode,
+	 * pre-scale and LEDn registers saved in the store is taken over as it is instead of being reset, and the values
+	 * of its channels are known straight away. Set before adding boards, with the store loaded.
+	 *
+	 * The store file is written by the controller: after boards are added, after a board is removed, and with every
+	 * board and its channel values on saveConfiguration and close. Failures to write the file when boards are added
+	 * or removed are logged, the boards are still configured.
+	 * @param configurationStore Configuration store, or null to always reset boards when they are added.
+	 */
+	public void setConfigurationStore(BoardConfigurationStore configurationStore) {
+		this.configurationStore = configurationStore;
+	}
+
+	/**
+	 * Save the current configuration of every board to the configuration store and write the store to its file.
+	 * Boards of the bus that are no longer on the controller are dropped from the store. The mode and pre-scale
+	 * registers are read back from the boards, the LEDn registers are the values last written. Called by close, call
+	 * it directly to save the channel values while the controller stays open.
+	 * @throws IOException
+	 */
+	public void saveConfiguration() throws IOException {
 
-		i2cBus = I2CFactory.getInstance(i2cBusNumber);
+		if (configurationStore == null) {
+			throw new IllegalStateException("No configuration store set.");
+		}
+
+		for (Integer boardAddress : boardAddressToI2cDeviceMap.keySet()) {
+			putSnapshot(boardAddress);
+		}
+		configurationStore.retainSnapshots(getBusNumber(), boardAddressToI2cDeviceMap.keySet());
+
+		configurationStore.save();
+	}
+
+	/**
+	 * Save the configuration of every board when a configuration store is set, so the next controller can take the
+	 * boards over without resetting them. The boards and the I2C bus are left as they are.
+	 * @throws IOException If the configuration store can't be written.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (configurationStore != null) {
+			saveConfiguration();
+		}
+	}
+
+	/**
+	 * Check if register auto-increment is enabled on the boards.
+	 * @return True if register auto-increment is enabled, false otherwise.
+	 */
+	public boolean isAutoIncrement() {
+		return autoIncrement;
+	}
+
+	/**
+	 * Enable or disable register auto-increment (MODE1 AI bit) on all boards. With auto-increment enabled the four
+	 * registers of a channel are written in a single I2C transaction, and writeAllPwm writes all of the channels of a
+	 * board in a single I2C transaction. Boards added later are configured the same way.
+	 * @param autoIncrement True to enable register auto-increment, false to disable it.
+	 * @throws IOException
+	 */
+	public void setAutoIncrement(boolean autoIncrement) throws IOException {
+
+		this.autoIncrement = autoIncrement;
+
+		for (I2CDevice device : boardAddressToI2cDeviceMap.values()) {
+			int mode = device.read(PCA6985PwmBoard.MODE1);
+			writeRegister(device, PCA6985PwmBoard.MODE1, (byte) applyAutoIncrement(mode));
+		}
 	}
 
 	/**
@@ -60,50 +202,516 @@ public class PCA69855Controller {
 	 */
 	public void addBoard(PwmBoard board) throws IOException, InterruptedException {
 
-		Logger.log(SEVERITY.INFO, "Adding board (address: " + board.getPwmBoardAddress() + ").", verbose);
+		if (bringUpBoard(board)) {
+			storeConfiguration(Collections.singletonList(board.getPwmBoardAddress()));
+		}
+	}
+
+	/*
+	 * Configure and reset a single board, or take it over from the configuration store.
+	 */
+	private boolean bringUpBoard(PwmBoard board) throws IOException, InterruptedException {
+
+		if (verbose && Logger.isEnabled(SEVERITY.INFO)) {
+			Logger.log(SEVERITY.INFO, "Adding board (address: " + board.getPwmBoardAddress() + ").");
+		}
 
 		Integer boardAddress = board.getPwmBoardAddress();
 		if (boardAddressToI2cDeviceMap.containsKey(boardAddress)) {
-			Logger.log(SEVERITY.INFO, "Board with address : " + board.getPwmBoardAddress() + ", already configured.", verbose);
-			return;
+			if (verbose && Logger.isEnabled(SEVERITY.INFO)) {
+				Logger.log(SEVERITY.INFO, "Board with address : " + boardAddress + ", already configured.");
+			}
+			return false;
 		}
 
 		I2CDevice i2cDevice = i2cBus.getDevice(board.getPwmBoardAddress());
+		if (restoreBoard(board, i2cDevice)) {
+			return true;
+		}
 
 		resetDevice(i2cDevice);
 		setPWMFreq(board.getFrequency(), i2cDevice);
 		boardAddressToI2cDeviceMap.put(board.getPwmBoardAddress(), i2cDevice);
+		boardAddressToShadowRegistersMap.put(board.getPwmBoardAddress(), new ShadowRegisters());
+		return true;
 	}
 
 	/**
-	 * Remove the board from the controller, resetting the device in the process.
+	 * Add several boards to the controller at once. Produces the same configuration as addBoard for each board, but
+	 * configures the boards together through the PCA9685 ALLCALL address: every board is put to sleep, given its
+	 * pre-scale and woken up with a handful of broadcast writes, and the oscillator start-up wait is shared by all of
+	 * them. Each board is then read back on its own address. Boards that did not take the broadcast configuration,
+	 * for example because ALLCALL was disabled on them and they have not been power-cycled since, are added one at a
+	 * time with addBoard.
+	 *
+	 * Broadcast writes reach every board on the bus that responds to ALLCALL, not just the boards specified, so add
+	 * all of the boards of a bus in a single call. Boards already added to the controller are skipped, and boards that
+	 * still hold their configuration in the configuration store are taken over without being reset.
+	 * @param boards Boards to add to the controller.
+	 * @throws IOException If a board can't be configured, also one at a time.
+	 * @throws InterruptedException
+	 */
+	public void addBoards(List<PwmBoard> boards) throws IOException, InterruptedException {
+
+		List<Integer> addedBoardAddresses = new ArrayList<>();
+		try {
+			bringUpBoards(boards, addedBoardAddresses);
+		} finally {
+			storeConfiguration(addedBoardAddresses);
+		}
+	}
+
+	/*
+	 * Bring up the boards not added yet through ALLCALL, collecting the addresses of the boards added.
+	 */
+	private void bringUpBoards(List<PwmBoard> boards, List<Integer> addedBoardAddresses) throws IOException,
+			InterruptedException {
+
+		List<PwmBoard> newBoards = new ArrayList<>();
+		Map<Integer, Integer> preScaleCounts = new HashMap<>();
+		for (PwmBoard board : boards) {
+			Integer boardAddress = board.getPwmBoardAddress();
+			if (boardAddressToI2cDeviceMap.containsKey(boardAddress)
+					|| newBoards.stream().anyMatch(newBoard -> newBoard.getPwmBoardAddress() == boardAddress)) {
+				if (verbose && Logger.isEnabled(SEVERITY.INFO)) {
+					Logger.log(SEVERITY.INFO, "Board with address : " + boardAddress + ", already configured.");
+				}
+				continue;
+			} else if (restoreBoard(board, i2cBus.getDevice(boardAddress))) {
+				addedBoardAddresses.add(boardAddress);
+				continue;
+			}
+			newBoards.add(board);
+			preScaleCounts.merge(computePreScale(board.getFrequency()), 1, Integer::sum);
+		}
+
+		if (newBoards.size() < 2) {
+			bringUpBoardsOneAtATime(newBoards, addedBoardAddresses);
+			return;
+		}
+
+		if (verbose && Logger.isEnabled(SEVERITY.INFO)) {
+			Logger.log(SEVERITY.INFO, "Adding " + newBoards.size() + " boards through ALLCALL.");
+		}
+
+		// The pre-scale of most boards is broadcast, boards with another frequency get theirs written directly.
+		int commonPreScale = preScaleCounts.entrySet().stream()
+				.max(Map.Entry.comparingByValue()).get().getKey();
+
+		I2CDevice allCallDevice = i2cBus.getDevice(PCA6985PwmBoard.ALLCALL_ADDRESS);
+		try {
+			writeRegister(allCallDevice, PCA6985PwmBoard.MODE1,
+					(byte) (PCA6985PwmBoard.MODE1_SLEEP | PCA6985PwmBoard.MODE1_ALLCALL));
+		} catch (IOException e) {
+			Logger.log(SEVERITY.WARNING, "No board responded to ALLCALL, adding boards one at a time.");
+			bringUpBoardsOneAtATime(newBoards, addedBoardAddresses);
+			return;
+		}
+
+		writeRegister(allCallDevice, PCA6985PwmBoard.PRE_SCALE, (byte) commonPreScale);
+		for (PwmBoard board : newBoards) {
+			int preScale = computePreScale(board.getFrequency());
+			if (preScale != commonPreScale) {
+				try {
+					writeRegister(i2cBus.getDevice(board.getPwmBoardAddress()), PCA6985PwmBoard.PRE_SCALE,
+							(byte) preScale);
+				} catch (IOException e) {
+					// The board fails the read back below and is added on its own.
+				}
+			}
+		}
+
+		// Wake every oscillator at once and wait for them together. ALLCALL stays enabled until the restart.
+		writeRegister(allCallDevice, PCA6985PwmBoard.MODE1, (byte) applyAutoIncrement(PCA6985PwmBoard.MODE1_ALLCALL));
+		timeSource.sleep(OSCILLATOR_STARTUP_NANOS);
+		writeRegister(allCallDevice, PCA6985PwmBoard.MODE1,
+				(byte) (applyAutoIncrement(0x00) | PCA6985PwmBoard.MODE1_RESTART));
+
+		for (PwmBoard board : newBoards) {
+			I2CDevice i2cDevice = i2cBus.getDevice(board.getPwmBoardAddress());
+			if (isConfigured(i2cDevice, computePreScale(board.getFrequency()))) {
+				boardAddressToI2cDeviceMap.put(board.getPwmBoardAddress(), i2cDevice);
+				boardAddressToShadowRegistersMap.put(board.getPwmBoardAddress(), new ShadowRegisters());
+				addedBoardAddresses.add(board.getPwmBoardAddress());
+			} else {
+				if (Logger.isEnabled(SEVERITY.WARNING)) {
+					Logger.log(SEVERITY.WARNING, "Board with address " + board.getPwmBoardAddress()
+							+ " did not take the ALLCALL configuration, adding it on its own.");
+				}
+				bringUpBoardsOneAtATime(Collections.singletonList(board), addedBoardAddresses);
+			}
+		}
+	}
+
+	/*
+	 * Bring up the boards one at a time, collecting the addresses of the boards added.
+	 */
+	private void bringUpBoardsOneAtATime(List<PwmBoard> boards, List<Integer> addedBoardAddresses)
+			throws IOException, InterruptedException {
+
+		for (PwmBoard board : boards) {
+			if (bringUpBoard(board)) {
+				addedBoardAddresses.add(board.getPwmBoardAddress());
+			}
+		}
+	}
+
+	/**
+	 * Remove the board from the controller, resetting the device in the process. The board is dropped from the
+	 * configuration store file.
 	 * @param board Board to remove from the controller.
 	 * @throws IOException
 	 */
 	public void removeBoard(PwmBoard board) throws IOException {
 		I2CDevice device = boardAddressToI2cDeviceMap.remove(board.getPwmBoardAddress());
+		boardAddressToShadowRegistersMap.remove(board.getPwmBoardAddress());
+		if (configurationStore != null) {
+			configurationStore.removeSnapshot(getBusNumber(), board.getPwmBoardAddress());
+			saveConfigurationStore();
+		}
 		resetDevice(device);
 	}
 
+	/**
+	 * Forget the LEDn register values cached for the board, so the next write of every channel goes to the board.
+	 * Use when something other than this controller may have changed the registers of the board.
+	 * @param boardAddress Address of the board.
+	 */
+	public void invalidateShadowRegisters(int boardAddress) {
+
+		ShadowRegisters shadowRegisters = boardAddressToShadowRegistersMap.get(Integer.valueOf(boardAddress));
+		if (shadowRegisters != null) {
+			shadowRegisters.invalidate();
+		}
+	}
+
+	/**
+	 * Write the on and off tick values of a channel. Registers that already hold the value written are skipped, so
+	 * writing the values the channel already has does not touch the bus. With auto-increment enabled the changed
+	 * registers of the channel are written in a single I2C transaction.
+	 * @param boardAddress Address of the board to write to.
+	 * @param channel Channel, from 0 to 15, to write to.
+	 * @param on Tick, from 0 to 4095, at which the signal turns on.
+	 * @param off Tick, from 0 to 4095, at which the signal turns off.
+	 * @throws IOException
+	 */
 	public void writePwm(int boardAddress, int channel, int on, int off) throws IOException {
 
+		I2CDevice device = getDevice(boardAddress);
+
+		if (channel < 0 || channel > 15) {
+			throw new IllegalArgumentException("Unknown channel specified: " + channel + ".");
+		}
+
+		ShadowRegisters shadowRegisters = boardAddressToShadowRegistersMap.get(Integer.valueOf(boardAddress));
+		int firstRegister = shadowRegisters.firstChangedRegister(channel, on, off);
+		if (firstRegister == PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL) {
+			metrics.recordSkippedChannelWrite();
+			return;
+		}
+
+		int channelRegister = PCA6985PwmBoard.LED0_ON_L + 4 * channel;
+
+		if (autoIncrement) {
+			int lastRegister = shadowRegisters.lastChangedRegister(channel, on, off);
+			fillLedRegisters(0, on, off);
+			writeRegisters(device, channelRegister + firstRegister, firstRegister, lastRegister - firstRegister + 1);
+		} else {
+			// Write the twelve bits of the on and off signals, one register at a time.
+			for (int register = firstRegister; register < PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL; register++) {
+				if (!shadowRegisters.registerMatches(channel, register, on, off)) {
+					writeRegister(device, channelRegister + register, ShadowRegisters.registerValue(register, on, off));
+				}
+			}
+		}
+
+		shadowRegisters.update(channel, on, off);
+	}
+
+	/**
+	 * Write the on and off tick values of every channel of a board, starting at channel 0. Channels with a negative
+	 * off value are left untouched, as are channels that already hold the values written. With auto-increment enabled
+	 * every run of consecutive changed channels is written in a single I2C transaction, so a full board is a single
+	 * transaction starting at LED0_ON_L.
+	 * @param boardAddress Address of the board to write to.
+	 * @param on Ticks at which the signal of each channel turns on.
+	 * @param off Ticks at which the signal of each channel turns off.
+	 * @throws IOException
+	 */
+	public void writeAllPwm(int boardAddress, int[] on, int[] off) throws IOException {
+
+		long startTime = System.nanoTime();
+		I2CDevice device = getDevice(boardAddress);
+
+		if (off.length > 16 || on.length < off.length) {
+			throw new IllegalArgumentException("Invalid number of channels specified: " + off.length + ".");
+		}
+
+		if (autoIncrement) {
+			writeChannelRuns(device, boardAddress, on, off);
+		} else {
+			for (int channel = 0; channel < off.length; channel++) {
+				if (off[channel] >= 0) {
+					writePwm(boardAddress, channel, on[channel], off[channel]);
+				}
+			}
+		}
+
+		metrics.recordBoardWrite(System.nanoTime() - startTime);
+	}
+
+	/*
+	 * Write every run of consecutive changed channels of a board in a single auto-increment transaction.
+	 */
+	private void writeChannelRuns(I2CDevice device, int boardAddress, int[] on, int[] off) throws IOException {
+
+		ShadowRegisters shadowRegisters = boardAddressToShadowRegistersMap.get(Integer.valueOf(boardAddress));
+
+		int channel = 0;
+		while (channel < off.length) {
+
+			if (off[channel] < 0) {
+				channel++;
+				continue;
+			} else if (shadowRegisters.matches(channel, on[channel], off[channel])) {
+				metrics.recordSkippedChannelWrite();
+				channel++;
+				continue;
+			}
+
+			// Collect the run of consecutive changed channels, trimming unchanged registers at both ends.
+			int firstChannel = channel;
+			int firstRegister = shadowRegisters.firstChangedRegister(channel, on[channel], off[channel]);
+			int length = 0;
+			while (channel < off.length && off[channel] >= 0 && !shadowRegisters.matches(channel, on[channel], off[channel])) {
+				fillLedRegisters(length, on[channel], off[channel]);
+				length += PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL;
+				channel++;
+			}
+
+			int lastChannel = channel - 1;
+			int lastRegister = shadowRegisters.lastChangedRegister(lastChannel, on[lastChannel], off[lastChannel]);
+			length -= PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL - 1 - lastRegister;
+
+			writeRegisters(device, PCA6985PwmBoard.LED0_ON_L + 4 * firstChannel + firstRegister, firstRegister,
+					length - firstRegister);
+
+			for (int updated = firstChannel; updated <= lastChannel; updated++) {
+				shadowRegisters.update(updated, on[updated], off[updated]);
+			}
+		}
+	}
+
+	/*
+	 * Look up the device of a board added to the controller.
+	 */
+	private I2CDevice getDevice(int boardAddress) {
+
 		I2CDevice device = boardAddressToI2cDeviceMap.get(Integer.valueOf(boardAddress));
 
 		if (device == null) {
 			throw new IllegalArgumentException("Unknown board address specified: " + boardAddress + ".");
 		}
 
-		if (channel < 0 || channel > 15) {
-			throw new IllegalArgumentException("Unknown channel specified: " + channel + ".");
+		return device;
+	}
+
+	/*
+	 * Write a single register, counting the transaction.
+	 */
+	private void writeRegister(I2CDevice device, int register, byte value) throws IOException {
+		device.write(register, value);
+		metrics.recordTransaction(1);
+	}
+
+	/*
+	 * Write consecutive registers from the register buffer in a single auto-increment transaction, counting the
+	 * transaction.
+	 */
+	private void writeRegisters(I2CDevice device, int register, int offset, int length) throws IOException {
+		device.write(register, ledRegisterBuffer, offset, length);
+		metrics.recordTransaction(length);
+	}
+
+	/*
+	 * Fill the four LED register bytes of a channel into the register buffer at the offset specified.
+	 */
+	private void fillLedRegisters(int offset, int on, int off) {
+		ledRegisterBuffer[offset] = (byte) (on & 0xFF);
+		ledRegisterBuffer[offset + 1] = (byte) (on >> 8);
+		ledRegisterBuffer[offset + 2] = (byte) (off & 0xFF);
+		ledRegisterBuffer[offset + 3] = (byte) (off >> 8);
+	}
+
+	/*
+	 * Set or clear the auto-increment bit of a MODE1 value according to the controller configuration.
+	 */
+	private int applyAutoIncrement(int mode) {
+
+		if (autoIncrement) {
+			return mode | PCA6985PwmBoard.MODE1_AI;
 		}
 
-		// Write the twelve bits of the on signal.
-		device.write(PCA6985PwmBoard.LED0_ON_L + 4 * channel, (byte) (on & 0xFF));
-		device.write(PCA6985PwmBoard.LED0_ON_H + 4 * channel, (byte) (on >> 8));
+		return mode & ~PCA6985PwmBoard.MODE1_AI;
+	}
+
+	/*
+	 * Put the current configuration of a board in the configuration store.
+	 */
+	private void putSnapshot(Integer boardAddress) throws IOException {
 
-		// Write the twelve bits of the off signal.
-		device.write(PCA6985PwmBoard.LED0_OFF_L + 4 * channel, (byte) (off & 0xFF));
-		device.write(PCA6985PwmBoard.LED0_OFF_H + 4 * channel, (byte) (off >> 8));
+		I2CDevice device = boardAddressToI2cDeviceMap.get(boardAddress);
+		ShadowRegisters shadowRegisters = boardAddressToShadowRegistersMap.get(boardAddress);
+		byte[] ledRegisters = new byte[16 * PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL];
+		shadowRegisters.copyLedRegisters(ledRegisters);
+		configurationStore.putSnapshot(new BoardSnapshot(getBusNumber(), boardAddress,
+				device.read(PCA6985PwmBoard.MODE1), device.read(PCA6985PwmBoard.MODE2),
+				device.read(PCA6985PwmBoard.PRE_SCALE), shadowRegisters.getKnownChannels(), ledRegisters));
+	}
+
+	/*
+	 * Save the configuration of the boards just added, so a restart right after bring-up can take them over.
+	 */
+	private void storeConfiguration(List<Integer> boardAddresses) {
+
+		if (configurationStore == null || boardAddresses.isEmpty()) {
+			return;
+		}
+
+		try {
+			for (Integer boardAddress : boardAddresses) {
+				putSnapshot(boardAddress);
+			}
+		} catch (IOException e) {
+			if (Logger.isEnabled(SEVERITY.WARNING)) {
+				Logger.log(SEVERITY.WARNING, "Unable to read back board configuration: " + e.getMessage());
+			}
+			return;
+		}
+
+		saveConfigurationStore();
+	}
+
+	/*
+	 * Write the configuration store to its file. The store only saves time on the next start, so a failure is logged
+	 * rather than failing the operation that changed the boards.
+	 */
+	private void saveConfigurationStore() {
+
+		try {
+			configurationStore.save();
+		} catch (IOException e) {
+			if (Logger.isEnabled(SEVERITY.WARNING)) {
+				Logger.log(SEVERITY.WARNING, "Unable to save board configuration: " + e.getMessage());
+			}
+		}
+	}
+
+	/*
+	 * Take over a board that still holds the configuration saved in the configuration store, without resetting it.
+	 * The board must be awake with ALLCALL off, hold the saved mode registers and the pre-scale of its frequency, and
+	 * hold the saved values of every channel known when it was saved. Only the auto-increment bit is brought in line
+	 * with the controller.
+	 */
+	private boolean restoreBoard(PwmBoard board, I2CDevice i2cDevice) {
+
+		if (configurationStore == null) {
+			return false;
+		}
+
+		BoardSnapshot snapshot = configurationStore.getSnapshot(getBusNumber(), board.getPwmBoardAddress());
+		if (snapshot == null || snapshot.getPreScale() != computePreScale(board.getFrequency())
+				|| (snapshot.getMode1() & (PCA6985PwmBoard.MODE1_SLEEP | PCA6985PwmBoard.MODE1_ALLCALL)) != 0) {
+			return false;
+		}
+
+		byte[] ledRegisters = new byte[16 * PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL];
+		int mode;
+		try {
+			mode = i2cDevice.read(PCA6985PwmBoard.MODE1);
+			if ((mode & ~PCA6985PwmBoard.MODE1_RESTART) != (snapshot.getMode1() & ~PCA6985PwmBoard.MODE1_RESTART)
+					|| i2cDevice.read(PCA6985PwmBoard.MODE2) != snapshot.getMode2()
+					|| i2cDevice.read(PCA6985PwmBoard.PRE_SCALE) != snapshot.getPreScale()
+					|| !ledRegistersMatch(i2cDevice, (mode & PCA6985PwmBoard.MODE1_AI) != 0, snapshot, ledRegisters)) {
+				return false;
+			}
+
+			if (applyAutoIncrement(mode) != mode) {
+				writeRegister(i2cDevice, PCA6985PwmBoard.MODE1, (byte) (applyAutoIncrement(mode)
+						& ~PCA6985PwmBoard.MODE1_RESTART));
+			}
+		} catch (IOException e) {
+			return false;
+		}
+
+		if (verbose && Logger.isEnabled(SEVERITY.INFO)) {
+			Logger.log(SEVERITY.INFO, "Board with address " + board.getPwmBoardAddress()
+					+ " still holds its saved configuration, reset skipped.");
+		}
+
+		ShadowRegisters shadowRegisters = new ShadowRegisters();
+		shadowRegisters.restore(ledRegisters, snapshot.getKnownChannels());
+		boardAddressToI2cDeviceMap.put(board.getPwmBoardAddress(), i2cDevice);
+		boardAddressToShadowRegistersMap.put(board.getPwmBoardAddress(), shadowRegisters);
+		return true;
+	}
+
+	/*
+	 * Read back the LEDn registers of the channels known in the snapshot and compare them with the snapshot. With
+	 * auto-increment on the board, all of the registers are read in a single transaction.
+	 */
+	private static boolean ledRegistersMatch(I2CDevice i2cDevice, boolean autoIncrementOn, BoardSnapshot snapshot,
+			byte[] ledRegisters) throws IOException {
+
+		byte[] savedRegisters = snapshot.getLedRegisters();
+		int knownChannels = snapshot.getKnownChannels();
+
+		if (autoIncrementOn) {
+			i2cDevice.read(PCA6985PwmBoard.LED0_ON_L, ledRegisters, 0, ledRegisters.length);
+		}
+
+		for (int channel = 0; channel < 16; channel++) {
+			if ((knownChannels & (1 << channel)) == 0) {
+				continue;
+			}
+			for (int i = 0; i < PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL; i++) {
+				int register = channel * PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL + i;
+				if (!autoIncrementOn) {
+					ledRegisters[register] = (byte) i2cDevice.read(PCA6985PwmBoard.LED0_ON_L + register);
+				}
+				if (ledRegisters[register] != savedRegisters[register]) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/*
+	 * Check that a board is awake with the mode and pre-scale the controller configures.
+	 */
+	private boolean isConfigured(I2CDevice i2cDevice, int preScale) {
+
+		int checkedBits = PCA6985PwmBoard.MODE1_SLEEP | PCA6985PwmBoard.MODE1_AI | PCA6985PwmBoard.MODE1_ALLCALL;
+		try {
+			return (i2cDevice.read(PCA6985PwmBoard.MODE1) & checkedBits) == applyAutoIncrement(0x00)
+					&& i2cDevice.read(PCA6985PwmBoard.PRE_SCALE) == preScale;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * Pre-scale value for the signaling frequency, from the PCA9685 datasheet. Assumes the oscillator clock frequency
+	 * is set to 25 MHz.
+	 */
+	private static int computePreScale(int freq) {
+
+		float prescaleval = 25000000.0f;
+		prescaleval /= (4096.0 * freq);
+		prescaleval -= 1.0;
+		return (int) Math.floor(prescaleval + 0.5);
 	}
 
 	/**
@@ -112,7 +720,7 @@ public class PCA69855Controller {
 	 * @throws IOException
 	 */
 	protected void resetDevice(I2CDevice i2cDevice) throws IOException {
-		i2cDevice.write(PCA6985PwmBoard.MODE1, (byte)0x00);
+		writeRegister(i2cDevice, PCA6985PwmBoard.MODE1, (byte)0x00);
 	}
 
 	/**
@@ -124,31 +732,23 @@ public class PCA69855Controller {
 	 */
 	protected void setPWMFreq(int freq, I2CDevice i2cDevice) throws IOException, InterruptedException
 	{
-		// This prescale equation is taken from the PCA9685 datasheet.
-		// Assumes oscillator clock frequency is set to 25 MHz.
-
-		float prescaleval = 25000000.0f;
-		prescaleval /= (4096.0 * freq);
-		prescaleval -= 1.0;
-		double prescale = Math.floor(prescaleval + 0.5);
+		int prescale = computePreScale(freq);
 
-		if (verbose) {
-			Logger.log(SEVERITY.INFO, "Setting PWM frequency to " + freq + " Hz.", verbose);
-			Logger.log(SEVERITY.INFO, "Calculated pre-scale: " + prescaleval + ".", verbose);
-			Logger.log(SEVERITY.INFO, "Final pre-scale: " + prescale + ".", verbose);
+		if (verbose && Logger.isEnabled(SEVERITY.INFO)) {
+			Logger.log(SEVERITY.INFO, "Setting PWM frequency to " + freq + " Hz.");
+			Logger.log(SEVERITY.INFO, "Pre-scale: " + prescale + ".");
 		}
 
-		byte oldmode = (byte) i2cDevice.read(PCA6985PwmBoard.MODE1);
+		byte oldmode = (byte) applyAutoIncrement(i2cDevice.read(PCA6985PwmBoard.MODE1));
 		byte newmode = (byte) ((oldmode & 0x7F) | 0x10);
-		i2cDevice.write(PCA6985PwmBoard.MODE1, newmode);
-		i2cDevice.write(PCA6985PwmBoard.PRE_SCALE, (byte) prescale);
-		i2cDevice.write(PCA6985PwmBoard.MODE1, oldmode);
+		writeRegister(i2cDevice, PCA6985PwmBoard.MODE1, newmode);
+		writeRegister(i2cDevice, PCA6985PwmBoard.PRE_SCALE, (byte) prescale);
+		writeRegister(i2cDevice, PCA6985PwmBoard.MODE1, oldmode);
 
-		// Sleep according to oscillator wake and run.
-		// 500 microseconds = 0.5 milliseconds.
-		Thread.sleep(1);
+		// Wait for the oscillator to start before restarting the outputs.
+		timeSource.sleep(OSCILLATOR_STARTUP_NANOS);
 
-		i2cDevice.write(PCA6985PwmBoard.MODE1, (byte)(oldmode | 0x80));
+		writeRegister(i2cDevice, PCA6985PwmBoard.MODE1, (byte)(oldmode | 0x80));
 
 	}
 }
@@ -0,0 +1,162 @@
+package com.yarg.animatronics.controller;
+
+import com.yarg.animatronics.datamodel.boards.PCA6985PwmBoard;
+
+/**
+ * Copy of the LEDn registers last written to a board. Channels start out unknown, and a channel only becomes known
+ * once all four of its registers have been written through the controller.
+ */
+class ShadowRegisters {
+
+	private static final int CHANNELS = 16;
+
+	private final byte[] ledRegisters = new byte[CHANNELS * PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL];
+	private final boolean[] knownChannels = new boolean[CHANNELS];
+
+	/**
+	 * Check if the channel is known to hold the on and off values specified.
+	 * @param channel Channel to check.
+	 * @param on On tick value.
+	 * @param off Off tick value.
+	 * @return True if the board already holds the values, false otherwise.
+	 */
+	boolean matches(int channel, int on, int off) {
+		return firstChangedRegister(channel, on, off) == PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL;
+	}
+
+	/**
+	 * Check if a single register of the channel is known to hold the value of the on and off values specified.
+	 * @param channel Channel to check.
+	 * @param register Register offset from 0 to 3.
+	 * @param on On tick value.
+	 * @param off Off tick value.
+	 * @return True if the board already holds the register value, false otherwise.
+	 */
+	boolean registerMatches(int channel, int register, int on, int off) {
+		return knownChannels[channel]
+				&& ledRegisters[channel * PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL + register] == registerValue(register, on, off);
+	}
+
+	/**
+	 * Get the first of the four registers of the channel that differs from the values specified. All four registers
+	 * differ when the channel is unknown.
+	 * @param channel Channel to compare.
+	 * @param on On tick value.
+	 * @param off Off tick value.
+	 * @return Register offset from 0 to 3, or 4 if no register differs.
+	 */
+	int firstChangedRegister(int channel, int on, int off) {
+
+		for (int register = 0; register < PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL; register++) {
+			if (!registerMatches(channel, register, on, off)) {
+				return register;
+			}
+		}
+
+		return PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL;
+	}
+
+	/**
+	 * Get the last of the four registers of the channel that differs from the values specified. All four registers
+	 * differ when the channel is unknown.
+	 * @param channel Channel to compare.
+	 * @param on On tick value.
+	 * @param off Off tick value.
+	 * @return Register offset from 0 to 3, or -1 if no register differs.
+	 */
+	int lastChangedRegister(int channel, int on, int off) {
+
+		for (int register = PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL - 1; register >= 0; register--) {
+			if (!registerMatches(channel, register, on, off)) {
+				return register;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Record the on and off values written to the channel.
+	 * @param channel Channel written.
+	 * @param on On tick value.
+	 * @param off Off tick value.
+	 */
+	void update(int channel, int on, int off) {
+
+		for (int register = 0; register < PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL; register++) {
+			ledRegisters[channel * PCA6985PwmBoard.LED_REGISTERS_PER_CHANNEL + register] = registerValue(register, on, off);
+		}
+
+		knownChannels[channel] = true;
+	}
+
+	/**
+	 * Forget the values of all channels so the next write of every channel goes to the board.
+	 */
+	void invalidate() {
+
+		for (int channel = 0; channel < CHANNELS; channel++) {
+			knownChannels[channel] = false;
+		}
+	}
+
+	/**
+	 * Get the channels whose values are known.
+	 * @return One bit per channel, bit 0 for channel 0.
+	 */
+	int getKnownChannels() {
+
+		int known = 0;
+		for (int channel = 0; channel < CHANNELS; channel++) {
+			if (knownChannels[channel]) {
+				known |= 1 << channel;
+			}
+		}
+
+		return known;
+	}
+
+	/**
+	 * Copy the LEDn register values of every channel, four bytes per channel starting at LED0_ON_L. Only the bytes of
+	 * known channels are meaningful.
+	 * @param registers Array of at least 64 bytes to copy to.
+	 */
+	void copyLedRegisters(byte[] registers) {
+		System.arraycopy(ledRegisters, 0, registers, 0, ledRegisters.length);
+	}
+
+	/**
+	 * Take over LEDn register values that the board is known to hold, for example from a saved configuration.
+	 * Channels not in the known channels become unknown.
+	 * @param registers Register values, four bytes per channel starting at LED0_ON_L.
+	 * @param known Channels whose values are known, one bit per channel.
+	 */
+	void restore(byte[] registers, int known) {
+
+		System.arraycopy(registers, 0, ledRegisters, 0, ledRegisters.length);
+		for (int channel = 0; channel < CHANNELS; channel++) {
+			knownChannels[channel] = (known & (1 << channel)) != 0;
+		}
+	}
+
+	/**
+	 * Get the register byte of the on or off value. Register 0 and 1 are ON_L and ON_H, 2 and 3 are OFF_L and OFF_H.
+	 * @param register Register offset from 0 to 3.
+	 * @param on On tick value.
+	 * @param off Off tick value.
+	 * @return Register byte.
+	 */
+	static byte registerValue(int register, int on, int off) {
+
+		switch (register) {
+		case 0:
+			return (byte) (on & 0xFF);
+		case 1:
+			return (byte) (on >> 8);
+		case 2:
+			return (byte) (off & 0xFF);
+		default:
+			return (byte) (off >> 8);
+		}
+	}
+}
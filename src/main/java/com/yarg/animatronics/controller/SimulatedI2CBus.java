@@ -0,0 +1,339 @@
+package com.yarg.animatronics.controller;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.pi4j.io.i2c.I2CBus;
+import com.pi4j.io.i2c.I2CDevice;
+import com.yarg.animatronics.datamodel.boards.PCA6985PwmBoard;
+
+/**
+ * In-process I2C bus with simulated PCA9685 boards attached, so PCA69855Controller can run without a Raspberry Pi.
+ *
+ * Every transaction is charged the time it takes on a real bus at the clock rate of the bus: nine clocks per byte,
+ * address byte included, plus a clock each for the start, repeated start and stop conditions. The time is always added
+ * to the busy time of the bus. In real time mode the calling thread is also held until the transaction would have
+ * finished, one transaction at a time, so throughput and frame deadlines can be measured against the wall clock.
+ *
+ * Transactions to addresses without a board fail with an IOException, like a transaction that is not acknowledged.
+ * Transactions to the ALLCALL address go to every board that responds to it.
+ */
+public class SimulatedI2CBus implements I2CBus {
+
+	/**
+	 * Standard I2C clock rates.
+	 */
+	public static enum ClockRate {
+		STANDARD(100000),
+		FAST(400000),
+		FAST_PLUS(1000000);
+
+		private final int hertz;
+
+		private ClockRate(int hertz) {
+			this.hertz = hertz;
+		}
+
+		public int getHertz() {
+			return hertz;
+		}
+	}
+
+	/**
+	 * Power-on ALLCALL address of the PCA9685.
+	 */
+	public static final int DEFAULT_ALL_CALL_ADDRESS = PCA6985PwmBoard.ALLCALL_ADDRESS;
+
+	// Threads are parked until this close to the end of a transaction, then spin.
+	private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	private final int busNumber;
+	private final ClockRate clockRate;
+	private final LinkedHashMap<Integer, SimulatedPca9685> addressToDeviceMap = new LinkedHashMap<>();
+
+	private volatile boolean realTime;
+	private long busyNanos;
+	private long transactions;
+	private long bytes;
+
+	/**
+	 * Create a bus without any boards.
+	 * @param busNumber Bus number reported by getBusNumber.
+	 * @param clockRate Clock rate transactions are charged at.
+	 */
+	public SimulatedI2CBus(int busNumber, ClockRate clockRate) {
+		this.busNumber = busNumber;
+		this.clockRate = clockRate;
+	}
+
+	/**
+	 * Attach a simulated board at the address specified.
+	 * @param address Seven bit I2C address of the board.
+	 * @return Board attached.
+	 */
+	public synchronized SimulatedPca9685 addDevice(int address) {
+
+		if (addressToDeviceMap.containsKey(address)) {
+			throw new IllegalArgumentException("A device is already attached at address " + address + ".");
+		}
+
+		SimulatedPca9685 device = new SimulatedPca9685(this, address);
+		addressToDeviceMap.put(address, device);
+		return device;
+	}
+
+	/**
+	 * Get the simulated board at the address specified.
+	 * @param address Seven bit I2C address of the board.
+	 * @return Board attached at the address, or null if there isn't one.
+	 */
+	public synchronized SimulatedPca9685 getSimulatedDevice(int address) {
+		return addressToDeviceMap.get(address);
+	}
+
+	/**
+	 * Get the clock rate transactions are charged at.
+	 * @return Clock rate of the bus.
+	 */
+	public ClockRate getClockRate() {
+		return clockRate;
+	}
+
+	/**
+	 * Check if transactions hold the calling thread for the time they take on a real bus.
+	 * @return True if transactions run in real time, false if their time is only accounted.
+	 */
+	public boolean isRealTime() {
+		return realTime;
+	}
+
+	/**
+	 * Set if transactions hold the calling thread for the time they take on a real bus. Defaults to false, where the
+	 * time is only added to the busy time of the bus.
+	 * @param realTime True to run transactions in real time, false to only account their time.
+	 */
+	public void setRealTime(boolean realTime) {
+		this.realTime = realTime;
+	}
+
+	/**
+	 * Get the time the bus has spent on transactions since it was created or the counters were reset.
+	 * @return Busy time in nanoseconds.
+	 */
+	public synchronized long getBusyNanos() {
+		return busyNanos;
+	}
+
+	/**
+	 * Get the number of transactions since the bus was created or the counters were reset.
+	 * @return Number of transactions.
+	 */
+	public synchronized long getTransactions() {
+		return transactions;
+	}
+
+	/**
+	 * Get the number of bytes sent over the bus, address bytes included, since the bus was created or the counters
+	 * were reset.
+	 * @return Number of bytes.
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Reset the busy time, transaction and byte counters.
+	 */
+	public synchronized void resetCounters() {
+		busyNanos = 0L;
+		transactions = 0L;
+		bytes = 0L;
+	}
+
+	/**
+	 * Get the time a transaction of the size specified takes on the bus.
+	 * @param transactionBytes Number of bytes, address bytes included.
+	 * @param conditions Number of start, repeated start and stop conditions.
+	 * @return Transaction time in nanoseconds.
+	 */
+	public long getTransactionNanos(int transactionBytes, int conditions) {
+		long clocks = transactionBytes * 9L + conditions;
+		return clocks * TimeUnit.SECONDS.toNanos(1) / clockRate.getHertz();
+	}
+
+	@Override
+	public synchronized I2CDevice getDevice(int address) throws IOException {
+
+		SimulatedPca9685 device = addressToDeviceMap.get(address);
+		if (device != null) {
+			return device;
+		}
+
+		return new BroadcastDevice(address);
+	}
+
+	@Override
+	public int getBusNumber() {
+		return busNumber;
+	}
+
+	@Override
+	public void close() throws IOException {
+	}
+
+	/*
+	 * Charge a write transaction of the number of bytes specified after the address byte.
+	 */
+	void chargeWrite(int size) {
+		charge(1 + size, 2);
+	}
+
+	/*
+	 * Charge a read transaction, with a write of the number of bytes specified before the read if it is not 0.
+	 */
+	void chargeRead(int writeSize, int readSize) {
+
+		if (writeSize > 0) {
+			charge(1 + writeSize + 1 + readSize, 3);
+		} else {
+			charge(1 + readSize, 2);
+		}
+	}
+
+	/*
+	 * Account the transaction and, in real time mode, hold the calling thread until it would have finished. Holding
+	 * the lock while waiting keeps transactions of different threads from overlapping, as they can't on a real bus.
+	 */
+	private synchronized void charge(int transactionBytes, int conditions) {
+
+		long nanos = getTransactionNanos(transactionBytes, conditions);
+		busyNanos += nanos;
+		transactions++;
+		bytes += transactionBytes;
+
+		if (realTime) {
+			long deadline = System.nanoTime() + nanos;
+			long remaining;
+			while ((remaining = deadline - System.nanoTime()) > 0) {
+				if (remaining > SPIN_NANOS) {
+					LockSupport.parkNanos(remaining - SPIN_NANOS);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Device at an address without a board of its own. Writes go to every board that responds to the address as its
+	 * ALLCALL address. Reads, and writes nobody responds to, fail as if they were not acknowledged.
+	 */
+	private class BroadcastDevice implements I2CDevice {
+
+		private final int address;
+
+		BroadcastDevice(int address) {
+			this.address = address;
+		}
+
+		@Override
+		public int getAddress() {
+			return address;
+		}
+
+		@Override
+		public void write(byte b) throws IOException {
+			write(new byte[] {b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] buffer, int offset, int size) throws IOException {
+
+			List<SimulatedPca9685> devices = getResponders();
+			chargeWrite(size);
+			if (size > 0) {
+				for (SimulatedPca9685 device : devices) {
+					device.storeRegisters(buffer[offset] & 0xFF, buffer, offset + 1, size - 1);
+				}
+			}
+		}
+
+		@Override
+		public void write(byte[] buffer) throws IOException {
+			write(buffer, 0, buffer.length);
+		}
+
+		@Override
+		public void write(int register, byte b) throws IOException {
+			write(register, new byte[] {b}, 0, 1);
+		}
+
+		@Override
+		public void write(int register, byte[] buffer, int offset, int size) throws IOException {
+
+			List<SimulatedPca9685> devices = getResponders();
+			chargeWrite(size + 1);
+			for (SimulatedPca9685 device : devices) {
+				device.storeRegisters(register, buffer, offset, size);
+			}
+		}
+
+		@Override
+		public void write(int register, byte[] buffer) throws IOException {
+			write(register, buffer, 0, buffer.length);
+		}
+
+		@Override
+		public int read() throws IOException {
+			throw notAcknowledged();
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int size) throws IOException {
+			throw notAcknowledged();
+		}
+
+		@Override
+		public int read(int register) throws IOException {
+			throw notAcknowledged();
+		}
+
+		@Override
+		public int read(int register, byte[] buffer, int offset, int size) throws IOException {
+			throw notAcknowledged();
+		}
+
+		@Override
+		public int read(byte[] writeBuffer, int writeOffset, int writeSize, byte[] readBuffer, int readOffset,
+				int readSize) throws IOException {
+			throw notAcknowledged();
+		}
+
+		private List<SimulatedPca9685> getResponders() throws IOException {
+
+			List<SimulatedPca9685> devices = new ArrayList<>();
+			synchronized (SimulatedI2CBus.this) {
+				for (SimulatedPca9685 device : addressToDeviceMap.values()) {
+					if (device.respondsToAllCall(address)) {
+						devices.add(device);
+					}
+				}
+			}
+
+			if (devices.isEmpty()) {
+				throw notAcknowledged();
+			}
+
+			return devices;
+		}
+
+		private IOException notAcknowledged() {
+
+			// Charge the address byte that went unacknowledged.
+			charge(1, 2);
+			return new IOException("No device acknowledged address " + address + " on bus " + busNumber + ".");
+		}
+	}
+}
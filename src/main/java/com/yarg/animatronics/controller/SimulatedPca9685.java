@@ -0,0 +1,281 @@
+package com.yarg.animatronics.controller;
+
+import java.io.IOException;
+
+import com.pi4j.io.i2c.I2CDevice;
+import com.yarg.animatronics.datamodel.boards.PCA6985PwmBoard;
+
+/**
+ * Register file of a PCA9685 on a SimulatedI2CBus. Follows the datasheet where the controller depends on it:
+ * power-on register values, the MODE1 auto-increment bit, auto-increment rolling over from LED15_OFF_H to MODE1, the
+ * ALL_LED registers loading every channel, and PRE_SCALE writes being blocked unless the oscillator is asleep.
+ *
+ * Every transaction charges bus time on the bus the device is attached to. The register values can be inspected at
+ * any time to verify what the controller wrote.
+ */
+public class SimulatedPca9685 implements I2CDevice {
+
+	private static final int REGISTERS = 256;
+	private static final int LAST_LED_REGISTER = PCA6985PwmBoard.LED15_OFF_H;
+	private static final int NUMBER_OF_CHANNELS = 16;
+
+	// Lowest pre-scale value the hardware accepts, lower values are raised to it.
+	private static final int MIN_PRE_SCALE = 3;
+	private static final double OSCILLATOR_HERTZ = 25000000.0;
+
+	private final SimulatedI2CBus bus;
+	private final int address;
+	private final byte[] registers = new byte[REGISTERS];
+
+	// Register pointer set by the last transaction, used by reads and writes without a register address.
+	private int pointer;
+	private long transactions;
+
+	SimulatedPca9685(SimulatedI2CBus bus, int address) {
+		this.bus = bus;
+		this.address = address;
+		powerOn();
+	}
+
+	/**
+	 * Put every register back to its power-on value.
+	 */
+	public synchronized void powerOn() {
+
+		for (int register = 0; register < REGISTERS; register++) {
+			registers[register] = 0;
+		}
+
+		registers[PCA6985PwmBoard.MODE1] = (byte) (PCA6985PwmBoard.MODE1_SLEEP | PCA6985PwmBoard.MODE1_ALLCALL);
+		registers[PCA6985PwmBoard.MODE2] = 0x04;
+		registers[PCA6985PwmBoard.SUBADR1] = (byte) 0xE2;
+		registers[PCA6985PwmBoard.SUBADR2] = (byte) 0xE4;
+		registers[PCA6985PwmBoard.SUBADR3] = (byte) 0xE8;
+		registers[PCA6985PwmBoard.ALLCALLADR] = (byte) (SimulatedI2CBus.DEFAULT_ALL_CALL_ADDRESS << 1);
+		registers[PCA6985PwmBoard.PRE_SCALE] = 0x1E;
+
+		// Every channel starts fully off.
+		for (int channel = 0; channel < NUMBER_OF_CHANNELS; channel++) {
+			registers[PCA6985PwmBoard.LED0_OFF_H + 4 * channel] = 0x10;
+		}
+
+		pointer = 0;
+	}
+
+	/**
+	 * Get the value of a register.
+	 * @param register Register address.
+	 * @return Register value, from 0 to 255.
+	 */
+	public synchronized int getRegister(int register) {
+		return registers[register] & 0xFF;
+	}
+
+	/**
+	 * Get the tick at which the signal of a channel turns on.
+	 * @param channel Channel, from 0 to 15.
+	 * @return On tick, from 0 to 4095, plus 4096 if the full on bit is set.
+	 */
+	public synchronized int getOnTick(int channel) {
+		return getTick(PCA6985PwmBoard.LED0_ON_L + 4 * channel);
+	}
+
+	/**
+	 * Get the tick at which the signal of a channel turns off.
+	 * @param channel Channel, from 0 to 15.
+	 * @return Off tick, from 0 to 4095, plus 4096 if the full off bit is set.
+	 */
+	public synchronized int getOffTick(int channel) {
+		return getTick(PCA6985PwmBoard.LED0_OFF_L + 4 * channel);
+	}
+
+	/**
+	 * Check if the oscillator is off (MODE1 SLEEP bit).
+	 * @return True if the device is asleep, false if it is running.
+	 */
+	public synchronized boolean isSleeping() {
+		return (registers[PCA6985PwmBoard.MODE1] & PCA6985PwmBoard.MODE1_SLEEP) != 0;
+	}
+
+	/**
+	 * Get the PWM output frequency set by the pre-scale register, assuming the internal 25 MHz oscillator.
+	 * @return Output frequency in hertz.
+	 */
+	public synchronized double getOutputFrequency() {
+		return OSCILLATOR_HERTZ / (4096.0 * (getRegister(PCA6985PwmBoard.PRE_SCALE) + 1));
+	}
+
+	/**
+	 * Get the number of transactions addressed to the device, including ALLCALL transactions.
+	 * @return Number of transactions.
+	 */
+	public synchronized long getTransactions() {
+		return transactions;
+	}
+
+	/**
+	 * Check if the device responds to the address specified as its ALLCALL address.
+	 * @param allCallAddress Seven bit I2C address.
+	 * @return True if ALLCALL is enabled in MODE1 and the ALLCALLADR register holds the address.
+	 */
+	synchronized boolean respondsToAllCall(int allCallAddress) {
+		return (registers[PCA6985PwmBoard.MODE1] & PCA6985PwmBoard.MODE1_ALLCALL) != 0
+				&& getRegister(PCA6985PwmBoard.ALLCALLADR) >>> 1 == allCallAddress;
+	}
+
+	@Override
+	public int getAddress() {
+		return address;
+	}
+
+	@Override
+	public void write(byte b) throws IOException {
+		write(new byte[] {b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] buffer, int offset, int size) throws IOException {
+
+		bus.chargeWrite(size);
+		if (size > 0) {
+			storeRegisters(buffer[offset] & 0xFF, buffer, offset + 1, size - 1);
+		}
+	}
+
+	@Override
+	public void write(byte[] buffer) throws IOException {
+		write(buffer, 0, buffer.length);
+	}
+
+	@Override
+	public void write(int address, byte b) throws IOException {
+		write(address, new byte[] {b}, 0, 1);
+	}
+
+	@Override
+	public void write(int address, byte[] buffer, int offset, int size) throws IOException {
+		bus.chargeWrite(size + 1);
+		storeRegisters(address, buffer, offset, size);
+	}
+
+	@Override
+	public void write(int address, byte[] buffer) throws IOException {
+		write(address, buffer, 0, buffer.length);
+	}
+
+	@Override
+	public int read() throws IOException {
+
+		bus.chargeRead(0, 1);
+		byte[] value = new byte[1];
+		loadRegisters(-1, value, 0, 1);
+		return value[0] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int size) throws IOException {
+		bus.chargeRead(0, size);
+		return loadRegisters(-1, buffer, offset, size);
+	}
+
+	@Override
+	public int read(int address) throws IOException {
+
+		bus.chargeRead(1, 1);
+		byte[] value = new byte[1];
+		loadRegisters(address, value, 0, 1);
+		return value[0] & 0xFF;
+	}
+
+	@Override
+	public int read(int address, byte[] buffer, int offset, int size) throws IOException {
+		bus.chargeRead(1, size);
+		return loadRegisters(address, buffer, offset, size);
+	}
+
+	@Override
+	public int read(byte[] writeBuffer, int writeOffset, int writeSize, byte[] readBuffer, int readOffset,
+			int readSize) throws IOException {
+
+		bus.chargeRead(writeSize, readSize);
+		if (writeSize > 0) {
+			storeRegisters(writeBuffer[writeOffset] & 0xFF, writeBuffer, writeOffset + 1, writeSize - 1);
+		}
+		return loadRegisters(-1, readBuffer, readOffset, readSize);
+	}
+
+	/*
+	 * Write bytes starting at the register specified, advancing the register pointer if auto-increment is enabled.
+	 */
+	synchronized void storeRegisters(int register, byte[] buffer, int offset, int size) {
+
+		transactions++;
+		pointer = register & 0xFF;
+
+		for (int i = 0; i < size; i++) {
+			storeRegister(pointer, buffer[offset + i]);
+			if (autoIncrement()) {
+				pointer = nextRegister(pointer);
+			}
+		}
+	}
+
+	/*
+	 * Read bytes starting at the register specified, or at the register pointer if the register is negative.
+	 */
+	private synchronized int loadRegisters(int register, byte[] buffer, int offset, int size) {
+
+		transactions++;
+		if (register >= 0) {
+			pointer = register & 0xFF;
+		}
+
+		for (int i = 0; i < size; i++) {
+			buffer[offset + i] = pointer >= PCA6985PwmBoard.ALL_LED_ON_L && pointer <= PCA6985PwmBoard.ALL_LED_OFF_H
+					? 0 : registers[pointer];
+			if (autoIncrement()) {
+				pointer = nextRegister(pointer);
+			}
+		}
+
+		return size;
+	}
+
+	private void storeRegister(int register, byte value) {
+
+		if (register == PCA6985PwmBoard.MODE1) {
+			// Writing a one to RESTART clears it.
+			registers[register] = (byte) (value & ~PCA6985PwmBoard.MODE1_RESTART);
+		} else if (register == PCA6985PwmBoard.PRE_SCALE) {
+			if (isSleeping()) {
+				registers[register] = (byte) Math.max(value & 0xFF, MIN_PRE_SCALE);
+			}
+		} else if (register >= PCA6985PwmBoard.ALL_LED_ON_L && register <= PCA6985PwmBoard.ALL_LED_OFF_H) {
+			int ledRegister = register - PCA6985PwmBoard.ALL_LED_ON_L;
+			for (int channel = 0; channel < NUMBER_OF_CHANNELS; channel++) {
+				registers[PCA6985PwmBoard.LED0_ON_L + 4 * channel + ledRegister] = value;
+			}
+		} else if (register <= LAST_LED_REGISTER || register == PCA6985PwmBoard.TEST_MODE) {
+			registers[register] = value;
+		}
+
+		// Registers 0x46 to 0xF9 are reserved, writes to them are ignored.
+	}
+
+	private boolean autoIncrement() {
+		return (registers[PCA6985PwmBoard.MODE1] & PCA6985PwmBoard.MODE1_AI) != 0;
+	}
+
+	private static int nextRegister(int register) {
+
+		if (register == LAST_LED_REGISTER || register == PCA6985PwmBoard.TEST_MODE) {
+			return PCA6985PwmBoard.MODE1;
+		}
+
+		return register + 1;
+	}
+
+	private int getTick(int lowRegister) {
+		return (registers[lowRegister] & 0xFF) | (registers[lowRegister + 1] & 0x1F) << 8;
+	}
+}
@@ -0,0 +1,94 @@
+package com.yarg.animatronics.datamodel;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Playback position within the animation keys of a motor. Each player keeps its own cursor. Moving forward in time
+ * steps through the keys one at a time, so forward playback costs amortized O(1) per lookup. Moving backwards or
+ * jumping far ahead falls back to a binary search.
+ */
+public class AnimationCursor {
+
+	// Number of keys to step forward before falling back to a binary search.
+	private static final int MAX_LINEAR_STEPS = 4;
+
+	private final PwmMotor motor;
+	private int keyIndex = -1;
+
+	/**
+	 * Create a cursor positioned before the first animation key of the motor.
+	 * @param motor Motor to read animation keys from.
+	 */
+	public AnimationCursor(PwmMotor motor) {
+		this.motor = motor;
+	}
+
+	/**
+	 * Get the motor this cursor reads animation keys from.
+	 * @return Motor this cursor reads animation keys from.
+	 */
+	public PwmMotor getMotor() {
+		return motor;
+	}
+
+	/**
+	 * Move the cursor to the animation key in effect at the time specified, which is the last key at or before that
+	 * time.
+	 * @param time Time, in milliseconds, from the start of the animation.
+	 * @return Index of the last key at or before the time, or -1 if there aren't any keys at or before the time.
+	 */
+	public int seek(long time) {
+
+		int lastIndex = motor.getLastAnimationKeyIndex();
+
+		if (keyIndex > lastIndex || (keyIndex >= 0 && motor.getTimeAtIndex(keyIndex) > time)) {
+			keyIndex = motor.getKeyIndexAtTime(time);
+			return keyIndex;
+		}
+
+		for (int step = 0; step < MAX_LINEAR_STEPS; step++) {
+			if (keyIndex == lastIndex || motor.getTimeAtIndex(keyIndex + 1) > time) {
+				return keyIndex;
+			}
+			keyIndex++;
+		}
+
+		keyIndex = motor.getKeyIndexAtTime(time, keyIndex, lastIndex);
+		return keyIndex;
+	}
+
+	/**
+	 * Move the cursor to the time specified and get the tick value at that time, interpolated between the surrounding
+	 * animation keys with the interpolation mode of the motor.
+	 * @param time Time, in milliseconds, from the start of the animation.
+	 * @return Tick value at the time specified.
+	 * @throws IndexOutOfBoundsException If there aren't any animation keys.
+	 */
+	public int getTickAtTime(long time) {
+		return motor.interpolateTick(seek(time), time);
+	}
+
+	/**
+	 * Move the cursor back before the first animation key.
+	 */
+	public void reset() {
+		keyIndex = -1;
+	}
+}
@@ -0,0 +1,78 @@
+package com.yarg.animatronics.datamodel;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * Outcome of decimating the animation keys of a motor. See PwmMotor.decimate(int).
+ */
+public class DecimationResult {
+
+	private final int keysRemoved;
+	private final int keysKept;
+	private final int maxError;
+
+	/**
+	 * Create a decimation result.
+	 * @param keysRemoved Number of keys removed.
+	 * @param keysKept Number of keys left.
+	 * @param maxError Largest difference, in ticks, between a removed key and the curve that replaced it.
+	 */
+	public DecimationResult(int keysRemoved, int keysKept, int maxError) {
+		this.keysRemoved = keysRemoved;
+		this.keysKept = keysKept;
+		this.maxError = maxError;
+	}
+
+	/**
+	 * Get the number of keys removed.
+	 * @return Number of keys removed.
+	 */
+	public int getKeysRemoved() {
+		return keysRemoved;
+	}
+
+	/**
+	 * Get the number of keys left after decimation.
+	 * @return Number of keys left.
+	 */
+	public int getKeysKept() {
+		return keysKept;
+	}
+
+	/**
+	 * Get the largest difference between the tick of a removed key and the tick interpolated between the keys kept
+	 * around it.
+	 * @return Largest error in ticks, 0 if no keys were removed.
+	 */
+	public int getMaxError() {
+		return maxError;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this)
+				.append("Keys Removed", keysRemoved)
+				.append("Keys Kept", keysKept)
+				.append("Max Error", maxError)
+				.toString();
+	}
+}
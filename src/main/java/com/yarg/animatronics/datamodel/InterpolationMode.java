@@ -0,0 +1,124 @@
+package com.yarg.animatronics.datamodel;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * How a motor moves between two animation keys. Every mode other than LINEAR is a cubic polynomial per segment,
+ * a + u * (b + u * (c + u * d)) where u runs from 0 at the start key to 1 at the end key. The four coefficients are
+ * computed once when the keys change, so evaluating a curve costs three multiply-adds whatever the mode.
+ *
+ * The ordinal of a mode is stored in show files, so new modes must be added at the end.
+ */
+public enum InterpolationMode {
+
+	/** Straight line between keys. */
+	LINEAR,
+
+	/** Catmull-Rom spline through the keys, so the motor passes every key without stopping. */
+	CATMULL_ROM,
+
+	/** Start slow and speed up towards the end key. */
+	EASE_IN,
+
+	/** Start fast and slow down into the end key. */
+	EASE_OUT,
+
+	/** Start slow, speed up and slow down into the end key. */
+	EASE_IN_OUT;
+
+	/**
+	 * Number of coefficients of a segment.
+	 */
+	public static final int COEFFICIENTS_PER_SEGMENT = 4;
+
+	/**
+	 * Compute the coefficients of the segment from the start key to the end key. The keys before the start key and
+	 * after the end key are only used by CATMULL_ROM. At the first and last segments pass the start key as the
+	 * previous key and the end key as the next key.
+	 * @param previousTime Time of the key before the start key.
+	 * @param previousTick Tick of the key before the start key.
+	 * @param startTime Time of the start key.
+	 * @param startTick Tick of the start key.
+	 * @param endTime Time of the end key.
+	 * @param endTick Tick of the end key.
+	 * @param nextTime Time of the key after the end key.
+	 * @param nextTick Tick of the key after the end key.
+	 * @param coefficients Array to store the coefficients a, b, c and d in.
+	 * @param offset Index of coefficient a in the array.
+	 */
+	public void computeSegment(long previousTime, int previousTick, long startTime, int startTick, long endTime,
+			int endTick, long nextTime, int nextTick, double[] coefficients, int offset) {
+
+		double delta = endTick - startTick;
+		double a = startTick;
+		double b;
+		double c;
+		double d;
+
+		switch (this) {
+		case CATMULL_ROM:
+			// Hermite segment with the tangent at each key parallel to the line between its neighbors.
+			double duration = endTime - startTime;
+			double startTangent = (endTick - previousTick) * duration / (endTime - previousTime);
+			double endTangent = (nextTick - startTick) * duration / (nextTime - startTime);
+			b = startTangent;
+			c = 3.0 * delta - 2.0 * startTangent - endTangent;
+			d = -2.0 * delta + startTangent + endTangent;
+			break;
+		case EASE_IN:
+			b = 0.0;
+			c = delta;
+			d = 0.0;
+			break;
+		case EASE_OUT:
+			b = 2.0 * delta;
+			c = -delta;
+			d = 0.0;
+			break;
+		case EASE_IN_OUT:
+			b = 0.0;
+			c = 3.0 * delta;
+			d = -2.0 * delta;
+			break;
+		default:
+			b = delta;
+			c = 0.0;
+			d = 0.0;
+			break;
+		}
+
+		coefficients[offset] = a;
+		coefficients[offset + 1] = b;
+		coefficients[offset + 2] = c;
+		coefficients[offset + 3] = d;
+	}
+
+	/**
+	 * Evaluate a segment.
+	 * @param coefficients Array holding the coefficients of the segment.
+	 * @param offset Index of coefficient a in the array.
+	 * @param u Position in the segment, from 0 at the start key to 1 at the end key.
+	 * @return Tick value, not rounded.
+	 */
+	public static double evaluate(double[] coefficients, int offset, double u) {
+		return coefficients[offset] + u * (coefficients[offset + 1]
+				+ u * (coefficients[offset + 2] + u * coefficients[offset + 3]));
+	}
+}
@@ -0,0 +1,239 @@
+package com.yarg.animatronics.datamodel;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Tick and angle limits of a motor, captured once so conversions between ticks and angles only touch final fields.
+ * Immutable.
+ *
+ * Conversions keep the arithmetic of the original motor conversions, in the same order, so they give the same results
+ * down to the last bit. Optionally an angle to tick lookup table trades a little precision for skipping the division.
+ */
+public final class MotorCalibration {
+
+	private final int minTick;
+	private final int maxTick;
+	private final double minAngle;
+	private final double maxAngle;
+	private final int tickDelta;
+	private final double angleDelta;
+
+	// Angle to tick lookup table, null when angles are converted exactly.
+	private final int[] angleTicks;
+	private final double angleResolution;
+	private final double angleTableScale;
+
+	/**
+	 * Create a calibration without a lookup table.
+	 * @param minTick Minimum tick value to achieve minimum rotation.
+	 * @param maxTick Maximum tick value to achieve maximum rotation.
+	 * @param minAngle Minimum rotation angle.
+	 * @param maxAngle Maximum rotation angle.
+	 */
+	public MotorCalibration(int minTick, int maxTick, double minAngle, double maxAngle) {
+		this(minTick, maxTick, minAngle, maxAngle, 0.0);
+	}
+
+	private MotorCalibration(int minTick, int maxTick, double minAngle, double maxAngle, double angleResolution) {
+
+		this.minTick = minTick;
+		this.maxTick = maxTick;
+		this.minAngle = minAngle;
+		this.maxAngle = maxAngle;
+		this.tickDelta = maxTick - minTick;
+		this.angleDelta = maxAngle - minAngle;
+		this.angleResolution = angleResolution;
+
+		if (angleResolution > 0.0) {
+			int entries = (int) Math.ceil(angleDelta / angleResolution) + 1;
+			angleTicks = new int[entries];
+			for (int i = 0; i < entries; i++) {
+				angleTicks[i] = convertAngleToTicks(Math.min(minAngle + i * angleResolution, maxAngle));
+			}
+			angleTableScale = 1.0 / angleResolution;
+		} else {
+			angleTicks = null;
+			angleTableScale = 0.0;
+		}
+	}
+
+	/**
+	 * Capture the limits of a motor.
+	 * @param motor Motor to capture the limits of.
+	 * @return Calibration of the motor, without a lookup table.
+	 */
+	public static MotorCalibration of(PwmMotor motor) {
+		return new MotorCalibration(motor.getMinTick(), motor.getMaxTick(), motor.getMinAngle(), motor.getMaxAngle());
+	}
+
+	/**
+	 * Create a calibration with the same limits that converts angles to ticks through a lookup table. Angles are
+	 * rounded to the nearest multiple of the resolution from the minimum angle before they are looked up, so the tick
+	 * may be off by the number of ticks one resolution step covers.
+	 * @param resolution Angle step of the table, in degrees, or 0 to convert exactly without a table.
+	 * @return Calibration with the lookup table.
+	 */
+	public MotorCalibration withAngleLookup(double resolution) {
+
+		if (resolution < 0.0 || Double.isNaN(resolution)) {
+			throw new IllegalArgumentException("Resolution must not be negative.");
+		}
+
+		if (resolution > 0.0 && angleDelta / resolution > Integer.MAX_VALUE - 1) {
+			throw new IllegalArgumentException("Resolution is too fine for the angle range.");
+		}
+
+		return new MotorCalibration(minTick, maxTick, minAngle, maxAngle, resolution);
+	}
+
+	/**
+	 * Get the minimum tick value to achieve minimum rotation.
+	 * @return Minimum tick value.
+	 */
+	public int getMinTick() {
+		return minTick;
+	}
+
+	/**
+	 * Get the maximum tick value to achieve maximum rotation.
+	 * @return Maximum tick value.
+	 */
+	public int getMaxTick() {
+		return maxTick;
+	}
+
+	/**
+	 * Get the minimum rotation angle.
+	 * @return Minimum rotation angle.
+	 */
+	public double getMinAngle() {
+		return minAngle;
+	}
+
+	/**
+	 * Get the maximum rotation angle.
+	 * @return Maximum rotation angle.
+	 */
+	public double getMaxAngle() {
+		return maxAngle;
+	}
+
+	/**
+	 * Get the angle step of the lookup table.
+	 * @return Angle step, in degrees, or 0 if there is no lookup table.
+	 */
+	public double getAngleResolution() {
+		return angleResolution;
+	}
+
+	/**
+	 * Clamp a tick value to the limits.
+	 * @param tick Tick value to clamp.
+	 * @return Tick value between the minimum and maximum tick.
+	 */
+	public int clampTick(int tick) {
+
+		if (tick > maxTick) {
+			return maxTick;
+		} else if (tick < minTick) {
+			return minTick;
+		}
+
+		return tick;
+	}
+
+	/**
+	 * Clamp an angle to the limits.
+	 * @param angle Angle to clamp.
+	 * @return Angle between the minimum and maximum angle.
+	 */
+	public double clampAngle(double angle) {
+
+		if (angle > maxAngle) {
+			return maxAngle;
+		} else if (angle < minAngle) {
+			return minAngle;
+		}
+
+		return angle;
+	}
+
+	/**
+	 * Convert an angle to ticks, through the lookup table if there is one. Angles outside the limits are clamped when
+	 * the lookup table is used and extrapolated otherwise.
+	 * @param angle Angle to convert.
+	 * @return Angle converted to ticks.
+	 */
+	public int angleToTicks(double angle) {
+
+		if (angleTicks != null) {
+			return angleTicks[(int) ((clampAngle(angle) - minAngle) * angleTableScale + 0.5)];
+		}
+
+		return convertAngleToTicks(angle);
+	}
+
+	/**
+	 * Convert ticks to an angle.
+	 * @param ticks Ticks to convert.
+	 * @return Ticks converted to degrees.
+	 */
+	public double ticksToAngle(int ticks) {
+
+		int fromMinTickDelta = ticks - minTick;
+		return fromMinTickDelta * angleDelta / tickDelta + minAngle;
+	}
+
+	/**
+	 * Clamp and convert a run of angles to ticks.
+	 * @param angles Angles to convert.
+	 * @param angleOffset Index of the first angle to convert.
+	 * @param ticks Array to store the ticks in.
+	 * @param tickOffset Index to store the first tick at.
+	 * @param length Number of angles to convert.
+	 */
+	public void anglesToTicks(double[] angles, int angleOffset, int[] ticks, int tickOffset, int length) {
+
+		for (int i = 0; i < length; i++) {
+			ticks[tickOffset + i] = angleToTicks(clampAngle(angles[angleOffset + i]));
+		}
+	}
+
+	/**
+	 * Convert a run of ticks to angles.
+	 * @param ticks Ticks to convert.
+	 * @param tickOffset Index of the first tick to convert.
+	 * @param angles Array to store the angles in.
+	 * @param angleOffset Index to store the first angle at.
+	 * @param length Number of ticks to convert.
+	 */
+	public void ticksToAngles(int[] ticks, int tickOffset, double[] angles, int angleOffset, int length) {
+
+		for (int i = 0; i < length; i++) {
+			angles[angleOffset + i] = ticksToAngle(ticks[tickOffset + i]);
+		}
+	}
+
+	private int convertAngleToTicks(double angle) {
+
+		double fromMinAngleDelta = angle - minAngle;
+		return (int) (tickDelta * fromMinAngleDelta / angleDelta + minTick);
+	}
+}
@@ -20,6 +20,7 @@ package com.yarg.animatronics.datamodel;
  */
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
@@ -28,8 +29,21 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 
 public abstract class PwmBoard {
 
+	/**
+	 * I2C bus number boards are connected to unless set otherwise.
+	 */
+	public static final int DEFAULT_I2C_BUS_NUMBER = 1;
+
 	protected ArrayList<PwmMotor> motors = new ArrayList<>();
+	private final List<PwmMotor> attachedMotors = Collections.unmodifiableList(motors);
+
+	// Motor on each channel, channel 1 at index 0. Built on first use, as subclasses may only know their number of
+	// channels once constructed, and rebuilt when motors were added to the list directly.
+	private PwmMotor[] channelMotors;
+	private int indexedMotors;
+
 	private int pwmBoardAddress;
+	private int i2cBusNumber = DEFAULT_I2C_BUS_NUMBER;
 
 	/**
 	 * Get the signaling frequency of the board.
@@ -60,13 +74,79 @@ public abstract class PwmBoard {
 	}
 
 	/**
-	 * Get a copy of all of the attached motors.
-	 * @return Copy of all of the attached motors.
+	 * Get the number of the I2C bus the board is connected to.
+	 * @return The I2C bus number of the board.
+	 */
+	public int getI2cBusNumber() {
+		return i2cBusNumber;
+	}
+
+	/**
+	 * Set the number of the I2C bus the board is connected to. Defaults to DEFAULT_I2C_BUS_NUMBER.
+	 * @param i2cBusNumber The I2C bus number of the board.
+	 */
+	public void setI2cBusNumber(int i2cBusNumber) {
+		this.i2cBusNumber = i2cBusNumber;
+	}
+
+	/**
+	 * Get all of the attached motors, in the order they were added. The list is a live read-only view, not a copy: it
+	 * follows motors added later, and getting it does not allocate. Copy the list to keep the motors of a moment.
+	 * @return Read-only view of all of the attached motors.
 	 */
 	public List<PwmMotor> getAttachedMotors() {
-		ArrayList<PwmMotor> motorsCopy = new ArrayList<>();
-		motorsCopy.addAll(motors);
-		return motorsCopy;
+		return attachedMotors;
+	}
+
+	/**
+	 * Get the time of the last animation key of all motors attached to the boards, which is the duration of the
+	 * animation they play.
+	 * @param boards Boards to check.
+	 * @return Time of the last animation key in milliseconds, or 0 if no motor has animation keys.
+	 */
+	public static long getLastKeyTime(List<PwmBoard> boards) {
+
+		long lastKeyTime = 0L;
+		for (PwmBoard board : boards) {
+			for (PwmMotor motor : board.getAttachedMotors()) {
+				if (motor.getNumberOfKeys() > 0) {
+					lastKeyTime = Math.max(lastKeyTime, motor.getTimeAtIndex(motor.getLastAnimationKeyIndex()));
+				}
+			}
+		}
+
+		return lastKeyTime;
+	}
+
+	/**
+	 * Get the number of attached motors.
+	 * @return Number of attached motors.
+	 */
+	public int getNumberOfAttachedMotors() {
+		return motors.size();
+	}
+
+	/**
+	 * Get an attached motor by the order it was added in, to iterate over the motors without an iterator.
+	 * @param index Index of the motor, from 0 to getNumberOfAttachedMotors() - 1.
+	 * @return Attached motor.
+	 */
+	public PwmMotor getAttachedMotor(int index) {
+		return motors.get(index);
+	}
+
+	/**
+	 * Get the motor attached to a channel. Motors can't change channel once attached, so the lookup never goes stale.
+	 * @param channel PWM channel, from 1 to the number of channels of the board.
+	 * @return Motor attached to the channel, or null if the channel is free.
+	 */
+	public PwmMotor motorOnChannel(int channel) {
+
+		if (channel < 1 || channel > getNumberOfChannels()) {
+			throw new IllegalArgumentException("Unknown channel specified: " + channel + ".");
+		}
+
+		return getChannelMotors()[channel - 1];
 	}
 
 	/**
@@ -84,13 +164,32 @@ public abstract class PwmBoard {
 			throw new ArrayStoreException("Unable to add motor with PWM channel index less than 1.");
 		}
 
-		for (PwmMotor existingMotor : motors) {
-			if (existingMotor.getPwmChannel() == motor.getPwmChannel()) {
-				throw new ArrayStoreException("PWM channel is already in use by another motor on this board. Please choose a different channel.");
-			}
+		PwmMotor[] motorsByChannel = getChannelMotors();
+		if (motorsByChannel[motor.getPwmChannel() - 1] != null) {
+			throw new ArrayStoreException("PWM channel is already in use by another motor on this board. Please choose a different channel.");
 		}
 
 		motors.add(motor);
+		motor.markAttached();
+		motorsByChannel[motor.getPwmChannel() - 1] = motor;
+		indexedMotors++;
+	}
+
+	/*
+	 * Get the motor table, building it if it is missing or out of date.
+	 */
+	private PwmMotor[] getChannelMotors() {
+
+		if (channelMotors == null || indexedMotors != motors.size()) {
+			channelMotors = new PwmMotor[getNumberOfChannels()];
+			for (PwmMotor motor : motors) {
+				motor.markAttached();
+				channelMotors[motor.getPwmChannel() - 1] = motor;
+			}
+			indexedMotors = motors.size();
+		}
+
+		return channelMotors;
 	}
 
 	@Override
@@ -100,7 +199,8 @@ public abstract class PwmBoard {
 				.append(getFrequency())
 				.append(getNumberOfChannels())
 				.append(getPwmBoardAddress())
-				.append(getAttachedMotors())
+				.append(getI2cBusNumber())
+				.append(motors)
 				.toHashCode();
 	}
 
@@ -118,7 +218,8 @@ public abstract class PwmBoard {
 				.append(getFrequency(), compareObj.getFrequency())
 				.append(getNumberOfChannels(), compareObj.getNumberOfChannels())
 				.append(getPwmBoardAddress(), compareObj.getPwmBoardAddress())
-				.append(getAttachedMotors(), compareObj.getAttachedMotors())
+				.append(getI2cBusNumber(), compareObj.getI2cBusNumber())
+				.append(motors, compareObj.motors)
 				.isEquals();
 	}
 
@@ -129,7 +230,8 @@ public abstract class PwmBoard {
 				.append("Frequency", getFrequency())
 				.append("Number of channels", getNumberOfChannels())
 				.append("PWM board address", getPwmBoardAddress())
-				.append("Attached motors", getAttachedMotors())
+				.append("I2C bus number", getI2cBusNumber())
+				.append("Attached motors", motors)
 				.toString();
 	}
 }
@@ -20,6 +20,7 @@ package com.yarg.animatronics.datamodel;
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
@@ -28,8 +29,28 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 
 public abstract class PwmMotor {
 
-	private ArrayList<AnimationKey> animationKeys = new ArrayList<>();
+	private static final int INITIAL_KEY_CAPACITY = 16;
+
+	// Animation keys are stored as parallel primitive arrays. Only the first numberOfKeys entries are in use.
+	private long[] keyTimes = new long[INITIAL_KEY_CAPACITY];
+	private short[] keyTicks = new short[INITIAL_KEY_CAPACITY];
+	private int numberOfKeys;
 	private int pwmChannel = 1;
+	private int priority;
+
+	// Set once the motor is attached to a board. Boards index their motors by channel, so the channel is fixed then.
+	private boolean attached;
+
+	// Curve coefficients of each segment between keys, computed on the first evaluation after the keys change.
+	// Unused in linear interpolation.
+	private InterpolationMode interpolation = InterpolationMode.LINEAR;
+	private double[] segmentCoefficients;
+	private double[] segmentScales;
+	private boolean segmentsValid;
+
+	// Limits of the motor, captured on first use. Subclasses return constants, so they never change.
+	private MotorCalibration calibration;
+	private double angleLookupResolution;
 
 	/**
 	 * Maximum tick value to achieve maximum rotation.
@@ -82,19 +103,73 @@ public abstract class PwmMotor {
 	}
 
 	/**
-	 * Set the channel on the PWM board that this motor is connected to.
+	 * Set the channel on the PWM board that this motor is connected to. The channel can't change once the motor is
+	 * attached to a board, as the board looks its motors up by channel.
 	 * @param pwmChannel PWM channel for this motor.
+	 * @throws IllegalStateException If the motor is attached to a board.
 	 */
 	public void setPwmChannel(int pwmChannel) {
+
+		if (attached && pwmChannel != this.pwmChannel) {
+			throw new IllegalStateException("Unable to change the PWM channel of a motor attached to a board.");
+		}
+
 		this.pwmChannel = pwmChannel;
 	}
 
+	/*
+	 * Fix the channel of the motor, called by the board it is attached to.
+	 */
+	void markAttached() {
+		attached = true;
+	}
+
+	/**
+	 * Get the priority of the motor when the bus can't carry every channel in a frame.
+	 * @return Priority, higher values are written first.
+	 */
+	public int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Set the priority of the motor when the bus can't carry every channel in a frame. Motors with a higher priority
+	 * are written before motors with a lower one, whatever their movement. Defaults to 0. Not stored in show files.
+	 * @param priority Priority, from -32768 to 32767.
+	 */
+	public void setPriority(int priority) {
+
+		if (priority < Short.MIN_VALUE || priority > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Priority must be between " + Short.MIN_VALUE + " and "
+					+ Short.MAX_VALUE + ".");
+		}
+
+		this.priority = priority;
+	}
+
+	/**
+	 * Get how the motor moves between animation keys.
+	 * @return Interpolation mode.
+	 */
+	public InterpolationMode getInterpolation() {
+		return interpolation;
+	}
+
+	/**
+	 * Set how the motor moves between animation keys. Defaults to LINEAR.
+	 * @param interpolation Interpolation mode.
+	 */
+	public void setInterpolation(InterpolationMode interpolation) {
+		this.interpolation = interpolation;
+		segmentsValid = false;
+	}
+
 	/**
 	 * Get the number of animation keys set for this motor.
 	 * @return Number of animation keys set for this motor.
 	 */
 	public int getNumberOfKeys() {
-		return animationKeys.size();
+		return numberOfKeys;
 	}
 
 	/**
@@ -102,7 +177,7 @@ public abstract class PwmMotor {
 	 * @return First animation key index, or -1 if there aren't any animation keys set.
 	 */
 	public int getFirstAnimationKeyIndex() {
-		if (animationKeys.size() == 0) {
+		if (numberOfKeys == 0) {
 			return -1;
 		}
 
@@ -114,7 +189,7 @@ public abstract class PwmMotor {
 	 * @return Last animation key index, or -1 if there aren't any animation keys set.
 	 */
 	public int getLastAnimationKeyIndex() {
-		return animationKeys.size() - 1;
+		return numberOfKeys - 1;
 	}
 
 	/**
@@ -123,7 +198,8 @@ public abstract class PwmMotor {
 	 * @return Tick value.
 	 */
 	public int getTickAtIndex(int index) {
-		return animationKeys.get(index).getTick();
+		checkKeyIndex(index);
+		return keyTicks[index];
 	}
 
 	/**
@@ -134,13 +210,9 @@ public abstract class PwmMotor {
 	 */
 	public void setTickAtIndex(int index, int tick) {
 
-		if (tick > getMaxTick()) {
-			tick = getMaxTick();
-		} else if (tick < getMinTick()) {
-			tick = getMinTick();
-		}
-
-		animationKeys.get(index).setTick(tick);
+		checkKeyIndex(index);
+		keyTicks[index] = (short) getCalibration().clampTick(tick);
+		segmentsValid = false;
 	}
 
 	/**
@@ -149,7 +221,8 @@ public abstract class PwmMotor {
 	 * @return Time in milliseconds from the start of the animation sequence.
 	 */
 	public long getTimeAtIndex(int index) {
-		return animationKeys.get(index).getTime();
+		checkKeyIndex(index);
+		return keyTimes[index];
 	}
 
 	/**
@@ -160,13 +233,118 @@ public abstract class PwmMotor {
 	 */
 	public void setTimeAtIndex(int index, long time) {
 
+		checkKeyIndex(index);
+
 		if (index > 0 && getTimeAtIndex(index - 1) >= time) {
 			throw new IllegalArgumentException("Time specified must be greater than the time of the previous key.");
-		} else if (index < (animationKeys.size() - 1) && getTimeAtIndex(index + 1) <= time) {
+		} else if (index < (numberOfKeys - 1) && getTimeAtIndex(index + 1) <= time) {
 			throw new IllegalArgumentException("Time specified must be less than the time of the next key.");
 		}
 
-		animationKeys.get(index).setTime(time);
+		keyTimes[index] = time;
+		segmentsValid = false;
+	}
+
+	/**
+	 * Find the animation key in effect at the time specified, which is the last key at or before that time. Uses a
+	 * binary search over the key times.
+	 * @param time Time, in milliseconds, from the start of the animation.
+	 * @return Index of the last key at or before the time, or -1 if there aren't any keys at or before the time.
+	 */
+	public int getKeyIndexAtTime(long time) {
+		return getKeyIndexAtTime(time, 0, numberOfKeys - 1);
+	}
+
+	/**
+	 * Get the tick value at the time specified, interpolated between the surrounding animation keys with the
+	 * interpolation mode of the motor. Times before the first key hold the tick of the first key and times after the
+	 * last key hold the tick of the last key.
+	 * @param time Time, in milliseconds, from the start of the animation.
+	 * @return Tick value at the time specified.
+	 * @throws IndexOutOfBoundsException If there aren't any animation keys.
+	 */
+	public int getTickAtTime(long time) {
+		return interpolateTick(getKeyIndexAtTime(time), time);
+	}
+
+	/**
+	 * Binary search for the last key at or before the time specified within the inclusive index range specified.
+	 * @param time Time, in milliseconds, from the start of the animation.
+	 * @param low Lowest index to search.
+	 * @param high Highest index to search.
+	 * @return Index of the last key at or before the time, or low - 1 if there isn't one in the range.
+	 */
+	int getKeyIndexAtTime(long time, int low, int high) {
+
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (keyTimes[middle] <= time) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		return high;
+	}
+
+	/**
+	 * Interpolate the tick value between the key at the index specified and the key after it, using the interpolation
+	 * mode of the motor.
+	 * @param index Index of the last key at or before the time, or -1 if the time is before the first key.
+	 * @param time Time, in milliseconds, from the start of the animation.
+	 * @return Tick value at the time specified.
+	 */
+	int interpolateTick(int index, long time) {
+
+		if (index < 0) {
+			return getTickAtIndex(0);
+		}
+
+		int startTick = keyTicks[index];
+		if (index == numberOfKeys - 1) {
+			return startTick;
+		}
+
+		long startTime = keyTimes[index];
+
+		if (interpolation != InterpolationMode.LINEAR) {
+			if (!segmentsValid) {
+				computeSegments();
+			}
+
+			int offset = index * InterpolationMode.COEFFICIENTS_PER_SEGMENT;
+			double u = (time - startTime) * segmentScales[index];
+			double tick = InterpolationMode.evaluate(segmentCoefficients, offset, u);
+			return getCalibration().clampTick((int) Math.round(tick));
+		}
+
+		long endTime = keyTimes[index + 1];
+		int endTick = keyTicks[index + 1];
+		return (int) (startTick + (endTick - startTick) * (time - startTime) / (endTime - startTime));
+	}
+
+	/*
+	 * Compute the curve coefficients of every segment between keys.
+	 */
+	private void computeSegments() {
+
+		int segments = Math.max(numberOfKeys - 1, 0);
+		if (segmentScales == null || segmentScales.length < segments) {
+			segmentScales = new double[segments];
+			segmentCoefficients = new double[segments * InterpolationMode.COEFFICIENTS_PER_SEGMENT];
+		}
+
+		for (int i = 0; i < segments; i++) {
+			int previous = Math.max(i - 1, 0);
+			int next = Math.min(i + 2, numberOfKeys - 1);
+			interpolation.computeSegment(keyTimes[previous], keyTicks[previous], keyTimes[i], keyTicks[i],
+					keyTimes[i + 1], keyTicks[i + 1], keyTimes[next], keyTicks[next], segmentCoefficients,
+					i * InterpolationMode.COEFFICIENTS_PER_SEGMENT);
+			segmentScales[i] = 1.0 / (keyTimes[i + 1] - keyTimes[i]);
+		}
+
+		segmentsValid = true;
 	}
 
 	/**
@@ -177,14 +355,47 @@ public abstract class PwmMotor {
 	 */
 	public void setAngleAtIndex(int index, double angle) {
 
-		if (angle > getMaxAngle()) {
-			angle = getMaxAngle();
-		} else if (angle < getMinAngle()) {
-			angle = getMinAngle();
+		MotorCalibration motorCalibration = getCalibration();
+		int ticks = motorCalibration.angleToTicks(motorCalibration.clampAngle(angle));
+		setTickAtIndex(index, ticks);
+	}
+
+	/**
+	 * Set the rotation angles of a run of animation keys. Each angle is clamped to the max and min angle values defined
+	 * for the motor.
+	 * @param index Index of the first animation key to set rotation for.
+	 * @param angles Angles to set.
+	 * @param offset Index of the first angle to set.
+	 * @param length Number of angles to set.
+	 */
+	public void setAnglesAtIndex(int index, double[] angles, int offset, int length) {
+
+		checkKeyRange(index, length);
+
+		MotorCalibration motorCalibration = getCalibration();
+		for (int i = 0; i < length; i++) {
+			int ticks = motorCalibration.angleToTicks(motorCalibration.clampAngle(angles[offset + i]));
+			keyTicks[index + i] = (short) motorCalibration.clampTick(ticks);
 		}
 
-		int ticks = convertAngleToTicks(angle);
-		setTickAtIndex(index, ticks);
+		segmentsValid = false;
+	}
+
+	/**
+	 * Get the rotation angles of a run of animation keys.
+	 * @param index Index of the first animation key to get rotation for.
+	 * @param angles Array to store the angles in.
+	 * @param offset Index to store the first angle at.
+	 * @param length Number of angles to get.
+	 */
+	public void getAnglesAtIndex(int index, double[] angles, int offset, int length) {
+
+		checkKeyRange(index, length);
+
+		MotorCalibration motorCalibration = getCalibration();
+		for (int i = 0; i < length; i++) {
+			angles[offset + i] = motorCalibration.ticksToAngle(keyTicks[index + i]);
+		}
 	}
 
 	/**
@@ -208,14 +419,17 @@ public abstract class PwmMotor {
 		int tick = 0;
 		long time = 0L;
 
-		if (animationKeys.size() > 0) {
-			tick = animationKeys.get(animationKeys.size()-1).getTick();
-			time = animationKeys.get(animationKeys.size()-1).getTime() + 1000L;
+		if (numberOfKeys > 0) {
+			tick = keyTicks[numberOfKeys - 1];
+			time = keyTimes[numberOfKeys - 1] + 1000L;
 		}
 
-		AnimationKey newKey = new AnimationKey(tick, time);
-		animationKeys.add(newKey);
-		return (animationKeys.size() - 1);
+		ensureKeyCapacity(numberOfKeys + 1);
+		keyTicks[numberOfKeys] = (short) tick;
+		keyTimes[numberOfKeys] = time;
+		numberOfKeys++;
+		segmentsValid = false;
+		return (numberOfKeys - 1);
 	}
 
 	/**
@@ -234,7 +448,7 @@ public abstract class PwmMotor {
 			throw new IllegalArgumentException("Index must be a positive value.");
 		}
 
-		if (index >= animationKeys.size()) {
+		if (index >= numberOfKeys) {
 			return addAnimationKey();
 		} else if (index <= 0) {
 			return 0;
@@ -245,20 +459,25 @@ public abstract class PwmMotor {
 
 		// Calculate tick between nearest neighbors.
 		// Calculate time between nearest neighbors.
-		int nextTick = animationKeys.get(index).getTick();
-		int previousTick = animationKeys.get(index - 1).getTick();
+		int nextTick = keyTicks[index];
+		int previousTick = keyTicks[index - 1];
 		tick = (nextTick - previousTick) / 2 + previousTick;
 
-		long nextTime = animationKeys.get(index).getTime();
-		long previousTime = animationKeys.get(index - 1).getTime();
+		long nextTime = keyTimes[index];
+		long previousTime = keyTimes[index - 1];
 		time = (nextTime - previousTime) / 2 + previousTime;
 
 		if (time <= previousTime || time >= nextTime) {
 			throw new IllegalArgumentException("Unable to subdivide time any further at the index specified.");
 		}
 
-		AnimationKey newKey = new AnimationKey(tick, time);
-		animationKeys.add(index, newKey);
+		ensureKeyCapacity(numberOfKeys + 1);
+		System.arraycopy(keyTicks, index, keyTicks, index + 1, numberOfKeys - index);
+		System.arraycopy(keyTimes, index, keyTimes, index + 1, numberOfKeys - index);
+		keyTicks[index] = (short) tick;
+		keyTimes[index] = time;
+		numberOfKeys++;
+		segmentsValid = false;
 		return index;
 	}
 
@@ -267,7 +486,380 @@ public abstract class PwmMotor {
 	 * @param index
 	 */
 	public void removeKeyAtIndex(int index) {
-		animationKeys.remove(index);
+
+		checkKeyIndex(index);
+
+		System.arraycopy(keyTicks, index + 1, keyTicks, index, numberOfKeys - index - 1);
+		System.arraycopy(keyTimes, index + 1, keyTimes, index, numberOfKeys - index - 1);
+		numberOfKeys--;
+		segmentsValid = false;
+	}
+
+	/**
+	 * Remove keys that interpolation between the remaining keys reproduces within the tolerance specified, using the
+	 * Ramer-Douglas-Peucker algorithm in tick and time space. The first and last keys are always kept. The error is
+	 * measured at the times of the removed keys against the tick the interpolation mode of the motor gives there. For
+	 * curve modes the keys are first chosen along straight lines, then removed keys are restored until every curve
+	 * segment is within the tolerance.
+	 * @param tolerance Largest difference, in ticks, allowed between a removed key and the interpolated tick.
+	 * @return Number of keys removed and the largest error introduced.
+	 */
+	public DecimationResult decimate(int tolerance) {
+
+		if (tolerance < 0) {
+			throw new IllegalArgumentException("Tolerance must not be negative.");
+		}
+
+		if (numberOfKeys < 3) {
+			return new DecimationResult(0, numberOfKeys, 0);
+		}
+
+		boolean[] keep = new boolean[numberOfKeys];
+		keep[0] = true;
+		keep[numberOfKeys - 1] = true;
+
+		// Segments still to check, as pairs of start and end indexes. Each key splits at most one segment, so there
+		// are never more segments pending than keys.
+		int[] pending = new int[numberOfKeys * 2];
+		int numberOfPending = 0;
+		pending[numberOfPending++] = 0;
+		pending[numberOfPending++] = numberOfKeys - 1;
+
+		int maxError = 0;
+		while (numberOfPending > 0) {
+			int end = pending[--numberOfPending];
+			int start = pending[--numberOfPending];
+
+			int furthest = -1;
+			int furthestError = -1;
+			for (int i = start + 1; i < end; i++) {
+				int error = Math.abs(keyTicks[i] - linearTick(start, end, keyTimes[i]));
+				if (error > furthestError) {
+					furthest = i;
+					furthestError = error;
+				}
+			}
+
+			if (furthest < 0) {
+				continue;
+			}
+
+			if (furthestError > tolerance) {
+				keep[furthest] = true;
+				pending[numberOfPending++] = start;
+				pending[numberOfPending++] = furthest;
+				pending[numberOfPending++] = furthest;
+				pending[numberOfPending++] = end;
+			} else {
+				maxError = Math.max(maxError, furthestError);
+			}
+		}
+
+		if (interpolation != InterpolationMode.LINEAR) {
+			maxError = restoreKeysForCurves(keep, tolerance);
+		}
+
+		int kept = 0;
+		for (int i = 0; i < numberOfKeys; i++) {
+			if (keep[i]) {
+				keyTimes[kept] = keyTimes[i];
+				keyTicks[kept] = keyTicks[i];
+				kept++;
+			}
+		}
+
+		int removed = numberOfKeys - kept;
+		numberOfKeys = kept;
+		segmentsValid = false;
+		return new DecimationResult(removed, kept, maxError);
+	}
+
+	/*
+	 * Measure the removed keys against the curves through the kept keys, keeping the worst key of every segment that
+	 * is out of tolerance until none is. Restoring a key changes the curves of the neighbouring segments, so every
+	 * segment is measured again after each pass. Returns the largest error of the removed keys.
+	 */
+	private int restoreKeysForCurves(boolean[] keep, int tolerance) {
+
+		double[] coefficients = new double[InterpolationMode.COEFFICIENTS_PER_SEGMENT];
+
+		while (true) {
+			int maxError = 0;
+			boolean restored = false;
+
+			int previous = 0;
+			int start = 0;
+			while (start < numberOfKeys - 1) {
+				int end = nextKeptKey(keep, start);
+				int next = end < numberOfKeys - 1 ? nextKeptKey(keep, end) : end;
+
+				interpolation.computeSegment(keyTimes[previous], keyTicks[previous], keyTimes[start], keyTicks[start],
+						keyTimes[end], keyTicks[end], keyTimes[next], keyTicks[next], coefficients, 0);
+				double scale = 1.0 / (keyTimes[end] - keyTimes[start]);
+
+				int worst = -1;
+				int worstError = -1;
+				for (int i = start + 1; i < end; i++) {
+					double tick = InterpolationMode.evaluate(coefficients, 0, (keyTimes[i] - keyTimes[start]) * scale);
+					int error = Math.abs(keyTicks[i] - getCalibration().clampTick((int) Math.round(tick)));
+					if (error > worstError) {
+						worst = i;
+						worstError = error;
+					}
+				}
+
+				if (worstError > tolerance) {
+					keep[worst] = true;
+					restored = true;
+				} else {
+					maxError = Math.max(maxError, worstError);
+				}
+
+				previous = start;
+				start = end;
+			}
+
+			if (!restored) {
+				return maxError;
+			}
+		}
+	}
+
+	/*
+	 * Index of the first kept key after the index specified. The last key is always kept.
+	 */
+	private int nextKeptKey(boolean[] keep, int index) {
+
+		int next = index + 1;
+		while (!keep[next]) {
+			next++;
+		}
+
+		return next;
+	}
+
+	/*
+	 * Tick at the time specified on the straight line between two keys, rounded the same way as interpolateTick.
+	 */
+	private int linearTick(int startIndex, int endIndex, long time) {
+
+		int startTick = keyTicks[startIndex];
+		int endTick = keyTicks[endIndex];
+		long startTime = keyTimes[startIndex];
+		long endTime = keyTimes[endIndex];
+		return (int) (startTick + (endTick - startTick) * (time - startTime) / (endTime - startTime));
+	}
+
+	/**
+	 * Add a run of animation keys, merging them with the existing keys by time. Takes time linear in the number of
+	 * existing keys plus the number of keys added, and none of the existing keys move if the run starts after the last
+	 * key. Ticks are clamped to the max and min tick values defined for the motor.
+	 * @param times Times of the keys to add, in increasing order.
+	 * @param ticks Tick values of the keys to add.
+	 * @param offset Index of the first key to add in the arrays.
+	 * @param length Number of keys to add.
+	 * @throws IllegalArgumentException If the times are not in increasing order or a time is already used by a key.
+	 */
+	public void addAnimationKeys(long[] times, int[] ticks, int offset, int length) {
+
+		checkKeyRun(times, ticks, offset, length);
+		if (length == 0) {
+			return;
+		}
+
+		// Validate against the existing keys before anything is moved.
+		int first = getKeyIndexAtTime(times[offset]) + 1;
+		if (first > 0 && keyTimes[first - 1] == times[offset]) {
+			throw new IllegalArgumentException("Time " + times[offset] + " is already used by another key.");
+		}
+
+		for (int existing = first, added = offset + 1; existing < numberOfKeys && added < offset + length;) {
+			if (keyTimes[existing] == times[added]) {
+				throw new IllegalArgumentException("Time " + times[added] + " is already used by another key.");
+			} else if (keyTimes[existing] < times[added]) {
+				existing++;
+			} else {
+				added++;
+			}
+		}
+
+		ensureKeyCapacity(numberOfKeys + length);
+
+		// Merge from the back so every key moves at most once.
+		MotorCalibration motorCalibration = getCalibration();
+		int existing = numberOfKeys - 1;
+		int added = offset + length - 1;
+		for (int target = numberOfKeys + length - 1; added >= offset; target--) {
+			if (existing >= first && keyTimes[existing] > times[added]) {
+				keyTimes[target] = keyTimes[existing];
+				keyTicks[target] = keyTicks[existing];
+				existing--;
+			} else {
+				keyTimes[target] = times[added];
+				keyTicks[target] = (short) motorCalibration.clampTick(ticks[added]);
+				added--;
+			}
+		}
+
+		numberOfKeys += length;
+		segmentsValid = false;
+	}
+
+	/**
+	 * Add a run of animation keys after the last key. Ticks are clamped to the max and min tick values defined for the
+	 * motor.
+	 * @param times Times of the keys to add, in increasing order and after the time of the last key.
+	 * @param ticks Tick values of the keys to add.
+	 * @param offset Index of the first key to add in the arrays.
+	 * @param length Number of keys to add.
+	 * @throws IllegalArgumentException If the times are not in increasing order or not after the last key.
+	 */
+	public void appendAnimationKeys(long[] times, int[] ticks, int offset, int length) {
+
+		checkKeyRun(times, ticks, offset, length);
+		if (length == 0) {
+			return;
+		}
+
+		if (numberOfKeys > 0 && keyTimes[numberOfKeys - 1] >= times[offset]) {
+			throw new IllegalArgumentException("Times must be greater than the time of the last key.");
+		}
+
+		ensureKeyCapacity(numberOfKeys + length);
+		copyKeyRun(times, ticks, offset, numberOfKeys, length);
+		numberOfKeys += length;
+		segmentsValid = false;
+	}
+
+	/**
+	 * Remove a range of animation keys.
+	 * @param fromIndex Index of the first key to remove.
+	 * @param toIndex Index after the last key to remove.
+	 */
+	public void removeKeyRange(int fromIndex, int toIndex) {
+
+		checkKeyRange(fromIndex, toIndex - fromIndex);
+
+		System.arraycopy(keyTicks, toIndex, keyTicks, fromIndex, numberOfKeys - toIndex);
+		System.arraycopy(keyTimes, toIndex, keyTimes, fromIndex, numberOfKeys - toIndex);
+		numberOfKeys -= toIndex - fromIndex;
+		segmentsValid = false;
+	}
+
+	/**
+	 * Replace a range of animation keys with a run of keys, which may have a different length. Replacing an empty range
+	 * inserts the keys at the index. Ticks are clamped to the max and min tick values defined for the motor.
+	 * @param fromIndex Index of the first key to replace.
+	 * @param toIndex Index after the last key to replace.
+	 * @param times Times of the new keys, in increasing order and between the times of the keys around the range.
+	 * @param ticks Tick values of the new keys.
+	 * @param offset Index of the first new key in the arrays.
+	 * @param length Number of new keys.
+	 * @throws IllegalArgumentException If the times are not in increasing order or not between the keys around the
+	 * range.
+	 */
+	public void replaceKeyRange(int fromIndex, int toIndex, long[] times, int[] ticks, int offset, int length) {
+
+		checkKeyRange(fromIndex, toIndex - fromIndex);
+		checkKeyRun(times, ticks, offset, length);
+
+		if (length > 0) {
+			if (fromIndex > 0 && keyTimes[fromIndex - 1] >= times[offset]) {
+				throw new IllegalArgumentException("Times must be greater than the time of the key before the range.");
+			} else if (toIndex < numberOfKeys && keyTimes[toIndex] <= times[offset + length - 1]) {
+				throw new IllegalArgumentException("Times must be less than the time of the key after the range.");
+			}
+		}
+
+		int newNumberOfKeys = numberOfKeys - (toIndex - fromIndex) + length;
+		ensureKeyCapacity(newNumberOfKeys);
+		System.arraycopy(keyTicks, toIndex, keyTicks, fromIndex + length, numberOfKeys - toIndex);
+		System.arraycopy(keyTimes, toIndex, keyTimes, fromIndex + length, numberOfKeys - toIndex);
+		copyKeyRun(times, ticks, offset, fromIndex, length);
+		numberOfKeys = newNumberOfKeys;
+		segmentsValid = false;
+	}
+
+	/**
+	 * Get a copy of the animation key at the specified index. Changes to the copy are not applied to the motor.
+	 * @param index Index of the animation key.
+	 * @return Copy of the animation key.
+	 */
+	public AnimationKey getAnimationKeyAtIndex(int index) {
+		return new AnimationKey(getTickAtIndex(index), getTimeAtIndex(index));
+	}
+
+	/**
+	 * Release unused key storage, so the key arrays are no larger than the number of keys.
+	 */
+	public void trimToSize() {
+
+		int capacity = Math.max(numberOfKeys, 1);
+		if (capacity < keyTimes.length) {
+			keyTimes = Arrays.copyOf(keyTimes, capacity);
+			keyTicks = Arrays.copyOf(keyTicks, capacity);
+		}
+
+		segmentCoefficients = null;
+		segmentScales = null;
+		segmentsValid = false;
+	}
+
+	/*
+	 * Throw an IndexOutOfBoundsException if the index is not the index of an animation key.
+	 */
+	private void checkKeyIndex(int index) {
+
+		if (index < 0 || index >= numberOfKeys) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + numberOfKeys);
+		}
+	}
+
+	private void checkKeyRange(int index, int length) {
+
+		if (index < 0 || length < 0 || index > numberOfKeys - length) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length + ", Size: " + numberOfKeys);
+		}
+	}
+
+	/*
+	 * Check that a run of keys passed in fits the arrays and is in increasing time order.
+	 */
+	private static void checkKeyRun(long[] times, int[] ticks, int offset, int length) {
+
+		if (offset < 0 || length < 0 || offset > times.length - length || offset > ticks.length - length) {
+			throw new IndexOutOfBoundsException("Offset: " + offset + ", Length: " + length);
+		}
+
+		for (int i = offset + 1; i < offset + length; i++) {
+			if (times[i - 1] >= times[i]) {
+				throw new IllegalArgumentException("Times must be in increasing order.");
+			}
+		}
+	}
+
+	/*
+	 * Copy a run of keys into the key arrays at the index specified, clamping the ticks.
+	 */
+	private void copyKeyRun(long[] times, int[] ticks, int offset, int index, int length) {
+
+		MotorCalibration motorCalibration = getCalibration();
+		System.arraycopy(times, offset, keyTimes, index, length);
+		for (int i = 0; i < length; i++) {
+			keyTicks[index + i] = (short) motorCalibration.clampTick(ticks[offset + i]);
+		}
+	}
+
+	/*
+	 * Grow the key arrays, if needed, so they can hold at least the number of keys specified.
+	 */
+	private void ensureKeyCapacity(int capacity) {
+
+		if (capacity > keyTimes.length) {
+			int newCapacity = Math.max(capacity, keyTimes.length + (keyTimes.length >> 1) + 1);
+			keyTimes = Arrays.copyOf(keyTimes, newCapacity);
+			keyTicks = Arrays.copyOf(keyTicks, newCapacity);
+		}
 	}
 
 	/**
@@ -276,12 +868,7 @@ public abstract class PwmMotor {
 	 * @return Angle converted to ticks.
 	 */
 	protected int convertAngleToTicks(double angle) {
-
-		double angleDelta = getMaxAngle() - getMinAngle();
-		int tickDelta = getMaxTick() - getMinTick();
-		double fromMinAngleDelta = angle - getMinAngle();
-		int ticksConverted = (int) (tickDelta * fromMinAngleDelta / angleDelta + getMinTick());
-		return ticksConverted;
+		return getCalibration().angleToTicks(angle);
 	}
 
 	/**
@@ -290,29 +877,59 @@ public abstract class PwmMotor {
 	 * @return Ticks converted to degrees.
 	 */
 	protected double convertTicksToAngle(int ticks) {
+		return getCalibration().ticksToAngle(ticks);
+	}
+
+	/**
+	 * Get the limits of the motor, captured the first time they are needed.
+	 * @return Calibration of the motor.
+	 */
+	public MotorCalibration getCalibration() {
+
+		MotorCalibration motorCalibration = calibration;
+		if (motorCalibration == null) {
+			motorCalibration = MotorCalibration.of(this).withAngleLookup(angleLookupResolution);
+			calibration = motorCalibration;
+		}
+
+		return motorCalibration;
+	}
+
+	/**
+	 * Convert angles to ticks through a lookup table with the resolution specified instead of exactly. See
+	 * MotorCalibration.withAngleLookup(double).
+	 * @param resolution Angle step of the table, in degrees, or 0 to convert exactly. Defaults to 0.
+	 */
+	public void setAngleLookupResolution(double resolution) {
 
-		int fromMinTickDelta = ticks - getMinTick();
-		int tickDelta = getMaxTick() - getMinTick();
-		double angleDelta = getMaxAngle() - getMinAngle();
-		double angleConverted = fromMinTickDelta * angleDelta / tickDelta + getMinAngle();
-		return angleConverted;
+		calibration = MotorCalibration.of(this).withAngleLookup(resolution);
+		angleLookupResolution = resolution;
 	}
 
 	/**
-	 * Return a copy of the animation keys list for this motor.
+	 * Return a copy of the animation keys list for this motor. Animation key objects are created on each call.
 	 * @return Copy of the animation keys list for this motor.
 	 */
 	protected List<AnimationKey> getAnimationKeys() {
-		ArrayList<AnimationKey> copyOfAnimationKeys = new ArrayList<>();
-		copyOfAnimationKeys.addAll(animationKeys);
+		ArrayList<AnimationKey> copyOfAnimationKeys = new ArrayList<>(numberOfKeys);
+		for (int i = 0; i < numberOfKeys; i++) {
+			copyOfAnimationKeys.add(new AnimationKey(keyTicks[i], keyTimes[i]));
+		}
 		return copyOfAnimationKeys;
 	}
 
 	@Override
 	public int hashCode() {
+
+		HashCodeBuilder keysHashCodeBuilder = new HashCodeBuilder(13, 33);
+		for (int i = 0; i < numberOfKeys; i++) {
+			keysHashCodeBuilder.append(keyTicks[i]).append(keyTimes[i]);
+		}
+
 		return new HashCodeBuilder(33, 19)
-				.append(animationKeys)
+				.append(keysHashCodeBuilder.toHashCode())
 				.append(pwmChannel)
+				.append(interpolation)
 				.append(getMaxAngle())
 				.append(getMinAngle())
 				.append(getMaxTick())
@@ -332,8 +949,9 @@ public abstract class PwmMotor {
 
 		PwmMotor compareObj = (PwmMotor) obj;
 		return new EqualsBuilder()
-				.append(getAnimationKeys(), compareObj.getAnimationKeys())
+				.append(keysEqual(compareObj), true)
 				.append(getPwmChannel(), compareObj.getPwmChannel())
+				.append(getInterpolation(), compareObj.getInterpolation())
 				.append(getMaxAngle(), compareObj.getMaxAngle())
 				.append(getMinAngle(), compareObj.getMinAngle())
 				.append(getMaxTick(), compareObj.getMaxTick())
@@ -342,12 +960,31 @@ public abstract class PwmMotor {
 				.isEquals();
 	}
 
+	/*
+	 * Compare the animation keys of this motor to the animation keys of another motor.
+	 */
+	private boolean keysEqual(PwmMotor compareObj) {
+
+		if (numberOfKeys != compareObj.numberOfKeys) {
+			return false;
+		}
+
+		for (int i = 0; i < numberOfKeys; i++) {
+			if (keyTicks[i] != compareObj.keyTicks[i] || keyTimes[i] != compareObj.keyTimes[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
 	@Override
 	public String toString() {
 
 		return new ToStringBuilder(this)
 				.append("Animation Keys", getAnimationKeys())
 				.append("Pwm Channel", getPwmChannel())
+				.append("Interpolation", getInterpolation())
 				.append("Max Angle", getMaxAngle())
 				.append("Min Angle", getMinAngle())
 				.append("Max Tick", getMaxTick())
@@ -0,0 +1,51 @@
+package com.yarg.animatronics.datamodel.boards;
+
+import com.yarg.animatronics.datamodel.PwmBoard;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * PWM board defined by data rather than by a subclass. Used when boards are read back from a show file.
+ */
+public class GenericPwmBoard extends PwmBoard {
+
+	private final int frequency;
+	private final int numberOfChannels;
+
+	/**
+	 * Create a board with the signaling frequency and number of channels specified.
+	 * @param frequency Signaling frequency of the board.
+	 * @param numberOfChannels Number of channels available on the board.
+	 */
+	public GenericPwmBoard(int frequency, int numberOfChannels) {
+		this.frequency = frequency;
+		this.numberOfChannels = numberOfChannels;
+	}
+
+	@Override
+	public int getFrequency() {
+		return frequency;
+	}
+
+	@Override
+	public int getNumberOfChannels() {
+		return numberOfChannels;
+	}
+}
@@ -41,6 +41,15 @@ public class PCA6985PwmBoard extends PwmBoard {
 	public static final int SUBADR3 = 0x04; // I2C Bus sub-address 3
 	public static final int ALLCALLADR = 0x05;	// LED All Call I2C-bus address
 
+	public static final int MODE1_RESTART = 0x80;	// MODE1 restart bit
+	public static final int MODE1_AI = 0x20;	// MODE1 register auto-increment bit
+	public static final int MODE1_SLEEP = 0x10;	// MODE1 low power mode bit, oscillator off
+	public static final int MODE1_ALLCALL = 0x01;	// MODE1 respond to LED All Call I2C-bus address bit
+
+	public static final int ALLCALL_ADDRESS = 0x70;	// Power-on LED All Call I2C-bus address, seven bit
+
+	public static final int LED_REGISTERS_PER_CHANNEL = 4;	// ON_L, ON_H, OFF_L and OFF_H
+
 	public static final int LED0_ON_L = 0x06;	// LED0 output and brightness control byte 0
 	public static final int LED0_ON_H = 0x07;	// LED0 output and brightness control byte 1
 	public static final int LED0_OFF_L = 0x08;	// LED0 output and brightness control byte 2
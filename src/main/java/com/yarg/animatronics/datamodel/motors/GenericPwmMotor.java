@@ -0,0 +1,75 @@
+package com.yarg.animatronics.datamodel.motors;
+
+import com.yarg.animatronics.datamodel.PwmMotor;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Motor defined by data rather than by a subclass. Used when motors are read back from a show file.
+ */
+public class GenericPwmMotor extends PwmMotor {
+
+	private final String motorId;
+	private final int minTick;
+	private final int maxTick;
+	private final double minAngle;
+	private final double maxAngle;
+
+	/**
+	 * Create a motor with the ID and limits specified.
+	 * @param motorId Name or ID of the motor.
+	 * @param minTick Minimum tick value to achieve minimum rotation.
+	 * @param maxTick Maximum tick value to achieve maximum rotation.
+	 * @param minAngle Minimum rotation angle for the motor.
+	 * @param maxAngle Maximum rotation angle for the motor.
+	 */
+	public GenericPwmMotor(String motorId, int minTick, int maxTick, double minAngle, double maxAngle) {
+		this.motorId = motorId;
+		this.minTick = minTick;
+		this.maxTick = maxTick;
+		this.minAngle = minAngle;
+		this.maxAngle = maxAngle;
+	}
+
+	@Override
+	public int getMaxTick() {
+		return maxTick;
+	}
+
+	@Override
+	public int getMinTick() {
+		return minTick;
+	}
+
+	@Override
+	public double getMaxAngle() {
+		return maxAngle;
+	}
+
+	@Override
+	public double getMinAngle() {
+		return minAngle;
+	}
+
+	@Override
+	public String getMotorId() {
+		return motorId;
+	}
+}
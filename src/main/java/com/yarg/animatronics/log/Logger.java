@@ -1,22 +1,124 @@
 package com.yarg.animatronics.log;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
 public class Logger {
 
 	public static enum SEVERITY {
-		INFO("INFO"),
-		WARNING("WARNING"),
-		DEBUG("DEBUG"),
-		ERROR("ERROR");
+		INFO("INFO", 1),
+		WARNING("WARNING", 2),
+		DEBUG("DEBUG", 0),
+		ERROR("ERROR", 3);
 
 		private final String severity;
+		private final int level;
 
-		private SEVERITY(String severity) {
+		private SEVERITY(String severity, int level) {
 			this.severity = severity;
+			this.level = level;
 		}
 
 		public String getSeverityString() {
 			return severity;
 		}
+
+		/**
+		 * Get the level of the severity, from DEBUG (lowest) through INFO and WARNING to ERROR (highest).
+		 * @return Level of the severity.
+		 */
+		public int getLevel() {
+			return level;
+		}
+	}
+
+	// Time the drain thread sleeps when there is nothing to write.
+	private static final long DRAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private static volatile SEVERITY threshold = SEVERITY.DEBUG;
+	private static volatile AsyncWriter asyncWriter;
+
+	/**
+	 * Get the lowest severity that is written to the log.
+	 * @return Lowest severity written.
+	 */
+	public static SEVERITY getLevel() {
+		return threshold;
+	}
+
+	/**
+	 * Set the lowest severity that is written to the log. Entries below it are dropped before the message is built.
+	 * Defaults to DEBUG, which writes everything.
+	 * @param level Lowest severity to write.
+	 */
+	public static void setLevel(SEVERITY level) {
+		threshold = level;
+	}
+
+	/**
+	 * Check if entries of the severity specified are written to the log.
+	 * @param severity Severity to check.
+	 * @return True if entries of the severity are written, false otherwise.
+	 */
+	public static boolean isEnabled(SEVERITY severity) {
+		return severity.getLevel() >= threshold.getLevel();
+	}
+
+	/**
+	 * Write log entries from a background thread instead of the calling thread. Entries are queued in a bounded ring
+	 * buffer, so logging never waits for stdout. Entries logged while the buffer is full are dropped and counted.
+	 * Does nothing if asynchronous logging is already started. Applications start it themselves, for example before
+	 * creating a verbose PCA69855Controller, and stop it with stopAsync when they shut down.
+	 * @param capacity Number of entries the ring buffer holds.
+	 */
+	public static synchronized void startAsync(int capacity) {
+
+		if (asyncWriter != null) {
+			return;
+		}
+
+		asyncWriter = new AsyncWriter(capacity);
+		asyncWriter.thread.start();
+	}
+
+	/**
+	 * Write all queued entries and go back to writing entries on the calling thread. Does nothing if asynchronous
+	 * logging is not started.
+	 */
+	public static synchronized void stopAsync() {
+
+		AsyncWriter writer = asyncWriter;
+		if (writer == null) {
+			return;
+		}
+
+		asyncWriter = null;
+		writer.stop();
+	}
+
+	/**
+	 * Wait until all entries queued so far have been written. Returns straight away if asynchronous logging is not
+	 * started.
+	 */
+	public static void flush() {
+
+		AsyncWriter writer = asyncWriter;
+		if (writer != null) {
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Get the number of entries dropped because the ring buffer was full.
+	 * @return Number of entries dropped since asynchronous logging started, or 0 if it is not started.
+	 */
+	public static long getDroppedEntries() {
+
+		AsyncWriter writer = asyncWriter;
+		return writer != null ? writer.dropped.get() : 0L;
 	}
 
 	/**
@@ -34,12 +136,166 @@ public class Logger {
 	}
 
 	/**
-	 * Write a log entry. All log entries are written to stdout.
+	 * Write a log entry. All log entries are written to stdout, on the calling thread unless asynchronous logging is
+	 * started.
 	 * @param severity Severity of the log message.
 	 * @param message Message to write to the log.
 	 */
 	public static void log(SEVERITY severity, String message) {
+
+		if (!isEnabled(severity)) {
+			return;
+		}
+
+		AsyncWriter writer = asyncWriter;
+		if (writer != null) {
+			writer.offer(severity, message);
+		} else {
+			write(severity, message);
+		}
+	}
+
+	/**
+	 * Write a log entry if writeToLog is set to true. The message is only built when the entry is written.
+	 * @param severity Severity of the log message.
+	 * @param message Supplier of the message to write to the log.
+	 * @param writeToLog Message to write to the log.
+	 */
+	public static void log(SEVERITY severity, Supplier<String> message, boolean writeToLog) {
+
+		if (writeToLog) {
+			log(severity, message);
+		}
+	}
+
+	/**
+	 * Write a log entry. The message is only built when the severity is written to the log.
+	 * @param severity Severity of the log message.
+	 * @param message Supplier of the message to write to the log.
+	 */
+	public static void log(SEVERITY severity, Supplier<String> message) {
+
+		if (isEnabled(severity)) {
+			log(severity, message.get());
+		}
+	}
+
+	private static void write(SEVERITY severity, String message) {
 		String logMessage = String.format("[%s] %s", severity.getSeverityString(), message);
 		System.out.println(logMessage);
 	}
+
+	/*
+	 * Bounded multi-producer, single-consumer ring buffer of log entries with the thread that writes them out.
+	 * Producers claim a sequence number, fill the slot and publish it by storing the sequence number. The drain
+	 * thread writes published slots in order.
+	 */
+	private static class AsyncWriter {
+
+		final SEVERITY[] severities;
+		final String[] messages;
+		final AtomicLongArray published;
+		final AtomicLong claimed = new AtomicLong();
+		final AtomicLong dropped = new AtomicLong();
+		final Thread thread;
+
+		volatile long drained;
+		volatile boolean running = true;
+
+		AsyncWriter(int capacity) {
+
+			if (capacity < 1) {
+				throw new IllegalArgumentException("Capacity must be at least 1 entry.");
+			}
+
+			severities = new SEVERITY[capacity];
+			messages = new String[capacity];
+			published = new AtomicLongArray(capacity);
+			for (int slot = 0; slot < capacity; slot++) {
+				published.set(slot, -1L);
+			}
+
+			thread = new Thread(this::drain, "animatronics-log");
+			thread.setDaemon(true);
+		}
+
+		/*
+		 * Queue an entry. Returns false, and counts the entry as dropped, if the ring buffer is full.
+		 */
+		boolean offer(SEVERITY severity, String message) {
+
+			long sequence;
+			do {
+				sequence = claimed.get();
+				if (sequence - drained >= severities.length) {
+					dropped.incrementAndGet();
+					return false;
+				}
+			} while (!claimed.compareAndSet(sequence, sequence + 1));
+
+			int slot = (int) (sequence % severities.length);
+			severities[slot] = severity;
+			messages[slot] = message;
+			published.lazySet(slot, sequence);
+			return true;
+		}
+
+		void drain() {
+
+			while (running || drained < claimed.get()) {
+				if (!writePublished()) {
+					LockSupport.parkNanos(DRAIN_INTERVAL_NANOS);
+				}
+			}
+		}
+
+		/*
+		 * Write every entry published in order. Returns false if there was nothing to write.
+		 */
+		boolean writePublished() {
+
+			long sequence = drained;
+			int slot = (int) (sequence % severities.length);
+			if (published.get(slot) != sequence) {
+				return false;
+			}
+
+			do {
+				write(severities[slot], messages[slot]);
+				messages[slot] = null;
+				sequence++;
+				drained = sequence;
+				slot = (int) (sequence % severities.length);
+			} while (published.get(slot) == sequence);
+
+			return true;
+		}
+
+		void flush() {
+
+			long sequence = claimed.get();
+			while (drained < sequence && thread.isAlive()) {
+				LockSupport.parkNanos(DRAIN_INTERVAL_NANOS);
+			}
+		}
+
+		void stop() {
+
+			running = false;
+			LockSupport.unpark(thread);
+
+			boolean interrupted = false;
+			while (thread.isAlive()) {
+				try {
+					thread.join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
 }
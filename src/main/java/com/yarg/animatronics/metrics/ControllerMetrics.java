@@ -0,0 +1,139 @@
+package com.yarg.animatronics.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * I2C traffic counters and the board write time histogram of a controller. Recording does not allocate. Register
+ * with JMX to read the metrics from a running rig, for example with JConsole or VisualVM.
+ */
+public class ControllerMetrics implements ControllerMetricsMBean {
+
+	private final AtomicLong i2cTransactions = new AtomicLong();
+	private final AtomicLong i2cBytesWritten = new AtomicLong();
+	private final AtomicLong skippedChannelWrites = new AtomicLong();
+	private final LatencyHistogram boardWriteTime = new LatencyHistogram();
+
+	private ObjectName objectName;
+	private ObjectName boardWriteTimeName;
+
+	/**
+	 * Record an I2C write transaction.
+	 * @param bytes Number of register bytes written.
+	 */
+	public void recordTransaction(int bytes) {
+		i2cTransactions.incrementAndGet();
+		i2cBytesWritten.addAndGet(bytes);
+	}
+
+	/**
+	 * Record a channel write that was skipped because the board already held the values.
+	 */
+	public void recordSkippedChannelWrite() {
+		skippedChannelWrites.incrementAndGet();
+	}
+
+	/**
+	 * Record the time taken to write all channels of a board.
+	 * @param nanos Board write time in nanoseconds.
+	 */
+	public void recordBoardWrite(long nanos) {
+		boardWriteTime.record(nanos);
+	}
+
+	/**
+	 * Get the histogram of the time taken to write all channels of a board.
+	 * @return Board write time histogram.
+	 */
+	public LatencyHistogram getBoardWriteTime() {
+		return boardWriteTime;
+	}
+
+	@Override
+	public long getI2cTransactions() {
+		return i2cTransactions.get();
+	}
+
+	@Override
+	public long getI2cBytesWritten() {
+		return i2cBytesWritten.get();
+	}
+
+	@Override
+	public long getSkippedChannelWrites() {
+		return skippedChannelWrites.get();
+	}
+
+	@Override
+	public long getBoardWrites() {
+		return boardWriteTime.getCount();
+	}
+
+	@Override
+	public void reset() {
+		i2cTransactions.set(0L);
+		i2cBytesWritten.set(0L);
+		skippedChannelWrites.set(0L);
+		boardWriteTime.reset();
+	}
+
+	/**
+	 * Register the metrics with the platform MBean server, under
+	 * com.yarg.animatronics:type=Controller,name="name" and a histogram=BoardWriteTime name for the histogram.
+	 * @param name Name of the controller, such as the I2C bus it writes to.
+	 * @throws JMException If the metrics can't be registered, for example because the name is already in use.
+	 */
+	public synchronized void register(String name) throws JMException {
+
+		unregister();
+
+		ObjectName metricsName = Jmx.createName("Controller", name, null);
+		ObjectName histogramName = Jmx.createName("Controller", name, "BoardWriteTime");
+
+		Jmx.register(this, metricsName);
+		try {
+			Jmx.register(boardWriteTime, histogramName);
+		} catch (JMException e) {
+			Jmx.unregister(metricsName);
+			throw e;
+		}
+
+		objectName = metricsName;
+		boardWriteTimeName = histogramName;
+	}
+
+	/**
+	 * Unregister the metrics from the platform MBean server. Does nothing if the metrics are not registered.
+	 * @throws JMException
+	 */
+	public synchronized void unregister() throws JMException {
+
+		if (objectName != null) {
+			Jmx.unregister(objectName);
+			Jmx.unregister(boardWriteTimeName);
+			objectName = null;
+			boardWriteTimeName = null;
+		}
+	}
+}
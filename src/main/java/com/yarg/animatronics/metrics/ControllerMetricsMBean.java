@@ -0,0 +1,55 @@
+package com.yarg.animatronics.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * JMX view of the I2C traffic of a controller.
+ */
+public interface ControllerMetricsMBean {
+
+	/**
+	 * Get the number of I2C write transactions sent.
+	 * @return Number of write transactions.
+	 */
+	long getI2cTransactions();
+
+	/**
+	 * Get the number of register bytes written over I2C.
+	 * @return Number of bytes written.
+	 */
+	long getI2cBytesWritten();
+
+	/**
+	 * Get the number of channel writes skipped because the board already held the values.
+	 * @return Number of skipped channel writes.
+	 */
+	long getSkippedChannelWrites();
+
+	/**
+	 * Get the number of board writes, the writes of all channels of a board at once.
+	 * @return Number of board writes.
+	 */
+	long getBoardWrites();
+
+	/**
+	 * Reset the counters and the board write time histogram.
+	 */
+	void reset();
+}
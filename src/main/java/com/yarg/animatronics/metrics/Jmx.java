@@ -0,0 +1,81 @@
+package com.yarg.animatronics.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registration of metrics with the platform MBean server.
+ */
+final class Jmx {
+
+	static final String DOMAIN = "com.yarg.animatronics";
+
+	private Jmx() {
+	}
+
+	/**
+	 * Create the object name of a metrics MBean.
+	 * @param type Component type, such as Controller.
+	 * @param name Name of the component instance.
+	 * @param histogram Name of the histogram, or null for the component itself.
+	 * @return Object name.
+	 * @throws JMException If the name is not a valid object name.
+	 */
+	static ObjectName createName(String type, String name, String histogram) throws JMException {
+
+		StringBuilder objectName = new StringBuilder(DOMAIN)
+				.append(":type=").append(type)
+				.append(",name=").append(ObjectName.quote(name));
+
+		if (histogram != null) {
+			objectName.append(",histogram=").append(histogram);
+		}
+
+		return new ObjectName(objectName.toString());
+	}
+
+	/**
+	 * Register an MBean with the platform MBean server.
+	 * @param mbean MBean to register.
+	 * @param objectName Name to register the MBean under.
+	 * @throws JMException If the MBean can't be registered, for example because the name is already in use.
+	 */
+	static void register(Object mbean, ObjectName objectName) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objectName);
+	}
+
+	/**
+	 * Unregister an MBean from the platform MBean server. Does nothing if no MBean is registered under the name.
+	 * @param objectName Name the MBean is registered under.
+	 * @throws JMException
+	 */
+	static void unregister(ObjectName objectName) throws JMException {
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		if (server.isRegistered(objectName)) {
+			server.unregisterMBean(objectName);
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package com.yarg.animatronics.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations in nanoseconds with a fixed set of log-linear buckets. Every power of two is split into 16
+ * buckets, so percentiles are accurate to within 1/16 of the value from 1 nanosecond up to Long.MAX_VALUE. Recording
+ * a value does not allocate or lock and may happen on any thread while the histogram is read from another.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Record a duration. Negative durations are recorded as 0.
+	 * @param nanos Duration in nanoseconds.
+	 */
+	public void record(long nanos) {
+
+		long value = Math.max(0L, nanos);
+
+		counts.incrementAndGet(getBucket(value));
+		count.incrementAndGet();
+		total.addAndGet(value);
+		min.accumulateAndGet(value, Math::min);
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	@Override
+	public long getCount() {
+		return count.get();
+	}
+
+	@Override
+	public long getMin() {
+		long value = min.get();
+		return value == Long.MAX_VALUE ? 0L : value;
+	}
+
+	@Override
+	public long getMax() {
+		return max.get();
+	}
+
+	@Override
+	public double getMean() {
+		long values = count.get();
+		return values == 0L ? 0.0 : (double) total.get() / values;
+	}
+
+	@Override
+	public long getPercentile50() {
+		return getPercentile(50.0);
+	}
+
+	@Override
+	public long getPercentile90() {
+		return getPercentile(90.0);
+	}
+
+	@Override
+	public long getPercentile99() {
+		return getPercentile(99.0);
+	}
+
+	@Override
+	public long getPercentile999() {
+		return getPercentile(99.9);
+	}
+
+	/**
+	 * Get the value below which the percentage of values specified fall. The value returned is the upper bound of the
+	 * bucket the percentile falls in, limited to the largest value recorded.
+	 * @param percentile Percentile, from 0 to 100.
+	 * @return Value at the percentile, or 0 if no values were recorded.
+	 */
+	public long getPercentile(double percentile) {
+
+		long values = 0L;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			values += counts.get(bucket);
+		}
+
+		if (values == 0L) {
+			return 0L;
+		}
+
+		long rank = Math.max(1L, (long) Math.ceil(values * Math.min(100.0, percentile) / 100.0));
+		long seen = 0L;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += counts.get(bucket);
+			if (seen >= rank) {
+				return Math.min(getBucketUpperBound(bucket), getMax());
+			}
+		}
+
+		return getMax();
+	}
+
+	@Override
+	public void reset() {
+
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			counts.set(bucket, 0L);
+		}
+
+		count.set(0L);
+		total.set(0L);
+		min.set(Long.MAX_VALUE);
+		max.set(0L);
+	}
+
+	/*
+	 * Bucket of a value. Values below 16 have a bucket each, larger values share a bucket with the values that have
+	 * the same four bits after the highest set bit.
+	 */
+	static int getBucket(long value) {
+
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int shift = magnitude - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+		return (shift + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/*
+	 * Largest value that falls in the bucket.
+	 */
+	static long getBucketUpperBound(int bucket) {
+
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowerBound + (1L << shift) - 1L;
+	}
+}
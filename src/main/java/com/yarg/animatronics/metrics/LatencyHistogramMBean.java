@@ -0,0 +1,79 @@
+package com.yarg.animatronics.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * JMX view of a latency histogram. All values are in nanoseconds.
+ */
+public interface LatencyHistogramMBean {
+
+	/**
+	 * Get the number of values recorded.
+	 * @return Number of values recorded.
+	 */
+	long getCount();
+
+	/**
+	 * Get the smallest value recorded.
+	 * @return Smallest value recorded, or 0 if no values were recorded.
+	 */
+	long getMin();
+
+	/**
+	 * Get the largest value recorded.
+	 * @return Largest value recorded, or 0 if no values were recorded.
+	 */
+	long getMax();
+
+	/**
+	 * Get the mean of the values recorded.
+	 * @return Mean of the values recorded, or 0 if no values were recorded.
+	 */
+	double getMean();
+
+	/**
+	 * Get the median of the values recorded.
+	 * @return 50th percentile.
+	 */
+	long getPercentile50();
+
+	/**
+	 * Get the 90th percentile of the values recorded.
+	 * @return 90th percentile.
+	 */
+	long getPercentile90();
+
+	/**
+	 * Get the 99th percentile of the values recorded.
+	 * @return 99th percentile.
+	 */
+	long getPercentile99();
+
+	/**
+	 * Get the 99.9th percentile of the values recorded.
+	 * @return 99.9th percentile.
+	 */
+	long getPercentile999();
+
+	/**
+	 * Forget all values recorded.
+	 */
+	void reset();
+}
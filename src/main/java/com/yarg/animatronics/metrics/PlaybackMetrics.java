@@ -0,0 +1,159 @@
+package com.yarg.animatronics.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Frame counters and latency histograms of a playback engine. Render time is the time taken to render the frame of a
+ * board. Frame latency is the time from the deadline of a board frame until the frame has been written, so it covers
+ * waking up, rendering and the I2C write. Recording does not allocate.
+ */
+public class PlaybackMetrics implements PlaybackMetricsMBean {
+
+	private final AtomicLong frames = new AtomicLong();
+	private final AtomicLong deadlineMisses = new AtomicLong();
+	private final AtomicLong deferredChannels = new AtomicLong();
+	private final LatencyHistogram renderTime = new LatencyHistogram();
+	private final LatencyHistogram frameLatency = new LatencyHistogram();
+
+	private ObjectName[] objectNames;
+
+	/**
+	 * Record a board frame written.
+	 * @param latencyNanos Time from the deadline of the frame until it was written, in nanoseconds.
+	 */
+	public void recordFrame(long latencyNanos) {
+		frames.incrementAndGet();
+		frameLatency.record(latencyNanos);
+	}
+
+	/**
+	 * Record the time taken to render the frame of a board.
+	 * @param nanos Render time in nanoseconds.
+	 */
+	public void recordRender(long nanos) {
+		renderTime.record(nanos);
+	}
+
+	/**
+	 * Record board frames skipped because they missed their deadline.
+	 * @param missedFrames Number of frames skipped.
+	 */
+	public void recordDeadlineMisses(long missedFrames) {
+		deadlineMisses.addAndGet(missedFrames);
+	}
+
+	/**
+	 * Record channel writes left out of board frames because the bus had no room for them.
+	 * @param channels Number of channel writes deferred.
+	 */
+	public void recordDeferredChannels(long channels) {
+		deferredChannels.addAndGet(channels);
+	}
+
+	/**
+	 * Get the histogram of the time taken to render the frame of a board.
+	 * @return Render time histogram.
+	 */
+	public LatencyHistogram getRenderTime() {
+		return renderTime;
+	}
+
+	/**
+	 * Get the histogram of the time from the deadline of a board frame until it was written.
+	 * @return Frame latency histogram.
+	 */
+	public LatencyHistogram getFrameLatency() {
+		return frameLatency;
+	}
+
+	@Override
+	public long getFrames() {
+		return frames.get();
+	}
+
+	@Override
+	public long getDeadlineMisses() {
+		return deadlineMisses.get();
+	}
+
+	@Override
+	public long getDeferredChannels() {
+		return deferredChannels.get();
+	}
+
+	@Override
+	public void reset() {
+		frames.set(0L);
+		deadlineMisses.set(0L);
+		deferredChannels.set(0L);
+		renderTime.reset();
+		frameLatency.reset();
+	}
+
+	/**
+	 * Register the metrics with the platform MBean server, under com.yarg.animatronics:type=Playback,name="name" and
+	 * histogram=RenderTime and histogram=FrameLatency names for the histograms.
+	 * @param name Name of the playback engine.
+	 * @throws JMException If the metrics can't be registered, for example because the name is already in use.
+	 */
+	public synchronized void register(String name) throws JMException {
+
+		unregister();
+
+		ObjectName[] names = {
+				Jmx.createName("Playback", name, null),
+				Jmx.createName("Playback", name, "RenderTime"),
+				Jmx.createName("Playback", name, "FrameLatency")
+		};
+		Object[] mbeans = {this, renderTime, frameLatency};
+
+		for (int i = 0; i < names.length; i++) {
+			try {
+				Jmx.register(mbeans[i], names[i]);
+			} catch (JMException e) {
+				for (int registered = 0; registered < i; registered++) {
+					Jmx.unregister(names[registered]);
+				}
+				throw e;
+			}
+		}
+
+		objectNames = names;
+	}
+
+	/**
+	 * Unregister the metrics from the platform MBean server. Does nothing if the metrics are not registered.
+	 * @throws JMException
+	 */
+	public synchronized void unregister() throws JMException {
+
+		if (objectNames != null) {
+			for (ObjectName objectName : objectNames) {
+				Jmx.unregister(objectName);
+			}
+			objectNames = null;
+		}
+	}
+}
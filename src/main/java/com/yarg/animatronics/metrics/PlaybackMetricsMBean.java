@@ -0,0 +1,49 @@
+package com.yarg.animatronics.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * JMX view of the frame loop of a playback engine.
+ */
+public interface PlaybackMetricsMBean {
+
+	/**
+	 * Get the number of board frames written.
+	 * @return Number of board frames written.
+	 */
+	long getFrames();
+
+	/**
+	 * Get the number of board frames skipped because they missed their deadline.
+	 * @return Number of missed deadlines.
+	 */
+	long getDeadlineMisses();
+
+	/**
+	 * Get the number of channel writes deferred to a later frame because the bus had no room for them.
+	 * @return Number of deferred channel writes.
+	 */
+	long getDeferredChannels();
+
+	/**
+	 * Reset the counters and the histograms.
+	 */
+	void reset();
+}
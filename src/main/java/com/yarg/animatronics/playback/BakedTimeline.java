@@ -0,0 +1,249 @@
+package com.yarg.animatronics.playback;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.yarg.animatronics.datamodel.AnimationCursor;
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.datamodel.PwmMotor;
+
+/**
+ * Frame source that evaluates every motor of every board ahead of time. Each board gets a frame-major table with one
+ * row per frame at the board frequency and one 12-bit tick value per channel, so rendering a frame is a copy of one
+ * row. Motors are evaluated in parallel on a fork-join pool.
+ */
+public class BakedTimeline implements FrameSource {
+
+	// Number of motors evaluated by a single fork-join task.
+	private static final int MOTORS_PER_TASK = 1;
+
+	private final List<PwmBoard> boards;
+	private final long duration;
+	private final int[] frameCounts;
+	private final short[][] frames;
+
+	/**
+	 * Compile the animation keys of every motor attached to the boards on the common fork-join pool.
+	 * @param boards Boards to compile frames for.
+	 */
+	public BakedTimeline(List<PwmBoard> boards) {
+		this(boards, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Compile the animation keys of every motor attached to the boards on the fork-join pool specified.
+	 * @param boards Boards to compile frames for.
+	 * @param pool Pool to evaluate motors on.
+	 */
+	public BakedTimeline(List<PwmBoard> boards, ForkJoinPool pool) {
+
+		this.boards = new ArrayList<>(boards);
+		duration = PwmBoard.getLastKeyTime(this.boards);
+		frameCounts = new int[this.boards.size()];
+		frames = new short[this.boards.size()][];
+
+		List<MotorColumn> columns = new ArrayList<>();
+		for (int i = 0; i < this.boards.size(); i++) {
+			PwmBoard board = this.boards.get(i);
+			frameCounts[i] = getFrameCount(board, duration);
+			frames[i] = new short[frameCounts[i] * board.getNumberOfChannels()];
+			Arrays.fill(frames[i], (short) NO_VALUE);
+
+			for (PwmMotor motor : board.getAttachedMotors()) {
+				if (motor.getNumberOfKeys() > 0) {
+					columns.add(new MotorColumn(i, motor));
+				}
+			}
+		}
+
+		pool.invoke(new CompileTask(columns, 0, columns.size()));
+	}
+
+	/**
+	 * Estimate the number of bytes the frame tables of the boards take, without compiling them.
+	 * @param boards Boards to estimate the size of the frame tables for.
+	 * @return Number of bytes the frame tables take.
+	 */
+	public static long estimateSizeInBytes(List<PwmBoard> boards) {
+
+		long duration = PwmBoard.getLastKeyTime(boards);
+		long sizeInBytes = 0L;
+		for (PwmBoard board : boards) {
+			sizeInBytes += (long) getFrameCount(board, duration) * board.getNumberOfChannels() * Short.BYTES;
+		}
+
+		return sizeInBytes;
+	}
+
+	/**
+	 * Get the number of bytes the frame tables take.
+	 * @return Number of bytes the frame tables take.
+	 */
+	public long getSizeInBytes() {
+
+		long sizeInBytes = 0L;
+		for (short[] boardFrames : frames) {
+			sizeInBytes += (long) boardFrames.length * Short.BYTES;
+		}
+
+		return sizeInBytes;
+	}
+
+	/**
+	 * Get the number of frames compiled for the board.
+	 * @param boardIndex Index of the board.
+	 * @return Number of frames compiled for the board.
+	 */
+	public int getFrameCount(int boardIndex) {
+		return frameCounts[boardIndex];
+	}
+
+	@Override
+	public List<PwmBoard> getBoards() {
+		return boards;
+	}
+
+	@Override
+	public long getDuration() {
+		return duration;
+	}
+
+	@Override
+	public void renderFrame(int boardIndex, long time, int[] ticks) {
+
+		long frame = getFrameAtTime(time, boards.get(boardIndex).getFrequency());
+		getFrame(boardIndex, (int) Math.min(frame, frameCounts[boardIndex] - 1), ticks);
+	}
+
+	/**
+	 * Copy the tick values of a compiled frame.
+	 * @param boardIndex Index of the board.
+	 * @param frame Frame, from 0 to the frame count of the board.
+	 * @param ticks Tick values, one per channel on the board.
+	 */
+	public void getFrame(int boardIndex, int frame, int[] ticks) {
+
+		short[] boardFrames = frames[boardIndex];
+		int offset = frame * ticks.length;
+		for (int channel = 0; channel < ticks.length; channel++) {
+			ticks[channel] = boardFrames[offset + channel];
+		}
+	}
+
+	/**
+	 * Get the time of a frame. Frame times are whole milliseconds rounded down.
+	 * @param frame Frame index.
+	 * @param frequency Board frequency.
+	 * @return Time, in milliseconds, from the start of the animation.
+	 */
+	public static long getTimeOfFrame(long frame, int frequency) {
+		return frame * 1000L / frequency;
+	}
+
+	/**
+	 * Get the last frame whose time is at or before the time specified. This is the inverse of getTimeOfFrame, also
+	 * for frequencies that do not divide a second into whole milliseconds.
+	 * @param time Time, in milliseconds, from the start of the animation.
+	 * @param frequency Board frequency.
+	 * @return Frame index, or 0 for negative times.
+	 */
+	public static long getFrameAtTime(long time, int frequency) {
+
+		if (time < 0L) {
+			return 0L;
+		}
+
+		return ((time + 1L) * frequency - 1L) / 1000L;
+	}
+
+	/*
+	 * Number of frames needed to cover the duration at the board frequency, including the frame at the end.
+	 */
+	private static int getFrameCount(PwmBoard board, long duration) {
+		return (int) getFrameAtTime(duration, board.getFrequency()) + 1;
+	}
+
+	/*
+	 * Motor to evaluate and the board it writes a column of frames to.
+	 */
+	private static class MotorColumn {
+
+		final int boardIndex;
+		final PwmMotor motor;
+
+		MotorColumn(int boardIndex, PwmMotor motor) {
+			this.boardIndex = boardIndex;
+			this.motor = motor;
+		}
+	}
+
+	/*
+	 * Fork-join task that evaluates a range of motor columns. Each motor writes its own channel column, so tasks never
+	 * write the same table entry.
+	 */
+	private class CompileTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<MotorColumn> columns;
+		private final int start;
+		private final int end;
+
+		CompileTask(List<MotorColumn> columns, int start, int end) {
+			this.columns = columns;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (end - start <= MOTORS_PER_TASK) {
+				for (int i = start; i < end; i++) {
+					compileColumn(columns.get(i));
+				}
+				return;
+			}
+
+			int middle = (start + end) >>> 1;
+			invokeAll(new CompileTask(columns, start, middle), new CompileTask(columns, middle, end));
+		}
+
+		private void compileColumn(MotorColumn column) {
+
+			PwmBoard board = boards.get(column.boardIndex);
+			short[] boardFrames = frames[column.boardIndex];
+			int channels = board.getNumberOfChannels();
+			int channel = column.motor.getPwmChannel() - 1;
+			int frequency = board.getFrequency();
+
+			AnimationCursor cursor = new AnimationCursor(column.motor);
+			for (int frame = 0; frame < frameCounts[column.boardIndex]; frame++) {
+				long time = getTimeOfFrame(frame, frequency);
+				boardFrames[frame * channels + channel] = (short) cursor.getTickAtTime(time);
+			}
+		}
+	}
+}
@@ -0,0 +1,325 @@
+package com.yarg.animatronics.playback;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.datamodel.PwmMotor;
+
+/**
+ * Keeps the frames written to each I2C bus within the time the bus has per frame period. The bytes a board frame takes
+ * on the bus are estimated from the channels that changed since they were last written. When a frame would take more
+ * than the share of the bus the board gets, channels are written in order of motor priority, then of how long they
+ * have been deferred multiplied by how far they moved, until the share is used up. The other channels are deferred:
+ * they are left out of the frame and reconsidered with the next frame, so they catch up once the bus has room.
+ *
+ * Each board gets the same number of bytes per frame as every other board on its bus. The bus time is shared out by
+ * frame rate, so a 100 Hz board uses twice the bus time of a 50 Hz board.
+ *
+ * Frames of a board must be scheduled from a single thread.
+ */
+public class BandwidthScheduler {
+
+	// Clocks per byte on the bus, eight data bits and the acknowledge bit.
+	private static final int CLOCKS_PER_BYTE = 9;
+
+	// Bytes of a transaction that are not register data, the address byte and the register byte. Start and stop
+	// conditions are rounded into them.
+	private static final int TRANSACTION_OVERHEAD_BYTES = 2;
+
+	// Bytes of a single register write without auto-increment.
+	private static final int REGISTER_WRITE_BYTES = 3;
+
+	private static final int REGISTERS_PER_CHANNEL = 4;
+
+	private final boolean autoIncrement;
+	private final double utilization;
+	private final int[] frameBudgets;
+	private final int[][] channelPriorities;
+	private final int[][] writtenTicks;
+	private final int[][] deferredFrames;
+	private final int[][] scheduledTicks;
+	private final Map<Integer, Double> busNumberToWorstCaseLoadMap = new HashMap<>();
+
+	// Scratch space for choosing the channels of a frame.
+	private final int[] candidates;
+	private final long[] scores;
+	private final boolean[] selected;
+
+	private long deferredChannels;
+
+	/**
+	 * Create a scheduler for the boards specified.
+	 * @param boards Boards frames are scheduled for, in frame source order.
+	 * @param clockHertz I2C clock rate of the buses.
+	 * @param autoIncrement True if the controller writes with register auto-increment, false otherwise.
+	 * @param utilization Fraction, above 0 and up to 1, of the bus time frames may use. Leave some room for clock
+	 * stretching and the other traffic on the bus.
+	 */
+	public BandwidthScheduler(List<PwmBoard> boards, int clockHertz, boolean autoIncrement, double utilization) {
+
+		if (clockHertz <= 0) {
+			throw new IllegalArgumentException("Clock rate must be greater than 0.");
+		} else if (!(utilization > 0.0 && utilization <= 1.0)) {
+			throw new IllegalArgumentException("Utilization must be above 0 and at most 1.");
+		}
+
+		this.autoIncrement = autoIncrement;
+		this.utilization = utilization;
+
+		int numberOfBoards = boards.size();
+		frameBudgets = new int[numberOfBoards];
+		channelPriorities = new int[numberOfBoards][];
+		writtenTicks = new int[numberOfBoards][];
+		deferredFrames = new int[numberOfBoards][];
+		scheduledTicks = new int[numberOfBoards][];
+
+		// Frames per second each bus has to carry.
+		Map<Integer, Integer> busNumberToFrameRateMap = new HashMap<>();
+		for (PwmBoard board : boards) {
+			busNumberToFrameRateMap.merge(board.getI2cBusNumber(), board.getFrequency(), Integer::sum);
+		}
+
+		double bytesPerSecond = (double) clockHertz / CLOCKS_PER_BYTE;
+		int maxChannels = 0;
+
+		for (int i = 0; i < numberOfBoards; i++) {
+			PwmBoard board = boards.get(i);
+			int numberOfChannels = board.getNumberOfChannels();
+			maxChannels = Math.max(maxChannels, numberOfChannels);
+
+			// Never less than a single channel per frame, so every channel keeps moving however full the bus is.
+			int busFrameRate = busNumberToFrameRateMap.get(board.getI2cBusNumber());
+			int budget = (int) (bytesPerSecond * utilization / busFrameRate);
+			frameBudgets[i] = Math.max(budget, getChannelRunBytes(1));
+
+			channelPriorities[i] = new int[numberOfChannels];
+			for (int channel = 1; channel <= numberOfChannels; channel++) {
+				PwmMotor motor = board.motorOnChannel(channel);
+				channelPriorities[i][channel - 1] = motor == null ? 0 : motor.getPriority();
+			}
+
+			writtenTicks[i] = new int[numberOfChannels];
+			Arrays.fill(writtenTicks[i], FrameSource.NO_VALUE);
+			deferredFrames[i] = new int[numberOfChannels];
+			scheduledTicks[i] = new int[numberOfChannels];
+
+			double fullFrameSeconds = (double) getChannelRunBytes(numberOfChannels) / bytesPerSecond;
+			busNumberToWorstCaseLoadMap.merge(board.getI2cBusNumber(), fullFrameSeconds * board.getFrequency(),
+					Double::sum);
+		}
+
+		candidates = new int[maxChannels];
+		scores = new long[maxChannels];
+		selected = new boolean[maxChannels];
+	}
+
+	/**
+	 * Get the fraction of the time of a bus frames take if every channel of every board on the bus changes in every
+	 * frame. Above the utilization of the scheduler, channels are deferred whenever many of them move at once.
+	 * @param busNumber I2C bus number.
+	 * @return Bus time needed for full frames as a fraction of the bus time, or 0 if no boards are on the bus.
+	 */
+	public double getWorstCaseLoad(int busNumber) {
+		return busNumberToWorstCaseLoadMap.getOrDefault(busNumber, 0.0);
+	}
+
+	/**
+	 * Check if full frames of every board fit within the utilization on all buses, so channels are never deferred.
+	 * @return True if full frames always fit, false otherwise.
+	 */
+	public boolean isFullFrameRateSustainable() {
+
+		for (double load : busNumberToWorstCaseLoadMap.values()) {
+			if (load > utilization) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Get the number of bytes a frame of the board may take on the bus.
+	 * @param boardIndex Index of the board.
+	 * @return Byte budget per frame.
+	 */
+	public int getFrameBudget(int boardIndex) {
+		return frameBudgets[boardIndex];
+	}
+
+	/**
+	 * Get the number of channel writes deferred since the scheduler was created.
+	 * @return Number of channel writes deferred to a later frame.
+	 */
+	public long getDeferredChannels() {
+		return deferredChannels;
+	}
+
+	/**
+	 * Forget the values written to the board, so the next frame is scheduled as if every channel changed. Use when the
+	 * board was written to without the scheduler.
+	 * @param boardIndex Index of the board.
+	 */
+	public void invalidate(int boardIndex) {
+		Arrays.fill(writtenTicks[boardIndex], FrameSource.NO_VALUE);
+	}
+
+	/**
+	 * Choose the channels of a board frame that are written now.
+	 * @param boardIndex Index of the board.
+	 * @param ticks Frame rendered for the board, NO_VALUE for channels not to write. Left unchanged.
+	 * @return Frame to write, with NO_VALUE for channels that are deferred or unchanged. Owned by the scheduler and
+	 * valid until the next frame of the board is scheduled.
+	 */
+	public int[] schedule(int boardIndex, int[] ticks) {
+
+		int[] written = writtenTicks[boardIndex];
+		int[] deferred = deferredFrames[boardIndex];
+		int[] scheduled = scheduledTicks[boardIndex];
+		int[] priorities = channelPriorities[boardIndex];
+
+		int numberOfCandidates = 0;
+		for (int channel = 0; channel < scheduled.length; channel++) {
+			scheduled[channel] = FrameSource.NO_VALUE;
+			selected[channel] = false;
+			if (ticks[channel] >= 0 && ticks[channel] != written[channel]) {
+				candidates[numberOfCandidates++] = channel;
+			} else {
+				deferred[channel] = 0;
+			}
+		}
+
+		if (numberOfCandidates == 0) {
+			return scheduled;
+		}
+
+		int budget = frameBudgets[boardIndex];
+		if (getFrameBytes(candidates, numberOfCandidates, scheduled.length) <= budget) {
+			for (int i = 0; i < numberOfCandidates; i++) {
+				write(candidates[i], ticks, scheduled, written, deferred);
+			}
+			return scheduled;
+		}
+
+		// Priority first, then the movement weighted by the number of frames the channel has waited.
+		for (int i = 0; i < numberOfCandidates; i++) {
+			int channel = candidates[i];
+			long movement = written[channel] < 0 ? 4096 : Math.abs(ticks[channel] - written[channel]);
+			scores[i] = ((long) priorities[channel] << 40) + movement * (deferred[channel] + 1);
+		}
+		sortByScore(numberOfCandidates);
+
+		for (int i = 0; i < numberOfCandidates; i++) {
+			int channel = candidates[i];
+			selected[channel] = true;
+			if (getSelectedBytes(scheduled.length) <= budget) {
+				write(channel, ticks, scheduled, written, deferred);
+			} else {
+				selected[channel] = false;
+				deferred[channel]++;
+				deferredChannels++;
+			}
+		}
+
+		return scheduled;
+	}
+
+	private void write(int channel, int[] ticks, int[] scheduled, int[] written, int[] deferred) {
+		scheduled[channel] = ticks[channel];
+		written[channel] = ticks[channel];
+		deferred[channel] = 0;
+	}
+
+	/*
+	 * Bytes on the bus to write the channels specified, which are in increasing order.
+	 */
+	private int getFrameBytes(int[] channels, int numberOfChannels, int boardChannels) {
+
+		for (int channel = 0; channel < boardChannels; channel++) {
+			selected[channel] = false;
+		}
+		for (int i = 0; i < numberOfChannels; i++) {
+			selected[channels[i]] = true;
+		}
+
+		int bytes = getSelectedBytes(boardChannels);
+		for (int channel = 0; channel < boardChannels; channel++) {
+			selected[channel] = false;
+		}
+
+		return bytes;
+	}
+
+	/*
+	 * Bytes on the bus to write the selected channels. With auto-increment each run of consecutive channels is a
+	 * single transaction, without it every register is a transaction of its own.
+	 */
+	private int getSelectedBytes(int boardChannels) {
+
+		int bytes = 0;
+		int runLength = 0;
+		for (int channel = 0; channel <= boardChannels; channel++) {
+			if (channel < boardChannels && selected[channel]) {
+				runLength++;
+			} else if (runLength > 0) {
+				bytes += getChannelRunBytes(runLength);
+				runLength = 0;
+			}
+		}
+
+		return bytes;
+	}
+
+	/*
+	 * Bytes on the bus to write a run of consecutive channels.
+	 */
+	private int getChannelRunBytes(int runLength) {
+
+		if (autoIncrement) {
+			return TRANSACTION_OVERHEAD_BYTES + runLength * REGISTERS_PER_CHANNEL;
+		}
+
+		return runLength * REGISTERS_PER_CHANNEL * REGISTER_WRITE_BYTES;
+	}
+
+	/*
+	 * Insertion sort of the candidates by decreasing score. There are at most 16 of them.
+	 */
+	private void sortByScore(int numberOfCandidates) {
+
+		for (int i = 1; i < numberOfCandidates; i++) {
+			long score = scores[i];
+			int channel = candidates[i];
+			int j = i - 1;
+			while (j >= 0 && scores[j] < score) {
+				scores[j + 1] = scores[j];
+				candidates[j + 1] = candidates[j];
+				j--;
+			}
+			scores[j + 1] = score;
+			candidates[j + 1] = channel;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.yarg.animatronics.playback;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+
+import com.yarg.animatronics.datamodel.PwmBoard;
+
+/**
+ * Source of frames for the playback engine. A frame is the off tick value of every channel on a board at a point in
+ * time. Channels are indexed from 0, so the motor on PWM channel 1 is written to index 0.
+ */
+public interface FrameSource {
+
+	/**
+	 * Value rendered for channels that have nothing to output. Channels with this value are left untouched.
+	 */
+	public static final int NO_VALUE = -1;
+
+	/**
+	 * Get the boards this source renders frames for. The board index used when rendering frames is the index of the
+	 * board in this list.
+	 * @return Boards this source renders frames for.
+	 */
+	public List<PwmBoard> getBoards();
+
+	/**
+	 * Get the duration of the animation in milliseconds.
+	 * @return Duration of the animation in milliseconds.
+	 */
+	public long getDuration();
+
+	/**
+	 * Render the off tick value of every channel on the board at the time specified. Channels without a value are set
+	 * to NO_VALUE.
+	 * @param boardIndex Index of the board to render.
+	 * @param time Time, in milliseconds, from the start of the animation.
+	 * @param ticks Tick values, one per channel on the board.
+	 */
+	public void renderFrame(int boardIndex, long time, int[] ticks);
+}
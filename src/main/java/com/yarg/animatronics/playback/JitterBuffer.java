@@ -0,0 +1,248 @@
+package com.yarg.animatronics.playback;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Bounded buffer of timestamped frames received from a live stream. Frames are kept in arrival order, and values are
+ * read back at any stream time by interpolating between the frames around that time. When playback catches up with the
+ * newest frame the underrun policy decides what is rendered. Frame storage is allocated up front, so offering and
+ * rendering frames does not allocate.
+ */
+public class JitterBuffer {
+
+	/**
+	 * What to render when playback has caught up with the newest frame received.
+	 */
+	public static enum UnderrunPolicy {
+		/** Hold the values of the newest frame. */
+		HOLD,
+		/** Continue the motion between the two newest frames, for up to the maximum extrapolation time. */
+		EXTRAPOLATE
+	}
+
+	private static final int MAX_TICK = 4095;
+
+	private final long[] timestamps;
+	private final int[][] frames;
+	private final int numberOfChannels;
+
+	private int head;
+	private int size;
+	private long underruns;
+	private long lastUnderrunTime = Long.MIN_VALUE;
+	private long droppedFrames;
+
+	/**
+	 * Create a buffer for frames with the number of channels specified.
+	 * @param capacity Maximum number of frames held. The oldest frame is dropped when a frame arrives at a full buffer.
+	 * @param numberOfChannels Number of channel values in each frame.
+	 */
+	public JitterBuffer(int capacity, int numberOfChannels) {
+
+		if (capacity < 2) {
+			throw new IllegalArgumentException("Capacity must be at least 2 frames.");
+		}
+
+		this.numberOfChannels = numberOfChannels;
+		timestamps = new long[capacity];
+		frames = new int[capacity][numberOfChannels];
+	}
+
+	/**
+	 * Add a frame to the buffer. Frames that are not newer than the newest frame in the buffer are dropped.
+	 * @param timestamp Stream time of the frame in milliseconds.
+	 * @param values Channel values of the frame. Negative values mean the channel has no value.
+	 * @return True if the frame was added, false if it was dropped.
+	 */
+	public synchronized boolean offer(long timestamp, int[] values) {
+
+		if (size > 0 && timestamp <= timestamps[slot(size - 1)]) {
+			droppedFrames++;
+			return false;
+		}
+
+		if (size == timestamps.length) {
+			head = slot(1);
+			size--;
+			droppedFrames++;
+		}
+
+		int slot = slot(size);
+		timestamps[slot] = timestamp;
+		System.arraycopy(values, 0, frames[slot], 0, numberOfChannels);
+		size++;
+		return true;
+	}
+
+	/**
+	 * Render channel values at the stream time specified.
+	 * @param streamTime Stream time in milliseconds.
+	 * @param firstChannel First channel of the frame to render.
+	 * @param ticks Rendered values, one per channel starting at the first channel. Set to FrameSource.NO_VALUE when
+	 * the buffer is empty.
+	 * @param policy What to render when the stream time is past the newest frame.
+	 * @param maxExtrapolation Maximum time, in milliseconds, to extrapolate past the newest frame.
+	 * @return True if the stream time was past the newest frame, false otherwise.
+	 */
+	public synchronized boolean render(long streamTime, int firstChannel, int[] ticks, UnderrunPolicy policy,
+			long maxExtrapolation) {
+
+		if (size == 0) {
+			for (int channel = 0; channel < ticks.length; channel++) {
+				ticks[channel] = FrameSource.NO_VALUE;
+			}
+			return true;
+		}
+
+		// Find the newest frame at or before the stream time. Frames before the oldest frame hold the oldest frame.
+		int index = size - 1;
+		while (index > 0 && timestamps[slot(index)] > streamTime) {
+			index--;
+		}
+
+		int[] start = frames[slot(index)];
+		long startTime = timestamps[slot(index)];
+
+		if (index < size - 1 && streamTime > startTime) {
+			int[] end = frames[slot(index + 1)];
+			long endTime = timestamps[slot(index + 1)];
+			interpolate(start, startTime, end, endTime, streamTime, firstChannel, ticks);
+			return false;
+		}
+
+		// The boards of a frame are rendered at the same stream time, count the frame once.
+		boolean underrun = streamTime > startTime;
+		if (underrun && streamTime != lastUnderrunTime) {
+			underruns++;
+			lastUnderrunTime = streamTime;
+		}
+
+		if (underrun && policy == UnderrunPolicy.EXTRAPOLATE && size > 1) {
+			int[] previous = frames[slot(size - 2)];
+			long previousTime = timestamps[slot(size - 2)];
+			long extrapolatedTime = Math.min(streamTime, startTime + maxExtrapolation);
+			interpolate(previous, previousTime, start, startTime, extrapolatedTime, firstChannel, ticks);
+
+			// Channels with a value in the newest frame only hold that value.
+			for (int channel = 0; channel < ticks.length; channel++) {
+				if (ticks[channel] < 0) {
+					ticks[channel] = start[firstChannel + channel];
+				}
+			}
+			return true;
+		}
+
+		System.arraycopy(start, firstChannel, ticks, 0, ticks.length);
+		return underrun;
+	}
+
+	/**
+	 * Drop frames that are no longer needed to render the stream time specified. The newest frame at or before the
+	 * stream time and the frame before it are kept, so extrapolation still has two frames to work with.
+	 * @param streamTime Oldest stream time that will still be rendered.
+	 */
+	public synchronized void discardBefore(long streamTime) {
+
+		while (size > 2 && timestamps[slot(2)] <= streamTime) {
+			head = slot(1);
+			size--;
+		}
+	}
+
+	/**
+	 * Get the number of frames in the buffer.
+	 * @return Number of frames in the buffer.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Get the time covered by the frames in the buffer.
+	 * @return Time, in milliseconds, between the oldest and the newest frame, or 0 if the buffer is empty.
+	 */
+	public synchronized long getBufferedTime() {
+
+		if (size == 0) {
+			return 0L;
+		}
+
+		return timestamps[slot(size - 1)] - timestamps[head];
+	}
+
+	/**
+	 * Get the stream time of the oldest frame in the buffer.
+	 * @return Stream time of the oldest frame in milliseconds.
+	 * @throws IllegalStateException If the buffer is empty.
+	 */
+	public synchronized long getOldestTimestamp() {
+
+		if (size == 0) {
+			throw new IllegalStateException("Jitter buffer is empty.");
+		}
+
+		return timestamps[head];
+	}
+
+	/**
+	 * Get the number of stream times rendered past the newest frame. Renders of several boards at the same stream time
+	 * count as a single underrun.
+	 * @return Number of underruns.
+	 */
+	public synchronized long getUnderruns() {
+		return underruns;
+	}
+
+	/**
+	 * Get the number of frames dropped because they arrived out of order or the buffer was full.
+	 * @return Number of dropped frames.
+	 */
+	public synchronized long getDroppedFrames() {
+		return droppedFrames;
+	}
+
+	/*
+	 * Linearly interpolate, or extrapolate, between two frames. Channels without a value in either frame take the
+	 * value of the start frame.
+	 */
+	private void interpolate(int[] start, long startTime, int[] end, long endTime, long time, int firstChannel,
+			int[] ticks) {
+
+		for (int channel = 0; channel < ticks.length; channel++) {
+			int startTick = start[firstChannel + channel];
+			int endTick = end[firstChannel + channel];
+
+			if (startTick < 0 || endTick < 0) {
+				ticks[channel] = startTick;
+				continue;
+			}
+
+			long tick = startTick + (endTick - startTick) * (time - startTime) / (endTime - startTime);
+			ticks[channel] = (int) Math.max(0L, Math.min(MAX_TICK, tick));
+		}
+	}
+
+	/*
+	 * Ring buffer slot of the frame at the index specified, where index 0 is the oldest frame.
+	 */
+	private int slot(int index) {
+		return (head + index) % timestamps.length;
+	}
+}
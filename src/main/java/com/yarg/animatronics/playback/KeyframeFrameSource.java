@@ -0,0 +1,86 @@
+package com.yarg.animatronics.playback;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.yarg.animatronics.datamodel.AnimationCursor;
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.datamodel.PwmMotor;
+
+/**
+ * Frame source that interpolates the animation keys of every motor attached to the boards, following the interpolation
+ * mode of each motor. Each motor is read through its own animation cursor, so forward playback does not search the
+ * animation keys.
+ */
+public class KeyframeFrameSource implements FrameSource {
+
+	private final List<PwmBoard> boards;
+	private final AnimationCursor[][] boardCursors;
+	private final long duration;
+
+	/**
+	 * Create a frame source for the boards specified. Motors must be attached to the boards before the source is
+	 * created.
+	 * @param boards Boards to render frames for.
+	 */
+	public KeyframeFrameSource(List<PwmBoard> boards) {
+
+		this.boards = new ArrayList<>(boards);
+		boardCursors = new AnimationCursor[this.boards.size()][];
+
+		for (int i = 0; i < this.boards.size(); i++) {
+			List<PwmMotor> motors = this.boards.get(i).getAttachedMotors();
+			boardCursors[i] = new AnimationCursor[motors.size()];
+
+			for (int j = 0; j < motors.size(); j++) {
+				PwmMotor motor = motors.get(j);
+				boardCursors[i][j] = new AnimationCursor(motor);
+			}
+		}
+
+		duration = PwmBoard.getLastKeyTime(this.boards);
+	}
+
+	@Override
+	public List<PwmBoard> getBoards() {
+		return boards;
+	}
+
+	@Override
+	public long getDuration() {
+		return duration;
+	}
+
+	@Override
+	public void renderFrame(int boardIndex, long time, int[] ticks) {
+
+		Arrays.fill(ticks, NO_VALUE);
+
+		for (AnimationCursor cursor : boardCursors[boardIndex]) {
+			PwmMotor motor = cursor.getMotor();
+			if (motor.getNumberOfKeys() > 0) {
+				ticks[motor.getPwmChannel() - 1] = cursor.getTickAtTime(time);
+			}
+		}
+	}
+}
@@ -0,0 +1,534 @@
+package com.yarg.animatronics.playback;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.yarg.animatronics.controller.MultiBusDispatcher;
+import com.yarg.animatronics.controller.PCA69855Controller;
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.log.Logger;
+import com.yarg.animatronics.log.Logger.SEVERITY;
+import com.yarg.animatronics.metrics.PlaybackMetrics;
+import com.yarg.animatronics.timing.FramePacer;
+import com.yarg.animatronics.timing.TimeSource;
+
+/**
+ * Fixed rate frame loop that renders frames from a frame source and writes them to the boards through the controller.
+ * Every board is updated at its own signaling frequency against an absolute schedule, so a late frame does not push
+ * back the frames that follow it. Frames that can no longer make their deadline are skipped and counted as overruns.
+ *
+ * Playing through a MultiBusDispatcher writes the boards that are due at the same time on all of their I2C buses at
+ * once.
+ *
+ * With a separate render thread, frames are rendered one frame period ahead on their own thread and handed to the
+ * playback thread through a triple buffer. A slow I2C write then no longer delays rendering, and a slow render no
+ * longer delays the writes, which repeat the newest complete frame instead.
+ *
+ * Deadlines are kept against a time source, by default the system clock with hybrid park and spin sleeping. A virtual
+ * time source plays a show without waiting for real time to pass.
+ *
+ * With a bandwidth scheduler, each frame is cut down to the channels that fit the time the bus has for it before it
+ * is written, so frames keep their deadlines when more channels move at once than the bus can carry.
+ */
+public class PlaybackEngine {
+
+	private final PCA69855Controller controller;
+	private final MultiBusDispatcher dispatcher;
+	private final FrameSource source;
+	private final List<PwmBoard> boards;
+	private final int[][] frameTicks;
+	private final int[][] onTicks;
+	private final long[] framePeriods;
+	private final long[] frameDeadlines;
+	private final TripleBuffer<RenderedFrame> renderedFrames;
+	private final long[] writtenDeadlines;
+	private final PlaybackMetrics metrics = new PlaybackMetrics();
+
+	private volatile boolean running;
+	private volatile boolean looping;
+	private volatile long frameCount;
+	private volatile long frameOverruns;
+	private volatile boolean separateRenderThread;
+	private volatile BandwidthScheduler bandwidthScheduler;
+	private volatile TimeSource timeSource = TimeSource.system();
+	private Thread playbackThread;
+	private Thread renderThread;
+
+	/**
+	 * Create a playback engine. Boards of the frame source must already be added to the controller.
+	 * @param controller Controller to write frames to.
+	 * @param source Source of the frames to play.
+	 */
+	public PlaybackEngine(PCA69855Controller controller, FrameSource source) {
+		this(controller, null, source);
+	}
+
+	/**
+	 * Create a playback engine that writes each board to the bus set by PwmBoard.setI2cBusNumber. Boards of the frame
+	 * source must already be added to the dispatcher.
+	 * @param dispatcher Dispatcher to write frames to.
+	 * @param source Source of the frames to play.
+	 */
+	public PlaybackEngine(MultiBusDispatcher dispatcher, FrameSource source) {
+		this(null, dispatcher, source);
+	}
+
+	private PlaybackEngine(PCA69855Controller controller, MultiBusDispatcher dispatcher, FrameSource source) {
+
+		this.controller = controller;
+		this.dispatcher = dispatcher;
+		this.source = source;
+
+		boards = source.getBoards();
+		frameTicks = new int[boards.size()][];
+		onTicks = new int[boards.size()][];
+		framePeriods = new long[boards.size()];
+		frameDeadlines = new long[boards.size()];
+		writtenDeadlines = new long[boards.size()];
+
+		for (int i = 0; i < boards.size(); i++) {
+			PwmBoard board = boards.get(i);
+			frameTicks[i] = new int[board.getNumberOfChannels()];
+			onTicks[i] = new int[board.getNumberOfChannels()];
+			framePeriods[i] = TimeUnit.SECONDS.toNanos(1) / board.getFrequency();
+		}
+
+		renderedFrames = new TripleBuffer<>(() -> new RenderedFrame(boards));
+	}
+
+	/**
+	 * Check if playback restarts from the beginning once the end of the animation is reached.
+	 * @return True if playback loops, false otherwise.
+	 */
+	public boolean isLooping() {
+		return looping;
+	}
+
+	/**
+	 * Set if playback restarts from the beginning once the end of the animation is reached.
+	 * @param looping True to loop playback, false to stop at the end of the animation.
+	 */
+	public void setLooping(boolean looping) {
+		this.looping = looping;
+	}
+
+	/**
+	 * Check if frames are rendered on a separate thread from the one writing them to the boards.
+	 * @return True if frames are rendered on a separate thread, false otherwise.
+	 */
+	public boolean isSeparateRenderThread() {
+		return separateRenderThread;
+	}
+
+	/**
+	 * Set if frames are rendered on a separate thread from the one writing them to the boards. Takes effect the next
+	 * time playback starts. The frame source is then only called from the render thread.
+	 * @param separateRenderThread True to render frames on a separate thread, false to render them on the playback
+	 * thread.
+	 */
+	public void setSeparateRenderThread(boolean separateRenderThread) {
+		this.separateRenderThread = separateRenderThread;
+	}
+
+	/**
+	 * Get the clock frame deadlines are kept against.
+	 * @return Time source of the engine.
+	 */
+	public TimeSource getTimeSource() {
+		return timeSource;
+	}
+
+	/**
+	 * Set the clock frame deadlines are kept against. Defaults to TimeSource.system(). Takes effect the next time
+	 * playback starts.
+	 * @param timeSource Time source of the engine.
+	 */
+	public void setTimeSource(TimeSource timeSource) {
+		this.timeSource = timeSource;
+	}
+
+	/**
+	 * Get the scheduler that chooses the channels of each frame that are written.
+	 * @return Bandwidth scheduler, or null if every channel is written in every frame.
+	 */
+	public BandwidthScheduler getBandwidthScheduler() {
+		return bandwidthScheduler;
+	}
+
+	/**
+	 * Set the scheduler that chooses the channels of each frame that are written. The scheduler must be created for
+	 * the boards of the frame source and must not be shared with another engine. Set before playback starts.
+	 * @param bandwidthScheduler Bandwidth scheduler, or null to write every channel in every frame.
+	 */
+	public void setBandwidthScheduler(BandwidthScheduler bandwidthScheduler) {
+
+		if (bandwidthScheduler != null) {
+			int[] busNumbers = boards.stream().mapToInt(PwmBoard::getI2cBusNumber).distinct().toArray();
+			for (int busNumber : busNumbers) {
+				double load = bandwidthScheduler.getWorstCaseLoad(busNumber);
+				if (load > 1.0) {
+					Logger.log(SEVERITY.WARNING, () -> String.format("Full frames need %.0f%% of the time of I2C bus "
+							+ "%d, channels will be deferred when many motors move at once.", load * 100.0, busNumber));
+				}
+			}
+		}
+
+		this.bandwidthScheduler = bandwidthScheduler;
+	}
+
+	/**
+	 * Check if the engine is playing.
+	 * @return True if the engine is playing, false otherwise.
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Get the number of board frames written since playback started.
+	 * @return Number of board frames written.
+	 */
+	public long getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * Get the number of board frames that missed their deadline since playback started.
+	 * @return Number of board frames that missed their deadline.
+	 */
+	public long getFrameOverruns() {
+		return frameOverruns;
+	}
+
+	/**
+	 * Get the frame counters and the render time and frame latency histograms of the engine. Unlike getFrameCount and
+	 * getFrameOverruns the metrics are not reset when playback starts.
+	 * @return Metrics of the engine.
+	 */
+	public PlaybackMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Start playback from the beginning of the animation on a dedicated thread. Does nothing if already playing.
+	 */
+	public synchronized void start() {
+
+		if (running) {
+			return;
+		}
+
+		running = true;
+		frameCount = 0L;
+		frameOverruns = 0L;
+
+		playbackThread = new Thread(this::runFrameLoop, "animatronics-playback");
+		playbackThread.setPriority(Thread.MAX_PRIORITY);
+		playbackThread.setDaemon(true);
+		playbackThread.start();
+	}
+
+	/**
+	 * Stop playback and wait for the playback thread to finish.
+	 * @throws InterruptedException
+	 */
+	public synchronized void stop() throws InterruptedException {
+
+		running = false;
+
+		if (playbackThread != null) {
+			playbackThread.interrupt();
+			playbackThread.join();
+			playbackThread = null;
+		}
+	}
+
+	/**
+	 * Render the frame of the board at the time specified and write it to the controller.
+	 * @param boardIndex Index of the board in the frame source.
+	 * @param time Time, in milliseconds, from the start of the animation.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void writeFrame(int boardIndex, long time) throws IOException, InterruptedException {
+
+		int[] ticks = frameTicks[boardIndex];
+		source.renderFrame(boardIndex, time, ticks);
+		queueFrame(boardIndex, ticks);
+
+		if (dispatcher != null) {
+			dispatcher.flush();
+		}
+	}
+
+	/*
+	 * Write the frame of the board. Without a dispatcher the frame is written straight away, with a dispatcher it is
+	 * queued until the next flush. The frame itself is left unchanged, it may be the read buffer of the render thread.
+	 */
+	private void queueFrame(int boardIndex, int[] ticks) throws IOException {
+
+		BandwidthScheduler scheduler = bandwidthScheduler;
+		if (scheduler != null) {
+			long deferredChannels = scheduler.getDeferredChannels();
+			ticks = scheduler.schedule(boardIndex, ticks);
+			metrics.recordDeferredChannels(scheduler.getDeferredChannels() - deferredChannels);
+		}
+
+		PwmBoard board = boards.get(boardIndex);
+		if (dispatcher != null) {
+			dispatcher.writeAllPwm(board.getI2cBusNumber(), board.getPwmBoardAddress(), onTicks[boardIndex], ticks);
+		} else {
+			controller.writeAllPwm(board.getPwmBoardAddress(), onTicks[boardIndex], ticks);
+		}
+	}
+
+	/*
+	 * Frame loop. Waits for the earliest board deadline, writes every board that is due and schedules the next
+	 * deadline of each board written. With a dispatcher the boards that are due are written together.
+	 */
+	private void runFrameLoop() {
+
+		boolean separateRender = separateRenderThread;
+		TimeSource clock = timeSource;
+		long duration = source.getDuration();
+		long durationNanos = TimeUnit.MILLISECONDS.toNanos(duration);
+
+		if (separateRender) {
+			// The first frame is rendered up front, so there is always a frame to write.
+			renderFrames(0L);
+			renderedFrames.update();
+		}
+
+		long startTime = clock.nanoTime();
+		for (int i = 0; i < frameDeadlines.length; i++) {
+			frameDeadlines[i] = startTime;
+		}
+
+		if (separateRender) {
+			renderThread = new Thread(() -> runRenderLoop(clock, startTime, durationNanos), "animatronics-render");
+			renderThread.setPriority(Thread.MAX_PRIORITY);
+			renderThread.setDaemon(true);
+			renderThread.start();
+		}
+
+		int finishedBoards = 0;
+
+		try {
+			while (running && finishedBoards < frameDeadlines.length) {
+
+				long nextDeadline = Long.MAX_VALUE;
+				for (long deadline : frameDeadlines) {
+					nextDeadline = Math.min(nextDeadline, deadline);
+				}
+
+				clock.sleepUntil(nextDeadline);
+
+				RenderedFrame frame = null;
+				if (separateRender) {
+					renderedFrames.update();
+					frame = renderedFrames.getReadBuffer();
+				}
+
+				int writtenBoards = 0;
+
+				for (int i = 0; i < frameDeadlines.length; i++) {
+
+					long deadline = frameDeadlines[i];
+					if (deadline > clock.nanoTime()) {
+						continue;
+					}
+
+					long elapsed = deadline - startTime;
+					if (looping && durationNanos > 0) {
+						elapsed %= durationNanos;
+					}
+
+					if (frame != null) {
+						queueFrame(i, frame.ticks[i]);
+					} else {
+						renderFrame(i, TimeUnit.NANOSECONDS.toMillis(elapsed), frameTicks[i]);
+						queueFrame(i, frameTicks[i]);
+					}
+					frameCount++;
+
+					if (dispatcher == null) {
+						metrics.recordFrame(clock.nanoTime() - deadline);
+					} else {
+						writtenDeadlines[writtenBoards++] = deadline;
+					}
+
+					boolean finalFrameWritten = frame == null || frame.time >= duration;
+					if (!looping && elapsed >= durationNanos && finalFrameWritten) {
+						// Final frame written, the board holds its last value from here on.
+						frameDeadlines[i] = Long.MAX_VALUE;
+						finishedBoards++;
+					} else {
+						frameDeadlines[i] = scheduleNextDeadline(i, deadline, clock.nanoTime());
+					}
+				}
+
+				if (dispatcher != null) {
+					dispatcher.flush();
+
+					long writtenTime = clock.nanoTime();
+					for (int i = 0; i < writtenBoards; i++) {
+						metrics.recordFrame(writtenTime - writtenDeadlines[i]);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			Logger.log(SEVERITY.ERROR, () -> "Playback stopped, unable to write frame: " + e.getMessage());
+		} finally {
+			running = false;
+			stopRenderThread();
+		}
+	}
+
+	/*
+	 * Render loop of the separate render thread. Each frame is rendered one frame period of the fastest board ahead
+	 * of its time and published to the playback thread. Frames that can no longer be rendered ahead are skipped.
+	 */
+	private void runRenderLoop(TimeSource clock, long startTime, long durationNanos) {
+
+		long period = Long.MAX_VALUE;
+		for (long framePeriod : framePeriods) {
+			period = Math.min(period, framePeriod);
+		}
+
+		// Frame n is rendered at the deadline of frame n, for the time of frame n + 1.
+		FramePacer pacer = new FramePacer(clock, period);
+		pacer.start(startTime);
+
+		try {
+			while (running) {
+
+				long elapsed = (pacer.awaitNextFrame() + 1) * period;
+				boolean finalFrame = false;
+				if (looping && durationNanos > 0) {
+					elapsed %= durationNanos;
+				} else if (elapsed >= durationNanos) {
+					elapsed = durationNanos;
+					finalFrame = true;
+				}
+
+				renderFrames(TimeUnit.NANOSECONDS.toMillis(elapsed));
+				if (finalFrame) {
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * Render the frames of every board at the time specified into the back buffer and publish them.
+	 */
+	private void renderFrames(long time) {
+
+		RenderedFrame frame = renderedFrames.getWriteBuffer();
+		for (int i = 0; i < frame.ticks.length; i++) {
+			renderFrame(i, time, frame.ticks[i]);
+		}
+
+		frame.time = time;
+		renderedFrames.publish();
+	}
+
+	/*
+	 * Render the frame of a board, recording the render time. Render time is the processing time taken, so it is
+	 * measured against the system clock whatever the time source.
+	 */
+	private void renderFrame(int boardIndex, long time, int[] ticks) {
+
+		long startTime = System.nanoTime();
+		source.renderFrame(boardIndex, time, ticks);
+		metrics.recordRender(System.nanoTime() - startTime);
+	}
+
+	/*
+	 * Stop the render thread and wait for it to finish.
+	 */
+	private void stopRenderThread() {
+
+		Thread thread = renderThread;
+		if (thread == null) {
+			return;
+		}
+
+		// The frame source must not be called once playback has stopped, so wait for the render thread even when
+		// interrupted.
+		thread.interrupt();
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		renderThread = null;
+	}
+
+	/*
+	 * Schedule the next deadline of the board. Deadlines that have already passed are skipped so a slow frame does
+	 * not turn into a burst of late frames.
+	 */
+	private long scheduleNextDeadline(int boardIndex, long deadline, long now) {
+
+		long period = framePeriods[boardIndex];
+		long nextDeadline = deadline + period;
+
+		if (now > nextDeadline) {
+			long missedFrames = (now - deadline) / period;
+			frameOverruns += missedFrames;
+			metrics.recordDeadlineMisses(missedFrames);
+			nextDeadline = deadline + (missedFrames + 1) * period;
+		}
+
+		return nextDeadline;
+	}
+
+	/*
+	 * Frames of every board rendered at the same time.
+	 */
+	private static class RenderedFrame {
+
+		final int[][] ticks;
+		long time;
+
+		RenderedFrame(List<PwmBoard> boards) {
+
+			ticks = new int[boards.size()][];
+			for (int i = 0; i < boards.size(); i++) {
+				ticks[i] = new int[boards.get(i).getNumberOfChannels()];
+			}
+		}
+	}
+}
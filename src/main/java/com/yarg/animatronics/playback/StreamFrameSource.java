@@ -0,0 +1,271 @@
+package com.yarg.animatronics.playback;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.log.Logger;
+import com.yarg.animatronics.log.Logger.SEVERITY;
+import com.yarg.animatronics.playback.JitterBuffer.UnderrunPolicy;
+
+/**
+ * Frame source fed by a live stream of frames, such as a pipe, a socket or a file that is being appended to. Frames
+ * are read on a background thread into a jitter buffer. Playback starts once the buffer holds the target latency worth
+ * of frames and then runs that far behind the newest frame, which absorbs variance in frame arrival.
+ *
+ * Each frame on the stream is a big endian long timestamp in milliseconds followed by one short tick value per channel
+ * of every board, in board order. Negative tick values leave the channel untouched.
+ */
+public class StreamFrameSource implements FrameSource, Closeable {
+
+	private static final int DEFAULT_CAPACITY = 64;
+	private static final long DEFAULT_FRAME_INTERVAL = 20L;
+
+	// Frames older than this, relative to the playback position, are discarded from the jitter buffer.
+	private static final long DISCARD_MARGIN = 100L;
+
+	private final InputStream in;
+	private final List<PwmBoard> boards;
+	private final int[] firstChannels;
+	private final int numberOfChannels;
+	private final JitterBuffer jitterBuffer;
+	private final long targetLatency;
+
+	private volatile UnderrunPolicy underrunPolicy = UnderrunPolicy.HOLD;
+	private volatile long maxExtrapolation = 100L;
+	private volatile boolean endOfStream;
+	private Thread readerThread;
+
+	private boolean playing;
+	private long playbackStartTime;
+	private long streamStartTime;
+
+	/**
+	 * Create a stream frame source for frames at least 20 milliseconds apart. The jitter buffer is sized to hold the
+	 * target latency worth of frames.
+	 * @param in Stream to read frames from.
+	 * @param boards Boards the frames are for, in the order their values appear in each frame.
+	 * @param targetLatency Time, in milliseconds, that playback runs behind the newest frame received.
+	 */
+	public StreamFrameSource(InputStream in, List<PwmBoard> boards, long targetLatency) {
+		this(in, boards, targetLatency, DEFAULT_FRAME_INTERVAL,
+				Math.max(DEFAULT_CAPACITY, getRequiredCapacity(targetLatency, DEFAULT_FRAME_INTERVAL)));
+	}
+
+	/**
+	 * Create a stream frame source.
+	 * @param in Stream to read frames from.
+	 * @param boards Boards the frames are for, in the order their values appear in each frame.
+	 * @param targetLatency Time, in milliseconds, that playback runs behind the newest frame received.
+	 * @param frameInterval Shortest time, in milliseconds, between frames on the stream.
+	 * @param capacity Maximum number of frames held in the jitter buffer.
+	 * @throws IllegalArgumentException If the frame interval is not positive or the jitter buffer cannot hold the target
+	 * latency worth of frames. Playback would never start, because the oldest frames would be dropped before the buffer
+	 * reached the target latency.
+	 */
+	public StreamFrameSource(InputStream in, List<PwmBoard> boards, long targetLatency, long frameInterval,
+			int capacity) {
+
+		if (frameInterval <= 0) {
+			throw new IllegalArgumentException("Frame interval must be a positive value.");
+		}
+
+		if (capacity < getRequiredCapacity(targetLatency, frameInterval)) {
+			throw new IllegalArgumentException("A jitter buffer of " + capacity + " frames cannot hold " + targetLatency
+					+ " ms of frames " + frameInterval + " ms apart.");
+		}
+
+		this.in = in;
+		this.boards = new ArrayList<>(boards);
+		this.targetLatency = targetLatency;
+
+		firstChannels = new int[this.boards.size()];
+		int channels = 0;
+		for (int i = 0; i < this.boards.size(); i++) {
+			firstChannels[i] = channels;
+			channels += this.boards.get(i).getNumberOfChannels();
+		}
+
+		numberOfChannels = channels;
+		jitterBuffer = new JitterBuffer(capacity, numberOfChannels);
+	}
+
+	/**
+	 * Start reading frames from the stream on a background thread.
+	 */
+	public synchronized void start() {
+
+		if (readerThread != null) {
+			return;
+		}
+
+		readerThread = new Thread(this::readFrames, "animatronics-stream-reader");
+		readerThread.setDaemon(true);
+		readerThread.start();
+	}
+
+	/**
+	 * Get the policy used when playback catches up with the newest frame received.
+	 * @return Underrun policy.
+	 */
+	public UnderrunPolicy getUnderrunPolicy() {
+		return underrunPolicy;
+	}
+
+	/**
+	 * Set the policy used when playback catches up with the newest frame received.
+	 * @param underrunPolicy Underrun policy.
+	 */
+	public void setUnderrunPolicy(UnderrunPolicy underrunPolicy) {
+		this.underrunPolicy = underrunPolicy;
+	}
+
+	/**
+	 * Get the maximum time to extrapolate past the newest frame before holding.
+	 * @return Maximum extrapolation time in milliseconds.
+	 */
+	public long getMaxExtrapolation() {
+		return maxExtrapolation;
+	}
+
+	/**
+	 * Set the maximum time to extrapolate past the newest frame before holding.
+	 * @param maxExtrapolation Maximum extrapolation time in milliseconds.
+	 */
+	public void setMaxExtrapolation(long maxExtrapolation) {
+		this.maxExtrapolation = maxExtrapolation;
+	}
+
+	/**
+	 * Get the jitter buffer frames are read into, for monitoring underruns and dropped frames.
+	 * @return Jitter buffer.
+	 */
+	public JitterBuffer getJitterBuffer() {
+		return jitterBuffer;
+	}
+
+	/**
+	 * Check if the end of the stream has been reached.
+	 * @return True if no more frames will be read, false otherwise.
+	 */
+	public boolean isEndOfStream() {
+		return endOfStream;
+	}
+
+	@Override
+	public List<PwmBoard> getBoards() {
+		return boards;
+	}
+
+	/**
+	 * A live stream has no known end, so the duration is Long.MAX_VALUE.
+	 */
+	@Override
+	public long getDuration() {
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public void renderFrame(int boardIndex, long time, int[] ticks) {
+
+		if (!playing) {
+			if (jitterBuffer.getBufferedTime() < targetLatency && !(endOfStream && jitterBuffer.size() > 0)) {
+				Arrays.fill(ticks, NO_VALUE);
+				return;
+			}
+
+			playing = true;
+			playbackStartTime = time;
+			streamStartTime = jitterBuffer.getOldestTimestamp();
+		}
+
+		long streamTime = streamStartTime + (time - playbackStartTime);
+		jitterBuffer.render(streamTime, firstChannels[boardIndex], ticks, underrunPolicy, maxExtrapolation);
+		jitterBuffer.discardBefore(streamTime - DISCARD_MARGIN);
+	}
+
+	/**
+	 * Close the stream and stop reading frames.
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+
+		in.close();
+
+		Thread thread;
+		synchronized (this) {
+			thread = readerThread;
+		}
+
+		if (thread != null) {
+			thread.interrupt();
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/*
+	 * Number of frames the jitter buffer needs to hold the target latency worth of frames ahead of the playback
+	 * position, along with the frames kept behind it.
+	 */
+	private static int getRequiredCapacity(long targetLatency, long frameInterval) {
+		return (int) Math.min(Integer.MAX_VALUE, (targetLatency + DISCARD_MARGIN) / frameInterval + 2);
+	}
+
+	/*
+	 * Reader thread. Reads frames into the jitter buffer until the end of the stream.
+	 */
+	private void readFrames() {
+
+		DataInputStream dataIn = new DataInputStream(new BufferedInputStream(in));
+		int[] values = new int[numberOfChannels];
+
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				long timestamp = dataIn.readLong();
+				for (int channel = 0; channel < numberOfChannels; channel++) {
+					values[channel] = dataIn.readShort();
+				}
+				jitterBuffer.offer(timestamp, values);
+			}
+		} catch (EOFException e) {
+			Logger.log(SEVERITY.INFO, "End of frame stream reached.");
+		} catch (IOException e) {
+			if (!Thread.currentThread().isInterrupted()) {
+				Logger.log(SEVERITY.ERROR, () -> "Unable to read frame stream: " + e.getMessage());
+			}
+		} finally {
+			endOfStream = true;
+		}
+	}
+}
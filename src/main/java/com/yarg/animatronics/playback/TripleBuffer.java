@@ -0,0 +1,103 @@
+package com.yarg.animatronics.playback;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Wait-free handoff of the newest value from a single writer thread to a single reader thread. The writer fills the
+ * back buffer and publishes it. The reader picks up the newest published buffer whenever it likes. Neither side ever
+ * waits for the other, and the reader never sees a buffer that is still being written.
+ *
+ * The three buffers rotate between the writer (back), the reader (front) and the slot in between (middle). Publishing
+ * swaps back and middle, updating swaps middle and front. Both swaps are a single atomic exchange.
+ *
+ * @param <T> Type of the buffers.
+ */
+public class TripleBuffer<T> {
+
+	// Index of the middle buffer in the low bits, set when the middle buffer was published but not picked up yet.
+	private static final int INDEX_MASK = 0x03;
+	private static final int NEW_VALUE = 0x04;
+
+	private final Object[] buffers = new Object[3];
+	private final AtomicInteger middle = new AtomicInteger(1);
+
+	// Only touched by the writer thread.
+	private int back = 0;
+
+	// Only touched by the reader thread.
+	private int front = 2;
+
+	/**
+	 * Create a triple buffer.
+	 * @param factory Creates each of the three buffers.
+	 */
+	public TripleBuffer(Supplier<T> factory) {
+
+		for (int i = 0; i < buffers.length; i++) {
+			buffers[i] = factory.get();
+		}
+	}
+
+	/**
+	 * Get the buffer to write the next value to. Writer thread only.
+	 * @return Back buffer.
+	 */
+	public T getWriteBuffer() {
+		return buffer(back);
+	}
+
+	/**
+	 * Publish the back buffer as the newest value. The writer continues with a different buffer, get it again with
+	 * getWriteBuffer. Writer thread only.
+	 */
+	public void publish() {
+		back = middle.getAndSet(back | NEW_VALUE) & INDEX_MASK;
+	}
+
+	/**
+	 * Pick up the newest published value, if there is one the reader has not seen yet. Reader thread only.
+	 * @return True if the read buffer changed, false if no new value was published since the last update.
+	 */
+	public boolean update() {
+
+		if ((middle.get() & NEW_VALUE) == 0) {
+			return false;
+		}
+
+		front = middle.getAndSet(front) & INDEX_MASK;
+		return true;
+	}
+
+	/**
+	 * Get the buffer holding the value picked up by the last update. Reader thread only.
+	 * @return Front buffer.
+	 */
+	public T getReadBuffer() {
+		return buffer(front);
+	}
+
+	@SuppressWarnings("unchecked")
+	private T buffer(int index) {
+		return (T) buffers[index];
+	}
+}
@@ -0,0 +1,238 @@
+package com.yarg.animatronics.show;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import com.yarg.animatronics.datamodel.PwmMotor;
+
+/**
+ * Compact encoding of the animation keys of a motor. Times and ticks are stored as the difference to the previous key,
+ * zig-zag encoded so small negative differences stay small, and written as variable length integers of 7 bits per
+ * byte. The first time is relative to 0 and the first tick relative to the minimum tick of the motor.
+ *
+ * Keys sampled every 20 ms with small tick changes take 2 bytes per key instead of the 10 bytes of a long time and a
+ * short tick.
+ *
+ * <pre>
+ *   varint number of keys
+ *   per key
+ *     varint zig-zag time difference
+ *     varint zig-zag tick difference
+ * </pre>
+ */
+public final class KeyframeCodec {
+
+	// Keys decoded before they are appended to the motor in one run.
+	private static final int DECODE_BATCH = 256;
+
+	private KeyframeCodec() {
+	}
+
+	/**
+	 * Get the number of bytes encode writes for the motor.
+	 * @param motor Motor to measure.
+	 * @return Encoded size of the keys of the motor in bytes.
+	 */
+	public static int getEncodedSize(PwmMotor motor) {
+
+		int numberOfKeys = motor.getNumberOfKeys();
+		int size = getVarintSize(numberOfKeys);
+
+		long previousTime = 0L;
+		int previousTick = motor.getMinTick();
+		for (int i = 0; i < numberOfKeys; i++) {
+			long time = motor.getTimeAtIndex(i);
+			int tick = motor.getTickAtIndex(i);
+			size += getVarintSize(zigZag(time - previousTime)) + getVarintSize(zigZag(tick - previousTick));
+			previousTime = time;
+			previousTick = tick;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Write the animation keys of the motor.
+	 * @param motor Motor to encode.
+	 * @param out Stream to write to. Written one byte at a time, so it should be buffered.
+	 * @throws IOException
+	 */
+	public static void encode(PwmMotor motor, OutputStream out) throws IOException {
+
+		int numberOfKeys = motor.getNumberOfKeys();
+		writeVarint(out, numberOfKeys);
+
+		long previousTime = 0L;
+		int previousTick = motor.getMinTick();
+		for (int i = 0; i < numberOfKeys; i++) {
+			long time = motor.getTimeAtIndex(i);
+			int tick = motor.getTickAtIndex(i);
+			writeVarint(out, zigZag(time - previousTime));
+			writeVarint(out, zigZag(tick - previousTick));
+			previousTime = time;
+			previousTick = tick;
+		}
+	}
+
+	/**
+	 * Read animation keys written by encode and append them to the motor. Keys are appended in batches without
+	 * creating a key object per key.
+	 * @param in Stream to read from. Read one byte at a time, so it should be buffered.
+	 * @param motor Motor to append the keys to. Must not have keys at or after the first time read.
+	 * @throws IOException If the stream ends early or the keys are malformed.
+	 */
+	public static void decode(InputStream in, PwmMotor motor) throws IOException {
+
+		int numberOfKeys = readKeyCount(readVarint(in));
+
+		long[] times = new long[Math.min(numberOfKeys, DECODE_BATCH)];
+		int[] ticks = new int[times.length];
+
+		long time = 0L;
+		int tick = motor.getMinTick();
+		int batch = 0;
+		for (int i = 0; i < numberOfKeys; i++) {
+			time += unZigZag(readVarint(in));
+			tick += (int) unZigZag(readVarint(in));
+			times[batch] = time;
+			ticks[batch] = tick;
+			if (++batch == times.length) {
+				appendKeys(motor, times, ticks, batch);
+				batch = 0;
+			}
+		}
+
+		appendKeys(motor, times, ticks, batch);
+	}
+
+	/**
+	 * Read animation keys written by encode from a buffer into a plain layout that can be read at any index: a long time
+	 * per key followed by a short tick per key.
+	 * @param in Buffer to read from, starting at its position.
+	 * @param minTick Minimum tick of the motor the keys were encoded for.
+	 * @return Buffer holding the keys in the plain layout.
+	 * @throws IOException If the buffer ends early or the keys are malformed.
+	 */
+	static ByteBuffer decodeToPlainLayout(ByteBuffer in, int minTick) throws IOException {
+
+		try {
+			int numberOfKeys = readKeyCount(readVarint(in));
+			ByteBuffer keys = ByteBuffer.allocate(numberOfKeys * (Long.BYTES + Short.BYTES));
+			int ticksOffset = numberOfKeys * Long.BYTES;
+
+			long time = 0L;
+			int tick = minTick;
+			for (int i = 0; i < numberOfKeys; i++) {
+				time += unZigZag(readVarint(in));
+				tick += (int) unZigZag(readVarint(in));
+				keys.putLong(i * Long.BYTES, time);
+				keys.putShort(ticksOffset + i * Short.BYTES, (short) tick);
+			}
+
+			return keys;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Packed keys end early.", e);
+		}
+	}
+
+	static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	static int getVarintSize(long value) {
+
+		int size = 1;
+		while ((value & ~0x7FL) != 0) {
+			value >>>= 7;
+			size++;
+		}
+
+		return size;
+	}
+
+	static void writeVarint(OutputStream out, long value) throws IOException {
+
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		out.write((int) value);
+	}
+
+	static long readVarint(InputStream in) throws IOException {
+
+		long value = 0L;
+		for (int shift = 0; shift < Long.SIZE; shift += 7) {
+			int b = in.read();
+			if (b < 0) {
+				throw new EOFException("Keys end in the middle of a value.");
+			}
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IOException("Variable length integer is too long.");
+	}
+
+	static long readVarint(ByteBuffer in) throws IOException {
+
+		long value = 0L;
+		for (int shift = 0; shift < Long.SIZE; shift += 7) {
+			int b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IOException("Variable length integer is too long.");
+	}
+
+	private static int readKeyCount(long numberOfKeys) throws IOException {
+
+		if (numberOfKeys < 0 || numberOfKeys > Integer.MAX_VALUE / (Long.BYTES + Short.BYTES)) {
+			throw new IOException("Invalid number of keys: " + numberOfKeys + ".");
+		}
+
+		return (int) numberOfKeys;
+	}
+
+	private static void appendKeys(PwmMotor motor, long[] times, int[] ticks, int length) throws IOException {
+
+		try {
+			motor.appendAnimationKeys(times, ticks, 0, length);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Keys are not in increasing time order.", e);
+		}
+	}
+}
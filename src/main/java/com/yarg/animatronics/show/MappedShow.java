@@ -0,0 +1,463 @@
+package com.yarg.animatronics.show;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.yarg.animatronics.datamodel.InterpolationMode;
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.datamodel.PwmMotor;
+import com.yarg.animatronics.datamodel.boards.GenericPwmBoard;
+import com.yarg.animatronics.datamodel.motors.GenericPwmMotor;
+import com.yarg.animatronics.playback.BakedTimeline;
+import com.yarg.animatronics.playback.FrameSource;
+
+/**
+ * Frame source that plays a show file written by ShowFileWriter straight from a memory mapping of the file. Only the
+ * board and motor tables are read when the show is opened. Animation keys and baked frames are read from the mapping
+ * as frames are rendered, so they are served from the OS page cache instead of being copied onto the heap. Keys packed
+ * with ShowFileWriter.setPackKeys are the exception, they are decoded onto the heap when the show is opened.
+ *
+ * Boards returned by getBoards carry the motors of the show without their animation keys. When the show is opened
+ * the key times of every motor are checked, packed keys are decoded and curve coefficients are computed. That work is
+ * split per motor over a fork-join pool, so it scales with the number of cores.
+ */
+public class MappedShow implements FrameSource, Closeable {
+
+	// Number of keys to step forward before falling back to a binary search.
+	private static final int MAX_LINEAR_STEPS = 4;
+
+	// Shows with fewer keys than this are loaded on the calling thread, forking would cost more than it saves.
+	private static final long PARALLEL_LOAD_THRESHOLD = 16384L;
+
+	private final FileChannel fileChannel;
+	private final ByteBuffer buffer;
+	private final long duration;
+	private final boolean bakedFrames;
+	private final boolean packedKeys;
+	private final List<PwmBoard> boards;
+	private final MappedBoard[] mappedBoards;
+
+	/**
+	 * Open the show file specified, loading the motors on the common fork-join pool.
+	 * @param file Show file to open.
+	 * @throws IOException If the file can't be read or isn't a show file.
+	 */
+	public MappedShow(File file) throws IOException {
+		this(file, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Open the show file specified.
+	 * @param file Show file to open.
+	 * @param pool Pool to load the motors on.
+	 * @throws IOException If the file can't be read or isn't a show file.
+	 */
+	public MappedShow(File file, ForkJoinPool pool) throws IOException {
+
+		fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+		try {
+			if (fileChannel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Show files larger than 2 GB are not supported.");
+			}
+
+			buffer = fileChannel.map(MapMode.READ_ONLY, 0L, fileChannel.size());
+
+			if (buffer.getInt() != ShowFormat.MAGIC) {
+				throw new IOException("Not a show file: " + file + ".");
+			}
+
+			short version = buffer.getShort();
+			if (version != ShowFormat.VERSION) {
+				throw new IOException("Unsupported show file version: " + version + ".");
+			}
+
+			short flags = buffer.getShort();
+			bakedFrames = (flags & ShowFormat.FLAG_BAKED_FRAMES) != 0;
+			packedKeys = (flags & ShowFormat.FLAG_PACKED_KEYS) != 0;
+			duration = buffer.getLong();
+
+			int numberOfBoards = buffer.getInt();
+			List<PwmBoard> showBoards = new ArrayList<>(numberOfBoards);
+			mappedBoards = new MappedBoard[numberOfBoards];
+
+			List<MappedMotor> motors = new ArrayList<>();
+			for (int i = 0; i < numberOfBoards; i++) {
+				mappedBoards[i] = readBoard();
+				showBoards.add(mappedBoards[i].board);
+				motors.addAll(Arrays.asList(mappedBoards[i].motors));
+			}
+
+			loadMotors(motors.toArray(new MappedMotor[motors.size()]), pool);
+
+			// Motors are attached once their keys are known to be good.
+			for (MappedBoard mappedBoard : mappedBoards) {
+				for (MappedMotor motor : mappedBoard.motors) {
+					mappedBoard.board.addMotor(motor.motor);
+				}
+			}
+
+			boards = Collections.unmodifiableList(showBoards);
+		} catch (IOException | RuntimeException e) {
+			fileChannel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Check if the show file contains baked frames.
+	 * @return True if frames are read from baked frames, false if they are interpolated from animation keys.
+	 */
+	public boolean hasBakedFrames() {
+		return bakedFrames;
+	}
+
+	/*
+	 * Buffer the keys of a motor are read from, the mapping itself unless the keys are packed. Used by tests.
+	 */
+	ByteBuffer getKeyBuffer(int boardIndex, int motorIndex) {
+		return mappedBoards[boardIndex].motors[motorIndex].keys;
+	}
+
+	@Override
+	public List<PwmBoard> getBoards() {
+		return boards;
+	}
+
+	@Override
+	public long getDuration() {
+		return duration;
+	}
+
+	@Override
+	public void renderFrame(int boardIndex, long time, int[] ticks) {
+
+		MappedBoard mappedBoard = mappedBoards[boardIndex];
+
+		if (bakedFrames) {
+			long frame = BakedTimeline.getFrameAtTime(time, mappedBoard.board.getFrequency());
+			int row = (int) Math.min(frame, mappedBoard.numberOfFrames - 1);
+			int offset = mappedBoard.framesOffset + row * ticks.length * Short.BYTES;
+			for (int channel = 0; channel < ticks.length; channel++) {
+				ticks[channel] = buffer.getShort(offset + channel * Short.BYTES);
+			}
+			return;
+		}
+
+		Arrays.fill(ticks, NO_VALUE);
+		for (MappedMotor motor : mappedBoard.motors) {
+			if (motor.numberOfKeys > 0) {
+				ticks[motor.channel - 1] = motor.getTickAtTime(time);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		fileChannel.close();
+	}
+
+	/*
+	 * Load the keys of every motor, in parallel on the pool unless the show is small.
+	 */
+	private void loadMotors(MappedMotor[] motors, ForkJoinPool pool) throws IOException {
+
+		long totalKeys = 0L;
+		for (MappedMotor motor : motors) {
+			totalKeys += motor.numberOfKeys;
+		}
+
+		if (totalKeys < PARALLEL_LOAD_THRESHOLD || pool.getParallelism() < 2) {
+			for (MappedMotor motor : motors) {
+				motor.load();
+			}
+			return;
+		}
+
+		try {
+			pool.invoke(new LoadMotorsAction(motors, 0, motors.length));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/*
+	 * Read a board and its motor table at the current buffer position.
+	 */
+	private MappedBoard readBoard() throws IOException {
+
+		int address = buffer.getInt();
+		int i2cBusNumber = buffer.getInt();
+		int frequency = buffer.getInt();
+		int numberOfChannels = buffer.getInt();
+
+		GenericPwmBoard board = new GenericPwmBoard(frequency, numberOfChannels);
+		board.setPwmBoardAddress(address);
+		board.setI2cBusNumber(i2cBusNumber);
+
+		MappedBoard mappedBoard = new MappedBoard(board);
+		mappedBoard.numberOfFrames = buffer.getInt();
+		mappedBoard.framesOffset = (int) buffer.getLong();
+
+		int numberOfMotors = buffer.getInt();
+		mappedBoard.motors = new MappedMotor[numberOfMotors];
+
+		for (int i = 0; i < numberOfMotors; i++) {
+			int channel = buffer.getInt();
+			int minTick = buffer.getInt();
+			int maxTick = buffer.getInt();
+			double minAngle = buffer.getDouble();
+			double maxAngle = buffer.getDouble();
+			int mode = buffer.getShort();
+			if (mode < 0 || mode >= InterpolationMode.values().length) {
+				throw new IOException("Unknown interpolation mode: " + mode + ".");
+			}
+			InterpolationMode interpolation = InterpolationMode.values()[mode];
+
+			byte[] motorId = new byte[buffer.getShort() & 0xFFFF];
+			buffer.get(motorId);
+
+			GenericPwmMotor motor = new GenericPwmMotor(new String(motorId, StandardCharsets.UTF_8), minTick, maxTick,
+					minAngle, maxAngle);
+			motor.setPwmChannel(channel);
+			motor.setInterpolation(interpolation);
+
+			int numberOfKeys = buffer.getInt();
+			long keysOffset = buffer.getLong();
+			if (numberOfKeys < 0 || keysOffset < 0L || keysOffset > buffer.capacity()) {
+				throw new IOException("Invalid keys of the motor on channel " + channel + ".");
+			}
+
+			mappedBoard.motors[i] = new MappedMotor(motor, numberOfKeys, (int) keysOffset);
+		}
+
+		return mappedBoard;
+	}
+
+	/*
+	 * Board read from the show file and the location of its baked frames.
+	 */
+	private static class MappedBoard {
+
+		final GenericPwmBoard board;
+		int numberOfFrames;
+		int framesOffset;
+		MappedMotor[] motors;
+
+		MappedBoard(GenericPwmBoard board) {
+			this.board = board;
+		}
+	}
+
+	/*
+	 * Splits loading the motors in halves until a single motor is left.
+	 */
+	private static class LoadMotorsAction extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final MappedMotor[] motors;
+		private final int from;
+		private final int to;
+
+		LoadMotorsAction(MappedMotor[] motors, int from, int to) {
+			this.motors = motors;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new LoadMotorsAction(motors, from, middle), new LoadMotorsAction(motors, middle, to));
+				return;
+			}
+
+			for (int i = from; i < to; i++) {
+				try {
+					motors[i].load();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Animation keys of a motor within the mapping, or within a heap buffer for packed keys, with a playback cursor
+	 * that works like AnimationCursor.
+	 */
+	private class MappedMotor {
+
+		final PwmMotor motor;
+		final int channel;
+		final int numberOfKeys;
+		final int keysOffset;
+		final int minTick;
+		final int maxTick;
+
+		// Set by load.
+		ByteBuffer keys;
+		int timesOffset;
+		int ticksOffset;
+
+		int keyIndex = -1;
+
+		// Curve coefficients and the inverse duration of each segment, null for linear interpolation.
+		double[] segmentCoefficients;
+		double[] segmentScales;
+
+		MappedMotor(PwmMotor motor, int numberOfKeys, int keysOffset) {
+			this.motor = motor;
+			this.channel = motor.getPwmChannel();
+			this.numberOfKeys = numberOfKeys;
+			this.keysOffset = keysOffset;
+			this.minTick = motor.getMinTick();
+			this.maxTick = motor.getMaxTick();
+		}
+
+		/*
+		 * Locate or decode the keys, check their time order and compute the curve coefficients. Safe to run on any
+		 * thread, the mapping is only read with absolute gets.
+		 */
+		void load() throws IOException {
+
+			if (packedKeys) {
+				ByteBuffer packed = buffer.duplicate();
+				packed.position(keysOffset);
+				keys = KeyframeCodec.decodeToPlainLayout(packed, minTick);
+				if (keys.capacity() != numberOfKeys * (Long.BYTES + Short.BYTES)) {
+					throw new IOException("Packed keys do not match the number of keys of the motor on channel "
+							+ channel + ".");
+				}
+				timesOffset = 0;
+			} else {
+				if (keysOffset + (long) numberOfKeys * (Long.BYTES + Short.BYTES) > buffer.capacity()) {
+					throw new IOException("Keys of the motor on channel " + channel + " run past the end of the file.");
+				}
+				keys = buffer;
+				timesOffset = keysOffset;
+			}
+
+			ticksOffset = timesOffset + numberOfKeys * Long.BYTES;
+
+			for (int i = 1; i < numberOfKeys; i++) {
+				if (getTime(i) <= getTime(i - 1)) {
+					throw new IOException("Keys of the motor on channel " + channel + " are not in time order.");
+				}
+			}
+
+			if (motor.getInterpolation() != InterpolationMode.LINEAR) {
+				computeSegments(motor.getInterpolation());
+			}
+		}
+
+		long getTime(int index) {
+			return keys.getLong(timesOffset + index * Long.BYTES);
+		}
+
+		int getTick(int index) {
+			return keys.getShort(ticksOffset + index * Short.BYTES);
+		}
+
+		void computeSegments(InterpolationMode interpolation) {
+
+			int segments = Math.max(numberOfKeys - 1, 0);
+			segmentCoefficients = new double[segments * InterpolationMode.COEFFICIENTS_PER_SEGMENT];
+			segmentScales = new double[segments];
+
+			for (int i = 0; i < segments; i++) {
+				int previous = Math.max(i - 1, 0);
+				int next = Math.min(i + 2, numberOfKeys - 1);
+				interpolation.computeSegment(getTime(previous), getTick(previous), getTime(i), getTick(i),
+						getTime(i + 1), getTick(i + 1), getTime(next), getTick(next), segmentCoefficients,
+						i * InterpolationMode.COEFFICIENTS_PER_SEGMENT);
+				segmentScales[i] = 1.0 / (getTime(i + 1) - getTime(i));
+			}
+		}
+
+		int getTickAtTime(long time) {
+
+			seek(time);
+
+			if (keyIndex < 0) {
+				return getTick(0);
+			} else if (keyIndex == numberOfKeys - 1) {
+				return getTick(keyIndex);
+			}
+
+			long startTime = getTime(keyIndex);
+			if (segmentCoefficients != null) {
+				int offset = keyIndex * InterpolationMode.COEFFICIENTS_PER_SEGMENT;
+				double u = (time - startTime) * segmentScales[keyIndex];
+				double tick = InterpolationMode.evaluate(segmentCoefficients, offset, u);
+				return Math.max(minTick, Math.min(maxTick, (int) Math.round(tick)));
+			}
+
+			long endTime = getTime(keyIndex + 1);
+			int startTick = getTick(keyIndex);
+			int endTick = getTick(keyIndex + 1);
+			return (int) (startTick + (endTick - startTick) * (time - startTime) / (endTime - startTime));
+		}
+
+		void seek(long time) {
+
+			int low = 0;
+			if (keyIndex >= 0 && getTime(keyIndex) <= time) {
+				for (int step = 0; step < MAX_LINEAR_STEPS; step++) {
+					if (keyIndex == numberOfKeys - 1 || getTime(keyIndex + 1) > time) {
+						return;
+					}
+					keyIndex++;
+				}
+				low = keyIndex;
+			}
+
+			int high = numberOfKeys - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				if (getTime(middle) <= time) {
+					low = middle + 1;
+				} else {
+					high = middle - 1;
+				}
+			}
+
+			keyIndex = high;
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package com.yarg.animatronics.show;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.datamodel.PwmMotor;
+import com.yarg.animatronics.playback.BakedTimeline;
+
+/**
+ * Writes boards, motors and animation keys to a binary show file that can be played back through MappedShow.
+ */
+public class ShowFileWriter {
+
+	private boolean includeBakedFrames;
+	private boolean packKeys;
+
+	/**
+	 * Check if baked frames are written along with the animation keys.
+	 * @return True if baked frames are written, false otherwise.
+	 */
+	public boolean isIncludeBakedFrames() {
+		return includeBakedFrames;
+	}
+
+	/**
+	 * Set if baked frames are written along with the animation keys. Baked frames make the file larger, but playback
+	 * reads a single row per frame instead of interpolating the keys.
+	 * @param includeBakedFrames True to write baked frames, false otherwise.
+	 */
+	public void setIncludeBakedFrames(boolean includeBakedFrames) {
+		this.includeBakedFrames = includeBakedFrames;
+	}
+
+	/**
+	 * Check if animation keys are packed with KeyframeCodec.
+	 * @return True if keys are packed, false if they are written in the plain layout.
+	 */
+	public boolean isPackKeys() {
+		return packKeys;
+	}
+
+	/**
+	 * Set if animation keys are packed with KeyframeCodec. Packed keys make the file several times smaller, but they
+	 * are decoded onto the heap when the show is opened instead of being read from the mapping.
+	 * @param packKeys True to pack keys, false to write them in the plain layout.
+	 */
+	public void setPackKeys(boolean packKeys) {
+		this.packKeys = packKeys;
+	}
+
+	/**
+	 * Write the boards, their attached motors and the animation keys of the motors to the file specified.
+	 * @param file File to write.
+	 * @param boards Boards to write.
+	 * @throws IOException
+	 */
+	public void write(File file, List<PwmBoard> boards) throws IOException {
+
+		BakedTimeline timeline = includeBakedFrames ? new BakedTimeline(boards) : null;
+		long duration = PwmBoard.getLastKeyTime(boards);
+
+		long[][] keyOffsets = new long[boards.size()][];
+		long[] frameOffsets = new long[boards.size()];
+
+		// The header has a fixed size regardless of the offsets written to it, so measure it first.
+		long dataOffset = ShowFormat.align(writeHeader(boards, duration, timeline, keyOffsets, frameOffsets).length);
+
+		for (int i = 0; i < boards.size(); i++) {
+			List<PwmMotor> motors = boards.get(i).getAttachedMotors();
+			keyOffsets[i] = new long[motors.size()];
+			for (int j = 0; j < motors.size(); j++) {
+				keyOffsets[i][j] = dataOffset;
+				dataOffset = ShowFormat.align(dataOffset + getKeysSize(motors.get(j)));
+			}
+		}
+
+		if (timeline != null) {
+			for (int i = 0; i < boards.size(); i++) {
+				frameOffsets[i] = dataOffset;
+				long numberOfValues = (long) timeline.getFrameCount(i) * boards.get(i).getNumberOfChannels();
+				dataOffset = ShowFormat.align(dataOffset + numberOfValues * Short.BYTES);
+			}
+		}
+
+		if (dataOffset > Integer.MAX_VALUE) {
+			throw new IOException("Show is too large to write, " + dataOffset + " bytes.");
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+
+			out.write(writeHeader(boards, duration, timeline, keyOffsets, frameOffsets));
+			pad(out);
+
+			for (PwmBoard board : boards) {
+				for (PwmMotor motor : board.getAttachedMotors()) {
+					if (packKeys) {
+						KeyframeCodec.encode(motor, out);
+						pad(out);
+						continue;
+					}
+					for (int k = 0; k < motor.getNumberOfKeys(); k++) {
+						out.writeLong(motor.getTimeAtIndex(k));
+					}
+					for (int k = 0; k < motor.getNumberOfKeys(); k++) {
+						out.writeShort(motor.getTickAtIndex(k));
+					}
+					pad(out);
+				}
+			}
+
+			if (timeline != null) {
+				for (int i = 0; i < boards.size(); i++) {
+					int[] ticks = new int[boards.get(i).getNumberOfChannels()];
+					for (int frame = 0; frame < timeline.getFrameCount(i); frame++) {
+						timeline.getFrame(i, frame, ticks);
+						for (int tick : ticks) {
+							out.writeShort(tick);
+						}
+					}
+					pad(out);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Serialize the header and the board and motor tables.
+	 */
+	private byte[] writeHeader(List<PwmBoard> boards, long duration, BakedTimeline timeline, long[][] keyOffsets,
+			long[] frameOffsets) throws IOException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeInt(ShowFormat.MAGIC);
+		out.writeShort(ShowFormat.VERSION);
+		int flags = (timeline != null ? ShowFormat.FLAG_BAKED_FRAMES : 0) | (packKeys ? ShowFormat.FLAG_PACKED_KEYS : 0);
+		out.writeShort(flags);
+		out.writeLong(duration);
+		out.writeInt(boards.size());
+
+		for (int i = 0; i < boards.size(); i++) {
+			PwmBoard board = boards.get(i);
+			List<PwmMotor> motors = board.getAttachedMotors();
+
+			out.writeInt(board.getPwmBoardAddress());
+			out.writeInt(board.getI2cBusNumber());
+			out.writeInt(board.getFrequency());
+			out.writeInt(board.getNumberOfChannels());
+			out.writeInt(timeline != null ? timeline.getFrameCount(i) : 0);
+			out.writeLong(frameOffsets[i]);
+			out.writeInt(motors.size());
+
+			for (int j = 0; j < motors.size(); j++) {
+				PwmMotor motor = motors.get(j);
+				byte[] motorId = motor.getMotorId().getBytes(StandardCharsets.UTF_8);
+
+				out.writeInt(motor.getPwmChannel());
+				out.writeInt(motor.getMinTick());
+				out.writeInt(motor.getMaxTick());
+				out.writeDouble(motor.getMinAngle());
+				out.writeDouble(motor.getMaxAngle());
+				out.writeShort(motor.getInterpolation().ordinal());
+				out.writeShort(motorId.length);
+				out.write(motorId);
+				out.writeInt(motor.getNumberOfKeys());
+				out.writeLong(keyOffsets[i] != null ? keyOffsets[i][j] : 0L);
+			}
+		}
+
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/*
+	 * Size of the keys block of the motor, without padding.
+	 */
+	private long getKeysSize(PwmMotor motor) {
+
+		if (packKeys) {
+			return KeyframeCodec.getEncodedSize(motor);
+		}
+
+		return (long) motor.getNumberOfKeys() * (Long.BYTES + Short.BYTES);
+	}
+
+	/*
+	 * Pad the output with zeros up to the data alignment.
+	 */
+	private void pad(DataOutputStream out) throws IOException {
+
+		while (out.size() % ShowFormat.DATA_ALIGNMENT != 0) {
+			out.writeByte(0);
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.yarg.animatronics.show;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Layout of the binary show file. All values are big endian.
+ *
+ * <pre>
+ * Header
+ *   int    magic ("ANIM")
+ *   short  version
+ *   short  flags
+ *   long   duration in milliseconds
+ *   int    number of boards
+ * Board table, per board
+ *   int    board address
+ *   int    I2C bus number
+ *   int    frequency
+ *   int    number of channels
+ *   int    number of baked frames (0 when the show has no baked frames)
+ *   long   file offset of the baked frames
+ *   int    number of motors
+ *   Motor table, per motor
+ *     int    PWM channel
+ *     int    min tick
+ *     int    max tick
+ *     double min angle
+ *     double max angle
+ *     short  interpolation mode, ordinal of InterpolationMode
+ *     short  length of the motor ID in bytes
+ *     byte[] motor ID, UTF-8
+ *     int    number of keys
+ *     long   file offset of the keys
+ * Data, each block aligned to 8 bytes
+ *   keys          long time per key, followed by short tick per key
+ *                 or, with packed keys, the keys encoded by KeyframeCodec
+ *   baked frames  short tick per channel per frame, frame-major
+ * </pre>
+ */
+final class ShowFormat {
+
+	static final int MAGIC = 0x414E494D;
+	static final short VERSION = 1;
+
+	static final short FLAG_BAKED_FRAMES = 0x01;
+	static final short FLAG_PACKED_KEYS = 0x02;
+
+	static final int DATA_ALIGNMENT = 8;
+
+	private ShowFormat() {
+	}
+
+	/**
+	 * Round the file offset up to the data alignment.
+	 * @param offset File offset.
+	 * @return Aligned file offset.
+	 */
+	static long align(long offset) {
+		return (offset + DATA_ALIGNMENT - 1) & ~(long) (DATA_ALIGNMENT - 1);
+	}
+}
@@ -0,0 +1,147 @@
+package com.yarg.animatronics.timing;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Paces a loop to a fixed frame period. Deadlines are taken from an absolute schedule, the start time plus a whole
+ * number of periods, rather than from the time the previous frame woke up, so wake-up errors and slow frames never add
+ * up to drift. When a frame wakes up more than a period late, the frames whose deadline has also passed are skipped
+ * and counted as missed.
+ *
+ * A pacer must only be used by a single thread.
+ */
+public class FramePacer {
+
+	private final TimeSource timeSource;
+	private final long periodNanos;
+
+	private long startTime;
+	private long nextFrame;
+	private long missedFrames;
+	private long lastLatenessNanos;
+	private long maxLatenessNanos;
+
+	/**
+	 * Create a pacer. Call start before waiting for the first frame.
+	 * @param timeSource Clock the frame deadlines are measured against.
+	 * @param periodNanos Frame period in nanoseconds.
+	 */
+	public FramePacer(TimeSource timeSource, long periodNanos) {
+
+		if (periodNanos <= 0) {
+			throw new IllegalArgumentException("Frame period must be greater than 0.");
+		}
+
+		this.timeSource = timeSource;
+		this.periodNanos = periodNanos;
+	}
+
+	/**
+	 * Start the schedule now, with the deadline of the first frame at the current time.
+	 */
+	public void start() {
+		start(timeSource.nanoTime());
+	}
+
+	/**
+	 * Start the schedule at the time specified, with the deadline of the first frame at that time. Resets the missed
+	 * frames and the lateness.
+	 * @param startTime Deadline of frame 0, in nanoseconds of the time source.
+	 */
+	public void start(long startTime) {
+		this.startTime = startTime;
+		nextFrame = 0L;
+		missedFrames = 0L;
+		lastLatenessNanos = 0L;
+		maxLatenessNanos = 0L;
+	}
+
+	/**
+	 * Wait for the deadline of the next frame.
+	 * @return Index of the frame whose deadline was reached. Frame n is due at the start time plus n periods.
+	 * @throws InterruptedException If the thread is interrupted while waiting.
+	 */
+	public long awaitNextFrame() throws InterruptedException {
+
+		long deadline = getDeadline(nextFrame);
+		timeSource.sleepUntil(deadline);
+
+		long lateness = timeSource.nanoTime() - deadline;
+		lastLatenessNanos = lateness;
+		maxLatenessNanos = Math.max(maxLatenessNanos, lateness);
+
+		// Frames that came due while this one was late are skipped, the newest one is returned instead.
+		long skippedFrames = lateness / periodNanos;
+		missedFrames += skippedFrames;
+
+		long frame = nextFrame + skippedFrames;
+		nextFrame = frame + 1;
+		return frame;
+	}
+
+	/**
+	 * Get the deadline of a frame.
+	 * @param frame Index of the frame.
+	 * @return Deadline in nanoseconds of the time source.
+	 */
+	public long getDeadline(long frame) {
+		return startTime + frame * periodNanos;
+	}
+
+	/**
+	 * Get the frame period.
+	 * @return Frame period in nanoseconds.
+	 */
+	public long getPeriodNanos() {
+		return periodNanos;
+	}
+
+	/**
+	 * Get the index of the frame awaitNextFrame waits for next.
+	 * @return Index of the next frame.
+	 */
+	public long getNextFrame() {
+		return nextFrame;
+	}
+
+	/**
+	 * Get the number of frames skipped because an earlier frame woke up more than a period late.
+	 * @return Number of missed frames since the pacer started.
+	 */
+	public long getMissedFrames() {
+		return missedFrames;
+	}
+
+	/**
+	 * Get how late the last frame woke up after its deadline.
+	 * @return Lateness of the last frame in nanoseconds.
+	 */
+	public long getLastLatenessNanos() {
+		return lastLatenessNanos;
+	}
+
+	/**
+	 * Get the latest any frame woke up after its deadline since the pacer started.
+	 * @return Largest lateness in nanoseconds.
+	 */
+	public long getMaxLatenessNanos() {
+		return maxLatenessNanos;
+	}
+}
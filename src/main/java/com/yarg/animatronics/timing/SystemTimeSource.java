@@ -0,0 +1,91 @@
+package com.yarg.animatronics.timing;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time source backed by System.nanoTime. Thread.sleep on Linux wakes up one to two milliseconds late, which is 5 to 10
+ * percent of a 50 Hz frame. Sleeping here parks the thread until the spin window before the deadline, then spins for
+ * the rest, trading a little CPU time for wake-ups within microseconds of the deadline.
+ *
+ * The spin window should be a little longer than the time parkNanos oversleeps by on the target system, which is
+ * about 50 microseconds with the default timer slack on Linux.
+ */
+public class SystemTimeSource implements TimeSource {
+
+	/**
+	 * Default time spun before a deadline.
+	 */
+	public static final long DEFAULT_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+	static final SystemTimeSource SHARED = new SystemTimeSource();
+
+	private final long spinNanos;
+
+	/**
+	 * Create a time source that spins for the last DEFAULT_SPIN_NANOS before a deadline.
+	 */
+	public SystemTimeSource() {
+		this(DEFAULT_SPIN_NANOS);
+	}
+
+	/**
+	 * Create a time source that spins for the time specified before a deadline.
+	 * @param spinNanos Time spun before a deadline in nanoseconds. 0 parks until the deadline without spinning.
+	 */
+	public SystemTimeSource(long spinNanos) {
+
+		if (spinNanos < 0) {
+			throw new IllegalArgumentException("Spin time must not be negative.");
+		}
+
+		this.spinNanos = spinNanos;
+	}
+
+	/**
+	 * Get the time spun before a deadline.
+	 * @return Spin time in nanoseconds.
+	 */
+	public long getSpinNanos() {
+		return spinNanos;
+	}
+
+	@Override
+	public long nanoTime() {
+		return System.nanoTime();
+	}
+
+	@Override
+	public void sleepUntil(long deadline) throws InterruptedException {
+
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			if (remaining > spinNanos) {
+				// Parking may return early, the loop parks again for whatever is left.
+				LockSupport.parkNanos(remaining - spinNanos);
+			}
+		}
+	}
+}
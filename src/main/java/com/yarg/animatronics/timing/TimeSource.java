@@ -0,0 +1,57 @@
+package com.yarg.animatronics.timing;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Clock that frame deadlines are measured and waited for against. Times are in nanoseconds from an arbitrary origin,
+ * like System.nanoTime, and are only meaningful relative to other times of the same source.
+ */
+public interface TimeSource {
+
+	/**
+	 * Get the time source of the running system, sleeping with a hybrid of parking and spinning.
+	 * @return Shared system time source.
+	 */
+	static TimeSource system() {
+		return SystemTimeSource.SHARED;
+	}
+
+	/**
+	 * Get the current time.
+	 * @return Current time in nanoseconds.
+	 */
+	long nanoTime();
+
+	/**
+	 * Wait until the time specified. Returns straight away if the time has already passed.
+	 * @param deadline Time to wait for, in nanoseconds of this time source.
+	 * @throws InterruptedException If the thread is interrupted while waiting.
+	 */
+	void sleepUntil(long deadline) throws InterruptedException;
+
+	/**
+	 * Wait for the duration specified.
+	 * @param nanos Time to wait in nanoseconds.
+	 * @throws InterruptedException If the thread is interrupted while waiting.
+	 */
+	default void sleep(long nanos) throws InterruptedException {
+		sleepUntil(nanoTime() + nanos);
+	}
+}
@@ -0,0 +1,123 @@
+package com.yarg.animatronics.timing;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Time source that only moves when told to, so code that waits for deadlines can be tested deterministically and
+ * without waiting for real time to pass.
+ *
+ * With auto-advance, sleeping moves the clock forward to the deadline and returns straight away, so a frame loop runs
+ * through a whole animation as fast as it can render. This suits a single thread waiting on the clock. Without
+ * auto-advance, sleeping threads wait until another thread advances the clock past their deadline.
+ */
+public class VirtualTimeSource implements TimeSource {
+
+	private final boolean autoAdvance;
+	private long time;
+	private int sleepingThreads;
+
+	/**
+	 * Create a time source starting at 0 that advances to the deadline whenever a thread sleeps.
+	 */
+	public VirtualTimeSource() {
+		this(0L, true);
+	}
+
+	/**
+	 * Create a time source starting at the time specified.
+	 * @param startTime Initial time in nanoseconds.
+	 * @param autoAdvance True to advance the clock to the deadline whenever a thread sleeps, false to only advance it
+	 * through advance and advanceTo.
+	 */
+	public VirtualTimeSource(long startTime, boolean autoAdvance) {
+		this.time = startTime;
+		this.autoAdvance = autoAdvance;
+	}
+
+	/**
+	 * Check if sleeping advances the clock to the deadline.
+	 * @return True if sleeping advances the clock, false otherwise.
+	 */
+	public boolean isAutoAdvance() {
+		return autoAdvance;
+	}
+
+	/**
+	 * Move the clock forward, waking the threads whose deadline is reached.
+	 * @param nanos Time to move forward by in nanoseconds.
+	 */
+	public synchronized void advance(long nanos) {
+
+		if (nanos < 0) {
+			throw new IllegalArgumentException("Time can't move backwards.");
+		}
+
+		time += nanos;
+		notifyAll();
+	}
+
+	/**
+	 * Move the clock forward to the time specified, waking the threads whose deadline is reached. Does nothing if the
+	 * time has already passed.
+	 * @param time Time to move to in nanoseconds.
+	 */
+	public synchronized void advanceTo(long time) {
+
+		if (time > this.time) {
+			this.time = time;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Get the number of threads waiting for the clock to reach their deadline. Always 0 with auto-advance.
+	 * @return Number of sleeping threads.
+	 */
+	public synchronized int getSleepingThreads() {
+		return sleepingThreads;
+	}
+
+	@Override
+	public synchronized long nanoTime() {
+		return time;
+	}
+
+	@Override
+	public synchronized void sleepUntil(long deadline) throws InterruptedException {
+
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+
+		if (autoAdvance) {
+			advanceTo(deadline);
+			return;
+		}
+
+		sleepingThreads++;
+		try {
+			while (time - deadline < 0) {
+				wait();
+			}
+		} finally {
+			sleepingThreads--;
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package com.yarg.animatronics.controller;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.yarg.animatronics.controller.BoardConfigurationStore.BoardSnapshot;
+import com.yarg.animatronics.controller.SimulatedI2CBus.ClockRate;
+import com.yarg.animatronics.datamodel.boards.PCA6985PwmBoard;
+import com.yarg.animatronics.timing.VirtualTimeSource;
+
+public class BoardConfigurationStoreTest {
+
+	private static final int BOARD_ADDRESS = 0x40;
+
+	private File storeFile;
+	private SimulatedI2CBus bus;
+	private SimulatedPca9685 device;
+	private PCA6985PwmBoard board;
+	private int[] on;
+	private int[] off;
+
+	@BeforeMethod(alwaysRun = true)
+	public void beforeTest() throws IOException, InterruptedException {
+
+		storeFile = File.createTempFile("boards", ".cfg");
+		storeFile.delete();
+
+		bus = new SimulatedI2CBus(1, ClockRate.FAST);
+		device = bus.addDevice(BOARD_ADDRESS);
+		board = new PCA6985PwmBoard();
+		board.setPwmBoardAddress(BOARD_ADDRESS);
+
+		on = new int[16];
+		off = new int[16];
+		for (int channel = 0; channel < 16; channel++) {
+			off[channel] = channel < 8 ? 300 + channel : -1;
+		}
+
+		// First session: configure the board, move the first eight channels and save on shutdown.
+		PCA69855Controller controller = createController(new VirtualTimeSource());
+		controller.addBoard(board);
+		controller.setAutoIncrement(true);
+		controller.writeAllPwm(BOARD_ADDRESS, on, off);
+		controller.saveConfiguration();
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void afterTest() {
+		storeFile.delete();
+	}
+
+	@Test(enabled=true, groups={"BoardConfigurationStoreTests","unit"})
+	public void saveAndLoad() throws IOException {
+
+		BoardConfigurationStore store = new BoardConfigurationStore(storeFile);
+		store.load();
+
+		BoardSnapshot snapshot = store.getSnapshot(1, BOARD_ADDRESS);
+		assertThat(store.getNumberOfSnapshots(), is(equalTo(1)));
+		assertThat(snapshot.getMode1(), is(equalTo(PCA6985PwmBoard.MODE1_AI)));
+		assertThat(snapshot.getMode2(), is(equalTo(0x04)));
+		assertThat(snapshot.getPreScale(), is(equalTo(121)));
+		assertThat(snapshot.getKnownChannels(), is(equalTo(0x00FF)));
+		assertThat(snapshot.getLedRegisters()[4 * 3 + 2], is(equalTo((byte) 303)));
+		assertThat(store.getSnapshot(2, BOARD_ADDRESS), is(nullValue()));
+	}
+
+	@Test(enabled=true, groups={"BoardConfigurationStoreTests","unit"})
+	public void missingFileHoldsNothing() throws IOException {
+
+		BoardConfigurationStore store = new BoardConfigurationStore(new File(storeFile.getPath() + ".missing"));
+		store.load();
+
+		assertThat(store.getNumberOfSnapshots(), is(equalTo(0)));
+	}
+
+	@Test(enabled=true, groups={"BoardConfigurationStoreTests","unit"}, expectedExceptions=IOException.class)
+	public void loadOtherFile() throws IOException {
+
+		Files.write(storeFile.toPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+		new BoardConfigurationStore(storeFile).load();
+	}
+
+	@Test(enabled=true, groups={"BoardConfigurationStoreTests","unit"}, expectedExceptions=IOException.class)
+	public void loadTruncatedFile() throws IOException {
+
+		byte[] bytes = Files.readAllBytes(storeFile.toPath());
+		Files.write(storeFile.toPath(), Arrays.copyOf(bytes, bytes.length - 10));
+		new BoardConfigurationStore(storeFile).load();
+	}
+
+	@Test(enabled=true, groups={"BoardConfigurationStoreTests","unit"})
+	public void configuredBoardIsNotReset() throws IOException, InterruptedException {
+
+		VirtualTimeSource clock = new VirtualTimeSource();
+		PCA69855Controller controller = createController(clock);
+		controller.setAutoIncrement(true);
+
+		bus.resetCounters();
+		controller.addBoard(board);
+
+		// Three mode register reads and one read of every LED register, then the mode registers read again to save the
+		// board. No writes and no oscillator wait.
+		assertThat(bus.getTransactions(), is(equalTo(7L)));
+		assertThat(clock.nanoTime(), is(equalTo(0L)));
+
+		// The saved channel values are known, so writing them again does not touch the bus.
+		bus.resetCounters();
+		controller.writeAllPwm(BOARD_ADDRESS, on, off);
+		assertThat(bus.getTransactions(), is(equalTo(0L)));
+	}
+
+	@Test(enabled=true, groups={"BoardConfigurationStoreTests","unit"})
+	public void autoIncrementIsBroughtInLine() throws IOException, InterruptedException {
+
+		PCA69855Controller controller = createController(new VirtualTimeSource());
+		controller.addBoard(board);
+
+		assertThat(device.getRegister(PCA6985PwmBoard.MODE1), is(equalTo(0x00)));
+		assertThat(device.isSleeping(), is(equalTo(false)));
+	}
+
+	@Test(enabled=true, groups={"BoardConfigurationStoreTests","unit"})
+	public void powerCycledBoardIsReset() throws IOException, InterruptedException {
+
+		device.powerOn();
+
+		VirtualTimeSource clock = new VirtualTimeSource();
+		PCA69855Controller controller = createController(clock);
+		controller.addBoard(board);
+
+		assertThat(device.isSleeping(), is(equalTo(false)));
+		assertThat(device.getRegister(PCA6985PwmBoard.PRE_SCALE), is(equalTo(121)));
+		assertThat(clock.nanoTime(), is(equalTo(TimeUnit.MICROSECONDS.toNanos(500))));
+	}
+
+	@Test(enabled=true, groups={"BoardConfigurationStoreTests","unit"})
+	public void boardChangedSinceSaveIsReset() throws IOException, InterruptedException {
+
+		bus.getDevice(BOARD_ADDRESS).write(PCA6985PwmBoard.LED2_OFF_L, (byte) 0x10);
+
+		VirtualTimeSource clock = new VirtualTimeSource();
+		PCA69855Controller controller = createController(clock);
+		controller.setAutoIncrement(true);
+		controller.addBoard(board);
+		assertThat(clock.nanoTime(), is(equalTo(TimeUnit.MICROSECONDS.toNanos(500))));
+
+		controller.writeAllPwm(BOARD_ADDRESS, on, off);
+		assertThat(device.getOffTick(2), is(equalTo(302)));
+	}
+
+	@Test(enabled=true, groups={"BoardConfigurationStoreTests","unit"})
+	public void removedBoardIsForgotten() throws IOException, InterruptedException {
+
+		PCA69855Controller controller = createController(new VirtualTimeSource());
+		controller.addBoard(board);
+		controller.removeBoard(board);
+
+		assertThat(controller.getConfigurationStore().getSnapshot(1, BOARD_ADDRESS), is(nullValue()));
+		assertThat(loadStore().getSnapshot(1, BOARD_ADDRESS), is(nullValue()));
+	}
+
+	@Test(enabled=true, groups={"BoardConfigurationStoreTests","unit"})
+	public void addedBoardIsSaved() throws IOException, InterruptedException {
+
+		storeFile.delete();
+		device.powerOn();
+
+		PCA69855Controller controller = createController(new VirtualTimeSource());
+		controller.addBoard(board);
+
+		BoardSnapshot snapshot = loadStore().getSnapshot(1, BOARD_ADDRESS);
+		assertThat(snapshot.getPreScale(), is(equalTo(121)));
+		assertThat(snapshot.getKnownChannels(), is(equalTo(0)));
+	}
+
+	@Test(enabled=true, groups={"BoardConfigurationStoreTests","unit"})
+	public void closeSavesChannelValues() throws IOException, InterruptedException {
+
+		PCA69855Controller controller = createController(new VirtualTimeSource());
+		controller.setAutoIncrement(true);
+		controller.addBoard(board);
+		off[12] = 312;
+		controller.writeAllPwm(BOARD_ADDRESS, on, off);
+		controller.close();
+
+		BoardSnapshot snapshot = loadStore().getSnapshot(1, BOARD_ADDRESS);
+		assertThat(snapshot.getKnownChannels(), is(equalTo(0x10FF)));
+		assertThat(snapshot.getLedRegisters()[4 * 12 + 2], is(equalTo((byte) 312)));
+	}
+
+	@Test(enabled=true, groups={"BoardConfigurationStoreTests","unit"})
+	public void boardsNoLongerOnTheControllerAreDropped() throws IOException, InterruptedException {
+
+		PCA69855Controller controller = createController(new VirtualTimeSource());
+		BoardConfigurationStore store = controller.getConfigurationStore();
+		byte[] ledRegisters = new byte[64];
+		store.putSnapshot(new BoardSnapshot(1, 0x41, 0, 0x04, 121, 0, ledRegisters));
+		store.putSnapshot(new BoardSnapshot(2, 0x41, 0, 0x04, 121, 0, ledRegisters));
+		controller.addBoard(board);
+		controller.saveConfiguration();
+
+		store = loadStore();
+		assertThat(store.getNumberOfSnapshots(), is(equalTo(2)));
+		assertThat(store.getSnapshot(1, 0x41), is(nullValue()));
+		assertThat(store.getSnapshot(2, 0x41).getPreScale(), is(equalTo(121)));
+	}
+
+	private BoardConfigurationStore loadStore() throws IOException {
+
+		BoardConfigurationStore store = new BoardConfigurationStore(storeFile);
+		store.load();
+		return store;
+	}
+
+	private PCA69855Controller createController(VirtualTimeSource clock) throws IOException {
+
+		BoardConfigurationStore store = new BoardConfigurationStore(storeFile);
+		store.load();
+
+		PCA69855Controller controller = new PCA69855Controller(bus, false);
+		controller.setTimeSource(clock);
+		controller.setConfigurationStore(store);
+		return controller;
+	}
+}
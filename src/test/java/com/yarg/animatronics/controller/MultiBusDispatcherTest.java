@@ -0,0 +1,273 @@
+package com.yarg.animatronics.controller;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.pi4j.io.i2c.I2CBus;
+import com.pi4j.io.i2c.I2CDevice;
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.datamodel.boards.PCA6985PwmBoard;
+
+/*
+ * Dispatcher tests that run against in-memory I2C buses, so they do not need a Raspberry PI.
+ */
+public class MultiBusDispatcherTest {
+
+	private static final int BOARD_ADDRESS = 0x40;
+
+	private TestI2CDevice device0;
+	private TestI2CDevice device1;
+	private MultiBusDispatcher dispatcher;
+
+	@BeforeMethod(alwaysRun = true)
+	public void beforeTest() throws Exception {
+
+		device0 = new TestI2CDevice();
+		device1 = new TestI2CDevice();
+
+		dispatcher = new MultiBusDispatcher(false);
+		dispatcher.addBus(0, new PCA69855Controller(new TestI2CBus(0, device0), false));
+		dispatcher.addBus(1, new PCA69855Controller(new TestI2CBus(1, device1), false));
+
+		for (int busNumber = 0; busNumber < 2; busNumber++) {
+			TestPwmBoard board = new TestPwmBoard();
+			board.setPwmBoardAddress(BOARD_ADDRESS);
+			board.setI2cBusNumber(busNumber);
+			dispatcher.addBoard(board);
+		}
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void afterTest() {
+		dispatcher.close();
+	}
+
+	@Test(enabled=true, groups={"MultiBusDispatcherTests","unit"})
+	public void flushWritesEveryBus() throws Exception {
+
+		int[] on = new int[16];
+		int[] off0 = new int[16];
+		int[] off1 = new int[16];
+		off0[0] = 0x123;
+		off1[0] = 0x234;
+
+		dispatcher.writeAllPwm(0, BOARD_ADDRESS, on, off0);
+		dispatcher.writeAllPwm(1, BOARD_ADDRESS, on, off1);
+		dispatcher.flush();
+
+		assertThat(device0.registers[PCA6985PwmBoard.LED0_OFF_L], is(equalTo((byte) 0x23)));
+		assertThat(device0.registers[PCA6985PwmBoard.LED0_OFF_H], is(equalTo((byte) 0x01)));
+		assertThat(device1.registers[PCA6985PwmBoard.LED0_OFF_L], is(equalTo((byte) 0x34)));
+		assertThat(device1.registers[PCA6985PwmBoard.LED0_OFF_H], is(equalTo((byte) 0x02)));
+	}
+
+	@Test(enabled=true, groups={"MultiBusDispatcherTests","unit"})
+	public void flushRepeatedFrames() throws Exception {
+
+		int[] on = new int[16];
+		int[] off = new int[16];
+
+		for (int frame = 1; frame <= 50; frame++) {
+			off[0] = frame;
+			dispatcher.writeAllPwm(0, BOARD_ADDRESS, on, off);
+			dispatcher.writeAllPwm(1, BOARD_ADDRESS, on, off);
+			dispatcher.flush();
+
+			assertThat(device0.registers[PCA6985PwmBoard.LED0_OFF_L], is(equalTo((byte) frame)));
+			assertThat(device1.registers[PCA6985PwmBoard.LED0_OFF_L], is(equalTo((byte) frame)));
+		}
+	}
+
+	@Test(enabled=true, groups={"MultiBusDispatcherTests","unit"})
+	public void flushWithoutQueuedWrites() throws Exception {
+
+		device0.transactions = 0;
+		device1.transactions = 0;
+
+		dispatcher.flush();
+
+		assertThat(device0.transactions, is(equalTo(0)));
+		assertThat(device1.transactions, is(equalTo(0)));
+	}
+
+	@Test(enabled=true, groups={"MultiBusDispatcherTests","unit"}, expectedExceptions=IOException.class)
+	public void flushReportsFailedWrite() throws Exception {
+
+		device1.failWrites = true;
+
+		int[] on = new int[16];
+		int[] off = new int[16];
+		off[0] = 0x123;
+
+		dispatcher.writeAllPwm(0, BOARD_ADDRESS, on, off);
+		dispatcher.writeAllPwm(1, BOARD_ADDRESS, on, off);
+		dispatcher.flush();
+	}
+
+	@Test(enabled=true, groups={"MultiBusDispatcherTests","unit"}, timeOut=10000)
+	public void flushRecoversFromUnknownBoard() throws Exception {
+
+		int[] on = new int[16];
+		int[] off = new int[16];
+		off[0] = 0x123;
+
+		for (int busNumber = 0; busNumber < 2; busNumber++) {
+			dispatcher.writeAllPwm(0, BOARD_ADDRESS, on, off);
+			dispatcher.writeAllPwm(1, BOARD_ADDRESS, on, off);
+			dispatcher.writeAllPwm(busNumber, BOARD_ADDRESS + 1, on, off);
+
+			try {
+				dispatcher.flush();
+				throw new AssertionError("Write to an unknown board was not reported.");
+			} catch (IllegalArgumentException e) {
+				// Expected, the write on the other bus still goes out.
+			}
+
+			off[0]++;
+			dispatcher.writeAllPwm(0, BOARD_ADDRESS, on, off);
+			dispatcher.writeAllPwm(1, BOARD_ADDRESS, on, off);
+			dispatcher.flush();
+
+			assertThat(device0.registers[PCA6985PwmBoard.LED0_OFF_L], is(equalTo((byte) off[0])));
+			assertThat(device1.registers[PCA6985PwmBoard.LED0_OFF_L], is(equalTo((byte) off[0])));
+		}
+	}
+
+	@Test(enabled=true, groups={"MultiBusDispatcherTests","unit"}, expectedExceptions=IllegalArgumentException.class)
+	public void writeToUnknownBus() {
+		dispatcher.writeAllPwm(2, BOARD_ADDRESS, new int[16], new int[16]);
+	}
+
+	/*
+	 * Implementation of PwmBoard abstract class for testing purposes.
+	 */
+	class TestPwmBoard extends PwmBoard {
+
+		@Override
+		public int getFrequency() {
+			return 50;
+		}
+
+		@Override
+		public int getNumberOfChannels() {
+			return 16;
+		}
+
+	}
+
+	/*
+	 * Implementation of the I2CBus interface for testing purposes. Every address maps to the same device.
+	 */
+	class TestI2CBus implements I2CBus {
+
+		private final int busNumber;
+		private final I2CDevice device;
+
+		TestI2CBus(int busNumber, I2CDevice device) {
+			this.busNumber = busNumber;
+			this.device = device;
+		}
+
+		@Override
+		public I2CDevice getDevice(int address) throws IOException {
+			return device;
+		}
+
+		@Override
+		public int getBusNumber() {
+			return busNumber;
+		}
+
+		@Override
+		public void close() throws IOException {
+		}
+	}
+
+	/*
+	 * Implementation of the I2CDevice interface for testing purposes. Keeps a register file and counts the number of
+	 * write transactions.
+	 */
+	class TestI2CDevice implements I2CDevice {
+
+		byte[] registers = new byte[256];
+		int transactions;
+		boolean failWrites;
+
+		@Override
+		public int getAddress() {
+			return BOARD_ADDRESS;
+		}
+
+		@Override
+		public void write(byte b) throws IOException {
+			transactions++;
+		}
+
+		@Override
+		public void write(byte[] buffer, int offset, int size) throws IOException {
+			transactions++;
+		}
+
+		@Override
+		public void write(byte[] buffer) throws IOException {
+			transactions++;
+		}
+
+		@Override
+		public void write(int address, byte b) throws IOException {
+			if (failWrites) {
+				throw new IOException("Write failed.");
+			}
+			registers[address] = b;
+			transactions++;
+		}
+
+		@Override
+		public void write(int address, byte[] buffer, int offset, int size) throws IOException {
+			if (failWrites) {
+				throw new IOException("Write failed.");
+			}
+			System.arraycopy(buffer, offset, registers, address, size);
+			transactions++;
+		}
+
+		@Override
+		public void write(int address, byte[] buffer) throws IOException {
+			write(address, buffer, 0, buffer.length);
+		}
+
+		@Override
+		public int read() throws IOException {
+			return 0;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int size) throws IOException {
+			return 0;
+		}
+
+		@Override
+		public int read(int address) throws IOException {
+			return registers[address] & 0xFF;
+		}
+
+		@Override
+		public int read(int address, byte[] buffer, int offset, int size) throws IOException {
+			System.arraycopy(registers, address, buffer, offset, size);
+			return size;
+		}
+
+		@Override
+		public int read(byte[] writeBuffer, int writeOffset, int writeSize, byte[] readBuffer, int readOffset,
+				int readSize) throws IOException {
+			return 0;
+		}
+	}
+}
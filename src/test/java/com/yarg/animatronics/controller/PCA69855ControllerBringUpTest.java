@@ -0,0 +1,141 @@
+package com.yarg.animatronics.controller;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.yarg.animatronics.controller.SimulatedI2CBus.ClockRate;
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.datamodel.boards.GenericPwmBoard;
+import com.yarg.animatronics.datamodel.boards.PCA6985PwmBoard;
+import com.yarg.animatronics.timing.VirtualTimeSource;
+
+/*
+ * Bring-up of many boards at once, against simulated boards and a virtual clock.
+ */
+public class PCA69855ControllerBringUpTest {
+
+	private static final int FIRST_ADDRESS = 0x40;
+	private static final int NUMBER_OF_BOARDS = 20;
+
+	private SimulatedI2CBus bus;
+	private VirtualTimeSource clock;
+	private PCA69855Controller controller;
+	private List<PwmBoard> boards;
+
+	@BeforeMethod(alwaysRun = true)
+	public void beforeTest() {
+
+		bus = new SimulatedI2CBus(1, ClockRate.FAST);
+		clock = new VirtualTimeSource();
+		controller = new PCA69855Controller(bus, false);
+		controller.setTimeSource(clock);
+
+		boards = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_BOARDS; i++) {
+			bus.addDevice(FIRST_ADDRESS + i);
+			PCA6985PwmBoard board = new PCA6985PwmBoard();
+			board.setPwmBoardAddress(FIRST_ADDRESS + i);
+			boards.add(board);
+		}
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerBringUpTests","unit"})
+	public void addBoardsThroughAllCall() throws IOException, InterruptedException {
+
+		controller.setAutoIncrement(true);
+		controller.addBoards(boards);
+
+		for (int i = 0; i < NUMBER_OF_BOARDS; i++) {
+			assertConfigured(bus.getSimulatedDevice(FIRST_ADDRESS + i), 121, PCA6985PwmBoard.MODE1_AI);
+		}
+
+		// Four broadcasts and two reads per board, with a single oscillator start-up wait.
+		assertThat(bus.getTransactions(), is(equalTo(4L + 2L * NUMBER_OF_BOARDS)));
+		assertThat(clock.nanoTime(), is(equalTo(TimeUnit.MICROSECONDS.toNanos(500))));
+
+		int[] off = new int[16];
+		off[2] = 307;
+		controller.writeAllPwm(FIRST_ADDRESS + 7, new int[16], off);
+		assertThat(bus.getSimulatedDevice(FIRST_ADDRESS + 7).getOffTick(2), is(equalTo(307)));
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerBringUpTests","unit"})
+	public void addBoardsMatchesAddBoard() throws IOException, InterruptedException {
+
+		controller.addBoards(boards.subList(0, 10));
+		for (PwmBoard board : boards.subList(10, NUMBER_OF_BOARDS)) {
+			controller.addBoard(board);
+		}
+
+		for (int register : new int[] {PCA6985PwmBoard.MODE1, PCA6985PwmBoard.MODE2, PCA6985PwmBoard.PRE_SCALE}) {
+			assertThat(bus.getSimulatedDevice(FIRST_ADDRESS).getRegister(register),
+					is(equalTo(bus.getSimulatedDevice(FIRST_ADDRESS + 10).getRegister(register))));
+		}
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerBringUpTests","unit"})
+	public void boardsWithAnotherFrequencyGetTheirOwnPreScale() throws IOException, InterruptedException {
+
+		GenericPwmBoard fastBoard = new GenericPwmBoard(100, 16);
+		fastBoard.setPwmBoardAddress(FIRST_ADDRESS + 3);
+		boards.set(3, fastBoard);
+
+		controller.addBoards(boards);
+
+		assertConfigured(bus.getSimulatedDevice(FIRST_ADDRESS + 3), 60, 0x00);
+		assertConfigured(bus.getSimulatedDevice(FIRST_ADDRESS + 4), 121, 0x00);
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerBringUpTests","unit"})
+	public void boardIgnoringAllCallIsAddedOnItsOwn() throws IOException, InterruptedException {
+
+		// Configured by an earlier session without a power cycle, ALLCALL is off.
+		bus.getDevice(FIRST_ADDRESS + 5).write(PCA6985PwmBoard.MODE1, (byte) 0x00);
+
+		controller.addBoards(boards);
+
+		for (int i = 0; i < NUMBER_OF_BOARDS; i++) {
+			assertConfigured(bus.getSimulatedDevice(FIRST_ADDRESS + i), 121, 0x00);
+		}
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerBringUpTests","unit"})
+	public void boardsAreAddedOneAtATimeWithoutAllCall() throws IOException, InterruptedException {
+
+		for (int i = 0; i < NUMBER_OF_BOARDS; i++) {
+			bus.getDevice(FIRST_ADDRESS + i).write(PCA6985PwmBoard.MODE1, (byte) PCA6985PwmBoard.MODE1_SLEEP);
+		}
+
+		controller.addBoards(boards);
+
+		for (int i = 0; i < NUMBER_OF_BOARDS; i++) {
+			assertConfigured(bus.getSimulatedDevice(FIRST_ADDRESS + i), 121, 0x00);
+		}
+		assertThat(clock.nanoTime(), is(equalTo(NUMBER_OF_BOARDS * TimeUnit.MICROSECONDS.toNanos(500))));
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerBringUpTests","unit"}, expectedExceptions=IOException.class)
+	public void missingBoardFails() throws IOException, InterruptedException {
+
+		PCA6985PwmBoard missingBoard = new PCA6985PwmBoard();
+		missingBoard.setPwmBoardAddress(0x60);
+		boards.add(missingBoard);
+
+		controller.addBoards(boards);
+	}
+
+	private static void assertConfigured(SimulatedPca9685 device, int preScale, int mode1) {
+		assertThat(device.isSleeping(), is(equalTo(false)));
+		assertThat(device.getRegister(PCA6985PwmBoard.PRE_SCALE), is(equalTo(preScale)));
+		assertThat(device.getRegister(PCA6985PwmBoard.MODE1), is(equalTo(mode1)));
+	}
+}
@@ -0,0 +1,298 @@
+package com.yarg.animatronics.controller;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.pi4j.io.i2c.I2CBus;
+import com.pi4j.io.i2c.I2CDevice;
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.datamodel.boards.PCA6985PwmBoard;
+
+/*
+ * Controller tests that run against an in-memory I2C bus, so they do not need a Raspberry PI.
+ */
+public class PCA69855ControllerWriteTest {
+
+	private static final int BOARD_ADDRESS = 0x40;
+
+	private TestI2CDevice device;
+	private PCA69855Controller controller;
+
+	@BeforeMethod(alwaysRun = true)
+	public void beforeTest() throws IOException, InterruptedException {
+
+		device = new TestI2CDevice();
+		controller = new PCA69855Controller(new TestI2CBus(), false);
+
+		TestPwmBoard board = new TestPwmBoard();
+		board.setPwmBoardAddress(BOARD_ADDRESS);
+		controller.addBoard(board);
+		device.transactions = 0;
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerWriteTests","unit"})
+	public void writePwmWithoutAutoIncrement() throws IOException {
+
+		controller.writePwm(BOARD_ADDRESS, 1, 0, 0x123);
+
+		assertThat(device.transactions, is(equalTo(4)));
+		assertThat(device.registers[PCA6985PwmBoard.LED1_OFF_L], is(equalTo((byte) 0x23)));
+		assertThat(device.registers[PCA6985PwmBoard.LED1_OFF_H], is(equalTo((byte) 0x01)));
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerWriteTests","unit"})
+	public void writesAreCountedInMetrics() throws IOException {
+
+		controller.getMetrics().reset();
+
+		controller.writePwm(BOARD_ADDRESS, 1, 0, 0x123);
+		controller.writePwm(BOARD_ADDRESS, 1, 0, 0x123);
+
+		assertThat(controller.getMetrics().getI2cTransactions(), is(equalTo(4L)));
+		assertThat(controller.getMetrics().getI2cBytesWritten(), is(equalTo(4L)));
+		assertThat(controller.getMetrics().getSkippedChannelWrites(), is(equalTo(1L)));
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerWriteTests","unit"})
+	public void enableAutoIncrementSetsModeBit() throws IOException {
+
+		controller.setAutoIncrement(true);
+
+		int mode = device.registers[PCA6985PwmBoard.MODE1];
+		assertThat(mode & PCA6985PwmBoard.MODE1_AI, is(equalTo(PCA6985PwmBoard.MODE1_AI)));
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerWriteTests","unit"})
+	public void writePwmWithAutoIncrement() throws IOException {
+
+		controller.setAutoIncrement(true);
+		device.transactions = 0;
+
+		controller.writePwm(BOARD_ADDRESS, 1, 0x010, 0x123);
+
+		assertThat(device.transactions, is(equalTo(1)));
+		assertThat(device.registers[PCA6985PwmBoard.LED1_ON_L], is(equalTo((byte) 0x10)));
+		assertThat(device.registers[PCA6985PwmBoard.LED1_ON_H], is(equalTo((byte) 0x00)));
+		assertThat(device.registers[PCA6985PwmBoard.LED1_OFF_L], is(equalTo((byte) 0x23)));
+		assertThat(device.registers[PCA6985PwmBoard.LED1_OFF_H], is(equalTo((byte) 0x01)));
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerWriteTests","unit"})
+	public void writeAllPwmWithAutoIncrement() throws IOException {
+
+		controller.setAutoIncrement(true);
+		device.transactions = 0;
+
+		int[] on = new int[16];
+		int[] off = new int[16];
+		for (int channel = 0; channel < off.length; channel++) {
+			off[channel] = 300 + channel;
+		}
+
+		controller.writeAllPwm(BOARD_ADDRESS, on, off);
+
+		assertThat(device.transactions, is(equalTo(1)));
+		assertThat(device.registers[PCA6985PwmBoard.LED15_OFF_L], is(equalTo((byte) (315 & 0xFF))));
+		assertThat(device.registers[PCA6985PwmBoard.LED15_OFF_H], is(equalTo((byte) (315 >> 8))));
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerWriteTests","unit"})
+	public void writeAllPwmSkipsChannelsWithoutValue() throws IOException {
+
+		controller.setAutoIncrement(true);
+		device.transactions = 0;
+
+		int[] on = new int[4];
+		int[] off = new int[] {300, -1, 310, 320};
+
+		controller.writeAllPwm(BOARD_ADDRESS, on, off);
+
+		assertThat(device.transactions, is(equalTo(2)));
+		assertThat(device.registers[PCA6985PwmBoard.LED1_OFF_L], is(equalTo((byte) 0)));
+		assertThat(device.registers[PCA6985PwmBoard.LED3_OFF_L], is(equalTo((byte) (320 & 0xFF))));
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerWriteTests","unit"})
+	public void writePwmWithUnchangedValueIsSkipped() throws IOException {
+
+		controller.writePwm(BOARD_ADDRESS, 1, 0, 0x123);
+		device.transactions = 0;
+
+		controller.writePwm(BOARD_ADDRESS, 1, 0, 0x123);
+
+		assertThat(device.transactions, is(equalTo(0)));
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerWriteTests","unit"})
+	public void writePwmOnlyWritesChangedRegisters() throws IOException {
+
+		controller.writePwm(BOARD_ADDRESS, 1, 0, 0x123);
+		device.transactions = 0;
+
+		controller.writePwm(BOARD_ADDRESS, 1, 0, 0x124);
+
+		assertThat(device.transactions, is(equalTo(1)));
+		assertThat(device.registers[PCA6985PwmBoard.LED1_OFF_L], is(equalTo((byte) 0x24)));
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerWriteTests","unit"})
+	public void writePwmAfterInvalidatingShadowRegisters() throws IOException {
+
+		controller.writePwm(BOARD_ADDRESS, 1, 0, 0x123);
+		controller.invalidateShadowRegisters(BOARD_ADDRESS);
+		device.transactions = 0;
+
+		controller.writePwm(BOARD_ADDRESS, 1, 0, 0x123);
+
+		assertThat(device.transactions, is(equalTo(4)));
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerWriteTests","unit"})
+	public void writeAllPwmOnlyWritesChangedChannels() throws IOException {
+
+		controller.setAutoIncrement(true);
+
+		int[] on = new int[16];
+		int[] off = new int[16];
+		for (int channel = 0; channel < off.length; channel++) {
+			off[channel] = 300;
+		}
+		controller.writeAllPwm(BOARD_ADDRESS, on, off);
+		device.transactions = 0;
+		device.bytesWritten = 0;
+
+		off[4] = 301;
+		off[5] = 302;
+		controller.writeAllPwm(BOARD_ADDRESS, on, off);
+
+		assertThat(device.transactions, is(equalTo(1)));
+		assertThat(device.bytesWritten, is(equalTo(5)));
+		assertThat(device.registers[PCA6985PwmBoard.LED4_OFF_L], is(equalTo((byte) (301 & 0xFF))));
+		assertThat(device.registers[PCA6985PwmBoard.LED5_OFF_L], is(equalTo((byte) (302 & 0xFF))));
+	}
+
+	@Test(enabled=true, groups={"PCA69855ControllerWriteTests","unit"}, expectedExceptions=IllegalArgumentException.class)
+	public void writePwmToUnknownBoard() throws IOException {
+		controller.writePwm(0x41, 0, 0, 300);
+	}
+
+	/*
+	 * Implementation of PwmBoard abstract class for testing purposes.
+	 */
+	class TestPwmBoard extends PwmBoard {
+
+		@Override
+		public int getFrequency() {
+			return 50;
+		}
+
+		@Override
+		public int getNumberOfChannels() {
+			return 16;
+		}
+
+	}
+
+	/*
+	 * Implementation of the I2CBus interface for testing purposes. Every address maps to the same device.
+	 */
+	class TestI2CBus implements I2CBus {
+
+		@Override
+		public I2CDevice getDevice(int address) throws IOException {
+			return device;
+		}
+
+		@Override
+		public int getBusNumber() {
+			return I2CBus.BUS_1;
+		}
+
+		@Override
+		public void close() throws IOException {
+		}
+	}
+
+	/*
+	 * Implementation of the I2CDevice interface for testing purposes. Keeps a register file and counts the number of
+	 * write transactions. Block writes always auto-increment.
+	 */
+	class TestI2CDevice implements I2CDevice {
+
+		byte[] registers = new byte[256];
+		int transactions;
+		int bytesWritten;
+
+		@Override
+		public int getAddress() {
+			return BOARD_ADDRESS;
+		}
+
+		@Override
+		public void write(byte b) throws IOException {
+			transactions++;
+		}
+
+		@Override
+		public void write(byte[] buffer, int offset, int size) throws IOException {
+			transactions++;
+		}
+
+		@Override
+		public void write(byte[] buffer) throws IOException {
+			transactions++;
+		}
+
+		@Override
+		public void write(int address, byte b) throws IOException {
+			registers[address] = b;
+			transactions++;
+			bytesWritten++;
+		}
+
+		@Override
+		public void write(int address, byte[] buffer, int offset, int size) throws IOException {
+			System.arraycopy(buffer, offset, registers, address, size);
+			transactions++;
+			bytesWritten += size;
+		}
+
+		@Override
+		public void write(int address, byte[] buffer) throws IOException {
+			write(address, buffer, 0, buffer.length);
+		}
+
+		@Override
+		public int read() throws IOException {
+			return 0;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int size) throws IOException {
+			return 0;
+		}
+
+		@Override
+		public int read(int address) throws IOException {
+			return registers[address] & 0xFF;
+		}
+
+		@Override
+		public int read(int address, byte[] buffer, int offset, int size) throws IOException {
+			System.arraycopy(registers, address, buffer, offset, size);
+			return size;
+		}
+
+		@Override
+		public int read(byte[] writeBuffer, int writeOffset, int writeSize, byte[] readBuffer, int readOffset,
+				int readSize) throws IOException {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package com.yarg.animatronics.controller;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.pi4j.io.i2c.I2CDevice;
+import com.yarg.animatronics.controller.SimulatedI2CBus.ClockRate;
+import com.yarg.animatronics.datamodel.boards.PCA6985PwmBoard;
+
+public class SimulatedI2CBusTest {
+
+	private static final int BOARD_ADDRESS = 0x40;
+
+	private SimulatedI2CBus bus;
+	private SimulatedPca9685 device;
+
+	@BeforeMethod(alwaysRun = true)
+	public void beforeTest() {
+		bus = new SimulatedI2CBus(1, ClockRate.FAST);
+		device = bus.addDevice(BOARD_ADDRESS);
+	}
+
+	@Test(enabled=true, groups={"SimulatedI2CBusTests","unit"})
+	public void powerOnRegisters() {
+
+		assertThat(device.getRegister(PCA6985PwmBoard.MODE1), is(equalTo(0x11)));
+		assertThat(device.getRegister(PCA6985PwmBoard.PRE_SCALE), is(equalTo(0x1E)));
+		assertThat(device.getOffTick(15), is(equalTo(4096)));
+		assertThat(device.isSleeping(), is(equalTo(true)));
+	}
+
+	@Test(enabled=true, groups={"SimulatedI2CBusTests","unit"})
+	public void transactionTime() throws IOException {
+
+		bus.getDevice(BOARD_ADDRESS).write(PCA6985PwmBoard.MODE2, (byte) 0x04);
+
+		// Start, address, register, data and stop: 3 * 9 + 2 clocks at 400 kHz.
+		assertThat(bus.getBusyNanos(), is(equalTo(72500L)));
+		assertThat(bus.getTransactions(), is(equalTo(1L)));
+		assertThat(bus.getBytes(), is(equalTo(3L)));
+
+		bus.resetCounters();
+		bus.getDevice(BOARD_ADDRESS).read(PCA6985PwmBoard.MODE1);
+
+		// Register write, repeated start and a one byte read: 4 * 9 + 3 clocks.
+		assertThat(bus.getBusyNanos(), is(equalTo(97500L)));
+	}
+
+	@Test(enabled=true, groups={"SimulatedI2CBusTests","unit"})
+	public void clockRates() {
+
+		assertThat(new SimulatedI2CBus(1, ClockRate.STANDARD).getTransactionNanos(3, 2), is(equalTo(290000L)));
+		assertThat(new SimulatedI2CBus(1, ClockRate.FAST_PLUS).getTransactionNanos(3, 2), is(equalTo(29000L)));
+	}
+
+	@Test(enabled=true, groups={"SimulatedI2CBusTests","unit"})
+	public void multipleBytesWithoutAutoIncrementGoToOneRegister() throws IOException {
+
+		bus.getDevice(BOARD_ADDRESS).write(PCA6985PwmBoard.LED0_ON_L, new byte[] {1, 2, 3, 4});
+
+		assertThat(device.getRegister(PCA6985PwmBoard.LED0_ON_L), is(equalTo(4)));
+		assertThat(device.getRegister(PCA6985PwmBoard.LED0_ON_H), is(equalTo(0)));
+	}
+
+	@Test(enabled=true, groups={"SimulatedI2CBusTests","unit"})
+	public void autoIncrementRollsOverToMode1() throws IOException {
+
+		I2CDevice i2cDevice = bus.getDevice(BOARD_ADDRESS);
+		i2cDevice.write(PCA6985PwmBoard.MODE1, (byte) PCA6985PwmBoard.MODE1_AI);
+		i2cDevice.write(PCA6985PwmBoard.LED15_OFF_L, new byte[] {0x34, 0x02, (byte) PCA6985PwmBoard.MODE1_AI, 0x05});
+
+		assertThat(device.getOffTick(15), is(equalTo(0x234)));
+		assertThat(device.getRegister(PCA6985PwmBoard.MODE2), is(equalTo(0x05)));
+	}
+
+	@Test(enabled=true, groups={"SimulatedI2CBusTests","unit"})
+	public void preScaleIsBlockedWhileRunning() throws IOException {
+
+		I2CDevice i2cDevice = bus.getDevice(BOARD_ADDRESS);
+		i2cDevice.write(PCA6985PwmBoard.MODE1, (byte) 0x00);
+		i2cDevice.write(PCA6985PwmBoard.PRE_SCALE, (byte) 121);
+		assertThat(device.getRegister(PCA6985PwmBoard.PRE_SCALE), is(equalTo(0x1E)));
+
+		i2cDevice.write(PCA6985PwmBoard.MODE1, (byte) PCA6985PwmBoard.MODE1_SLEEP);
+		i2cDevice.write(PCA6985PwmBoard.PRE_SCALE, (byte) 121);
+		assertThat(device.getRegister(PCA6985PwmBoard.PRE_SCALE), is(equalTo(121)));
+	}
+
+	@Test(enabled=true, groups={"SimulatedI2CBusTests","unit"})
+	public void allLedRegistersLoadEveryChannel() throws IOException {
+
+		I2CDevice i2cDevice = bus.getDevice(BOARD_ADDRESS);
+		i2cDevice.write(PCA6985PwmBoard.ALL_LED_OFF_L, (byte) 0x33);
+		i2cDevice.write(PCA6985PwmBoard.ALL_LED_OFF_H, (byte) 0x01);
+
+		for (int channel = 0; channel < 16; channel++) {
+			assertThat(device.getOffTick(channel), is(equalTo(0x133)));
+		}
+		assertThat(i2cDevice.read(PCA6985PwmBoard.ALL_LED_OFF_L), is(equalTo(0)));
+	}
+
+	@Test(enabled=true, groups={"SimulatedI2CBusTests","unit"})
+	public void allCallWritesGoToEveryBoard() throws IOException {
+
+		SimulatedPca9685 secondDevice = bus.addDevice(BOARD_ADDRESS + 1);
+
+		bus.getDevice(SimulatedI2CBus.DEFAULT_ALL_CALL_ADDRESS).write(PCA6985PwmBoard.MODE2, (byte) 0x10);
+
+		assertThat(device.getRegister(PCA6985PwmBoard.MODE2), is(equalTo(0x10)));
+		assertThat(secondDevice.getRegister(PCA6985PwmBoard.MODE2), is(equalTo(0x10)));
+		assertThat(bus.getTransactions(), is(equalTo(1L)));
+	}
+
+	@Test(enabled=true, groups={"SimulatedI2CBusTests","unit"}, expectedExceptions=IOException.class)
+	public void writeToAddressWithoutBoard() throws IOException {
+		bus.getDevice(0x41).write(PCA6985PwmBoard.MODE1, (byte) 0x00);
+	}
+
+	@Test(enabled=true, groups={"SimulatedI2CBusTests","unit"})
+	public void controllerRunsAgainstSimulatedBoard() throws IOException, InterruptedException {
+
+		PCA69855Controller controller = new PCA69855Controller(bus, false);
+		PCA6985PwmBoard board = new PCA6985PwmBoard();
+		board.setPwmBoardAddress(BOARD_ADDRESS);
+		controller.addBoard(board);
+		controller.setAutoIncrement(true);
+
+		assertThat(device.isSleeping(), is(equalTo(false)));
+		assertThat(device.getRegister(PCA6985PwmBoard.PRE_SCALE), is(equalTo(121)));
+		assertThat(Math.round(device.getOutputFrequency()), is(equalTo(50L)));
+
+		int[] on = new int[16];
+		int[] off = new int[16];
+		for (int channel = 0; channel < 16; channel++) {
+			off[channel] = 205 + channel * 10;
+		}
+
+		bus.resetCounters();
+		controller.writeAllPwm(BOARD_ADDRESS, on, off);
+
+		for (int channel = 0; channel < 16; channel++) {
+			assertThat(device.getOnTick(channel), is(equalTo(0)));
+			assertThat(device.getOffTick(channel), is(equalTo(205 + channel * 10)));
+		}
+		assertThat(bus.getTransactions(), is(equalTo(1L)));
+	}
+
+	@Test(enabled=true, groups={"SimulatedI2CBusTests","unit"})
+	public void realTimeHoldsTheCaller() throws IOException {
+
+		bus = new SimulatedI2CBus(1, ClockRate.STANDARD);
+		bus.addDevice(BOARD_ADDRESS);
+		bus.setRealTime(true);
+
+		long start = System.nanoTime();
+		bus.getDevice(BOARD_ADDRESS).write(PCA6985PwmBoard.LED0_ON_L, new byte[64]);
+		long elapsed = System.nanoTime() - start;
+
+		assertThat(elapsed, is(greaterThanOrEqualTo(bus.getBusyNanos())));
+	}
+}
@@ -0,0 +1,100 @@
+package com.yarg.animatronics.datamodel;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class AnimationCursorTest {
+
+	PwmMotor motor;
+	AnimationCursor cursor;
+
+	@BeforeMethod(alwaysRun=true)
+	public void setup() {
+
+		motor = new TestPwmMotor();
+		for (int i = 0; i < 20; i++) {
+			motor.addAnimationKey();
+			motor.setTickAtIndex(i, 210 + i * 10);
+		}
+
+		cursor = new AnimationCursor(motor);
+	}
+
+	@Test(enabled=true, groups={"AnimationCursorTests","unit"})
+	public void seekBeforeFirstKey() {
+		motor.setTimeAtIndex(0, 10L);
+		assertThat(cursor.seek(0L), is(equalTo(-1)));
+	}
+
+	@Test(enabled=true, groups={"AnimationCursorTests","unit"})
+	public void seekForward() {
+		assertThat(cursor.seek(0L), is(equalTo(0)));
+		assertThat(cursor.seek(1500L), is(equalTo(1)));
+		assertThat(cursor.seek(2000L), is(equalTo(2)));
+	}
+
+	@Test(enabled=true, groups={"AnimationCursorTests","unit"})
+	public void seekFarForward() {
+		cursor.seek(0L);
+		assertThat(cursor.seek(15500L), is(equalTo(15)));
+	}
+
+	@Test(enabled=true, groups={"AnimationCursorTests","unit"})
+	public void seekBackwards() {
+		cursor.seek(15500L);
+		assertThat(cursor.seek(3000L), is(equalTo(3)));
+	}
+
+	@Test(enabled=true, groups={"AnimationCursorTests","unit"})
+	public void seekAfterKeysRemoved() {
+		cursor.seek(15500L);
+		motor.removeKeyAtIndex(19);
+		motor.removeKeyAtIndex(18);
+		motor.removeKeyAtIndex(17);
+		motor.removeKeyAtIndex(16);
+		motor.removeKeyAtIndex(15);
+		assertThat(cursor.seek(15500L), is(equalTo(14)));
+	}
+
+	@Test(enabled=true, groups={"AnimationCursorTests","unit"})
+	public void getTickAtTimeMatchesMotor() {
+		for (long time = 0L; time < 21000L; time += 20L) {
+			assertThat(cursor.getTickAtTime(time), is(equalTo(motor.getTickAtTime(time))));
+		}
+	}
+
+	/*
+	 * Implementation of the PwmMotor abstract class for testing purposes.
+	 */
+	class TestPwmMotor extends PwmMotor {
+
+		@Override
+		public int getMaxTick() {
+			return 410;
+		}
+
+		@Override
+		public int getMinTick() {
+			return 204;
+		}
+
+		@Override
+		public double getMaxAngle() {
+			return 90;
+		}
+
+		@Override
+		public double getMinAngle() {
+			return -90;
+		}
+
+		@Override
+		public String getMotorId() {
+			return "Test Motor MG995R";
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package com.yarg.animatronics.datamodel;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MotorCalibrationTest {
+
+	MotorCalibration calibration;
+
+	@BeforeMethod(alwaysRun=true)
+	public void setup() {
+		calibration = new MotorCalibration(204, 410, -90.0, 90.0);
+	}
+
+	@Test(enabled=true, groups={"MotorCalibrationTests","unit"})
+	public void angleToTicksMatchesDirectConversion() {
+
+		for (double angle = -90.0; angle <= 90.0; angle += 0.37) {
+			int expected = (int) ((410 - 204) * (angle - -90.0) / (90.0 - -90.0) + 204);
+			assertThat(calibration.angleToTicks(angle), is(equalTo(expected)));
+		}
+	}
+
+	@Test(enabled=true, groups={"MotorCalibrationTests","unit"})
+	public void ticksToAngleMatchesDirectConversion() {
+
+		for (int ticks = 204; ticks <= 410; ticks++) {
+			double expected = (ticks - 204) * (90.0 - -90.0) / (410 - 204) + -90.0;
+			assertThat(calibration.ticksToAngle(ticks), is(equalTo(expected)));
+		}
+	}
+
+	@Test(enabled=true, groups={"MotorCalibrationTests","unit"})
+	public void clampToLimits() {
+
+		assertThat(calibration.clampTick(100), is(equalTo(204)));
+		assertThat(calibration.clampTick(500), is(equalTo(410)));
+		assertThat(calibration.clampTick(300), is(equalTo(300)));
+		assertThat(calibration.clampAngle(-120.0), is(equalTo(-90.0)));
+		assertThat(calibration.clampAngle(120.0), is(equalTo(90.0)));
+		assertThat(calibration.clampAngle(12.5), is(equalTo(12.5)));
+	}
+
+	@Test(enabled=true, groups={"MotorCalibrationTests","unit"})
+	public void angleLookupIsExactOnTableSteps() {
+
+		MotorCalibration lookup = calibration.withAngleLookup(0.5);
+		assertThat(lookup.getAngleResolution(), is(equalTo(0.5)));
+
+		for (double angle = -90.0; angle <= 90.0; angle += 0.5) {
+			assertThat(lookup.angleToTicks(angle), is(equalTo(calibration.angleToTicks(angle))));
+		}
+	}
+
+	@Test(enabled=true, groups={"MotorCalibrationTests","unit"})
+	public void angleLookupIsWithinOneStep() {
+
+		MotorCalibration lookup = calibration.withAngleLookup(1.0);
+
+		for (double angle = -90.0; angle <= 90.0; angle += 0.13) {
+			int difference = Math.abs(lookup.angleToTicks(angle) - calibration.angleToTicks(angle));
+			assertThat(difference, is(lessThanOrEqualTo(2)));
+		}
+	}
+
+	@Test(enabled=true, groups={"MotorCalibrationTests","unit"})
+	public void angleLookupClampsAngles() {
+
+		MotorCalibration lookup = calibration.withAngleLookup(1.0);
+
+		assertThat(lookup.angleToTicks(-200.0), is(equalTo(204)));
+		assertThat(lookup.angleToTicks(200.0), is(equalTo(410)));
+	}
+
+	@Test(enabled=true, groups={"MotorCalibrationTests","unit"}, expectedExceptions=IllegalArgumentException.class)
+	public void negativeAngleLookupResolution() {
+		calibration.withAngleLookup(-1.0);
+	}
+
+	@Test(enabled=true, groups={"MotorCalibrationTests","unit"})
+	public void bulkConversion() {
+
+		double[] angles = {-120.0, -90.0, 0.0, 45.0, 90.0, 120.0};
+		int[] ticks = new int[angles.length + 1];
+		calibration.anglesToTicks(angles, 0, ticks, 1, angles.length);
+		assertThat(ticks, is(equalTo(new int[] {0, 204, 204, 307, 358, 410, 410})));
+
+		double[] convertedAngles = new double[3];
+		calibration.ticksToAngles(ticks, 2, convertedAngles, 0, 3);
+		assertThat(convertedAngles, is(equalTo(new double[] {-90.0, 0.0, calibration.ticksToAngle(358)})));
+	}
+
+	@Test(enabled=true, groups={"MotorCalibrationTests","unit"})
+	public void motorBulkAngles() {
+
+		PwmMotor motor = new PwmMotor() {
+
+			@Override
+			public int getMaxTick() {
+				return 410;
+			}
+
+			@Override
+			public int getMinTick() {
+				return 204;
+			}
+
+			@Override
+			public double getMaxAngle() {
+				return 90.0;
+			}
+
+			@Override
+			public double getMinAngle() {
+				return -90.0;
+			}
+
+			@Override
+			public String getMotorId() {
+				return "Test Motor";
+			}
+		};
+
+		for (int i = 0; i < 4; i++) {
+			motor.addAnimationKey();
+		}
+
+		motor.setAnglesAtIndex(1, new double[] {0.0, -90.0, 90.0, 120.0}, 1, 3);
+		assertThat(motor.getTickAtIndex(0), is(equalTo(0)));
+		assertThat(motor.getTickAtIndex(1), is(equalTo(204)));
+		assertThat(motor.getTickAtIndex(2), is(equalTo(410)));
+		assertThat(motor.getTickAtIndex(3), is(equalTo(410)));
+
+		double[] angles = new double[3];
+		motor.getAnglesAtIndex(1, angles, 0, 3);
+		assertThat(angles, is(equalTo(new double[] {-90.0, 90.0, 90.0})));
+	}
+}
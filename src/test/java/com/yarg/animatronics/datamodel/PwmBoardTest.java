@@ -3,6 +3,8 @@ package com.yarg.animatronics.datamodel;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -85,6 +87,111 @@ public class PwmBoardTest {
 		testBoard.addMotor(testMotor1);
 	}
 
+	// ------------------------------------------------------------------------
+	// Motor lookup tests
+	// ------------------------------------------------------------------------
+
+	@Test(enabled=true, groups={"PwmBoardTests","unit"})
+	public void motorOnChannel() {
+
+		TestPwmMotor testMotor = new TestPwmMotor();
+		testMotor.setPwmChannel(2);
+		testBoard.addMotor(testMotor);
+
+		assertThat(testBoard.motorOnChannel(2), is(sameInstance(testMotor)));
+		assertThat(testBoard.motorOnChannel(1), is(nullValue()));
+	}
+
+	@Test(enabled=true, groups={"PwmBoardTests","unit"}, expectedExceptions=IllegalStateException.class)
+	public void attachedMotorKeepsItsChannel() {
+
+		TestPwmMotor testMotor = new TestPwmMotor();
+		testMotor.setPwmChannel(2);
+		testBoard.addMotor(testMotor);
+
+		testMotor.setPwmChannel(1);
+	}
+
+	@Test(enabled=true, groups={"PwmBoardTests","unit"}, expectedExceptions=IllegalArgumentException.class)
+	public void motorOnChannelOutsideBoard() {
+		testBoard.motorOnChannel(3);
+	}
+
+	@Test(enabled=true, groups={"PwmBoardTests","unit"})
+	public void attachedMotorsViewFollowsBoard() {
+
+		List<PwmMotor> attachedMotors = testBoard.getAttachedMotors();
+
+		TestPwmMotor testMotor1 = new TestPwmMotor();
+		testMotor1.setPwmChannel(2);
+		TestPwmMotor testMotor2 = new TestPwmMotor();
+		testMotor2.setPwmChannel(1);
+		testBoard.addMotor(testMotor1);
+		testBoard.addMotor(testMotor2);
+
+		assertThat(testBoard.getAttachedMotors(), is(sameInstance(attachedMotors)));
+		assertThat(attachedMotors.size(), is(equalTo(2)));
+		assertThat(testBoard.getNumberOfAttachedMotors(), is(equalTo(2)));
+		assertThat(testBoard.getAttachedMotor(0), is(sameInstance(testMotor1)));
+		assertThat(testBoard.getAttachedMotor(1), is(sameInstance(testMotor2)));
+	}
+
+	@Test(enabled=true, groups={"PwmBoardTests","unit"}, expectedExceptions=UnsupportedOperationException.class)
+	public void attachedMotorsViewIsReadOnly() {
+		testBoard.getAttachedMotors().add(new TestPwmMotor());
+	}
+
+	@Test(enabled=true, groups={"PwmBoardTests","unit"})
+	public void motorsAddedToListAreIndexed() {
+
+		TestPwmMotor testMotor = new TestPwmMotor();
+		testMotor.setPwmChannel(2);
+		testBoard.motorOnChannel(1);
+		testBoard.motors.add(testMotor);
+
+		assertThat(testBoard.motorOnChannel(2), is(sameInstance(testMotor)));
+	}
+
+	// ------------------------------------------------------------------------
+	// Last key time tests
+	// ------------------------------------------------------------------------
+
+	@Test(enabled=true, groups={"PwmBoardTests","unit"})
+	public void getLastKeyTimeWithoutAnyKeys() {
+
+		testBoard.addMotor(new TestPwmMotor());
+
+		List<PwmBoard> boards = new ArrayList<>();
+		boards.add(testBoard);
+		boards.add(new TestPwmBoard());
+
+		assertThat(PwmBoard.getLastKeyTime(boards), is(equalTo(0L)));
+	}
+
+	@Test(enabled=true, groups={"PwmBoardTests","unit"})
+	public void getLastKeyTimeOfAllBoards() {
+
+		TestPwmMotor firstMotor = new TestPwmMotor();
+		firstMotor.addAnimationKey();
+		firstMotor.addAnimationKey();
+		testBoard.addMotor(firstMotor);
+
+		TestPwmBoard secondBoard = new TestPwmBoard();
+		TestPwmMotor secondMotor = new TestPwmMotor();
+		secondMotor.setPwmChannel(2);
+		secondMotor.addAnimationKey();
+		secondMotor.addAnimationKey();
+		secondMotor.addAnimationKey();
+		secondBoard.addMotor(new TestPwmMotor());
+		secondBoard.addMotor(secondMotor);
+
+		List<PwmBoard> boards = new ArrayList<>();
+		boards.add(testBoard);
+		boards.add(secondBoard);
+
+		assertThat(PwmBoard.getLastKeyTime(boards), is(equalTo(2000L)));
+	}
+
 	// ------------------------------------------------------------------------
 	// Confirm equals implementation
 	// ------------------------------------------------------------------------
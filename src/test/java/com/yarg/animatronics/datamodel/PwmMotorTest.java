@@ -286,6 +286,68 @@ public class PwmMotorTest {
 		motor.setTimeAtIndex(0, 100L);
 	}
 
+	// ------------------------------------------------------------------------
+	// Time lookup tests
+	// ------------------------------------------------------------------------
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void getKeyIndexAtTimeWithoutAnyKeys() {
+		assertThat(motor.getKeyIndexAtTime(500L), is(equalTo(-1)));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void getKeyIndexAtTimeBeforeFirstKey() {
+		motor.addAnimationKey();
+		motor.setTimeAtIndex(0, 100L);
+		assertThat(motor.getKeyIndexAtTime(99L), is(equalTo(-1)));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void getKeyIndexAtTimeOfKey() {
+		motor.addAnimationKey();
+		motor.addAnimationKey();
+		motor.addAnimationKey();
+		assertThat(motor.getKeyIndexAtTime(1000L), is(equalTo(1)));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void getKeyIndexAtTimeBetweenKeys() {
+		motor.addAnimationKey();
+		motor.addAnimationKey();
+		motor.addAnimationKey();
+		assertThat(motor.getKeyIndexAtTime(1999L), is(equalTo(1)));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void getKeyIndexAtTimeAfterLastKey() {
+		motor.addAnimationKey();
+		motor.addAnimationKey();
+		motor.addAnimationKey();
+		assertThat(motor.getKeyIndexAtTime(5000L), is(equalTo(2)));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void getTickAtTimeBetweenKeys() {
+		motor.addAnimationKey();
+		motor.setTickAtIndex(0, 300);
+		motor.addAnimationKey();
+		motor.setTickAtIndex(1, 400);
+		assertThat(motor.getTickAtTime(250L), is(equalTo(325)));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void getTickAtTimeBeforeFirstKey() {
+		motor.addAnimationKey();
+		motor.setTimeAtIndex(0, 100L);
+		motor.setTickAtIndex(0, 300);
+		assertThat(motor.getTickAtTime(0L), is(equalTo(300)));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"}, expectedExceptions=IndexOutOfBoundsException.class)
+	public void getTickAtTimeWithoutAnyKeys() {
+		motor.getTickAtTime(0L);
+	}
+
 	// ------------------------------------------------------------------------
 	// Get ticks per millisecond tests
 	// ------------------------------------------------------------------------
@@ -356,6 +418,402 @@ public class PwmMotorTest {
 		assertThat(motor.getPwmChannel(), is(equalTo(1)));
 	}
 
+	// ------------------------------------------------------------------------
+	// Interpolation mode tests
+	// ------------------------------------------------------------------------
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void defaultInterpolationIsLinear() {
+
+		assertThat(motor.getInterpolation(), is(equalTo(InterpolationMode.LINEAR)));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void curvesPassThroughKeys() {
+
+		addKeys(new long[] {0L, 1000L, 2000L, 3000L}, new int[] {250, 350, 300, 380});
+
+		for (InterpolationMode mode : InterpolationMode.values()) {
+			motor.setInterpolation(mode);
+			assertThat(motor.getTickAtTime(0L), is(equalTo(250)));
+			assertThat(motor.getTickAtTime(1000L), is(equalTo(350)));
+			assertThat(motor.getTickAtTime(2000L), is(equalTo(300)));
+			assertThat(motor.getTickAtTime(3000L), is(equalTo(380)));
+		}
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void easeInOutCurve() {
+
+		addKeys(new long[] {0L, 1000L}, new int[] {250, 350});
+		motor.setInterpolation(InterpolationMode.EASE_IN_OUT);
+
+		assertThat(motor.getTickAtTime(250L), is(equalTo(266)));
+		assertThat(motor.getTickAtTime(500L), is(equalTo(300)));
+		assertThat(motor.getTickAtTime(750L), is(equalTo(334)));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void easeInAndEaseOutCurves() {
+
+		addKeys(new long[] {0L, 1000L}, new int[] {250, 350});
+
+		motor.setInterpolation(InterpolationMode.EASE_IN);
+		assertThat(motor.getTickAtTime(500L), is(equalTo(275)));
+
+		motor.setInterpolation(InterpolationMode.EASE_OUT);
+		assertThat(motor.getTickAtTime(500L), is(equalTo(325)));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void catmullRomOfEvenlySpacedLineIsLinear() {
+
+		addKeys(new long[] {0L, 1000L, 2000L, 3000L}, new int[] {220, 260, 300, 340});
+		motor.setInterpolation(InterpolationMode.CATMULL_ROM);
+
+		for (long time = 0L; time <= 3000L; time += 125L) {
+			assertThat(motor.getTickAtTime(time), is(equalTo(220 + (int) (time / 25L))));
+		}
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void catmullRomIsClampedToMotorLimits() {
+
+		addKeys(new long[] {0L, 1000L, 2000L, 3000L}, new int[] {204, 410, 410, 204});
+		motor.setInterpolation(InterpolationMode.CATMULL_ROM);
+
+		assertThat(motor.getTickAtTime(1500L), is(equalTo(410)));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void changingKeysRecomputesCurve() {
+
+		addKeys(new long[] {0L, 1000L, 2000L}, new int[] {250, 350, 300});
+		motor.setInterpolation(InterpolationMode.CATMULL_ROM);
+		assertThat(motor.getTickAtTime(1000L), is(equalTo(350)));
+
+		motor.setTickAtIndex(1, 270);
+		assertThat(motor.getTickAtTime(1000L), is(equalTo(270)));
+
+		motor.addAnimationKey();
+		motor.removeKeyAtIndex(0);
+		assertThat(motor.getTickAtTime(500L), is(equalTo(270)));
+		assertThat(motor.getTickAtTime(2000L), is(equalTo(300)));
+	}
+
+	private void addKeys(long[] times, int[] ticks) {
+
+		for (int i = 0; i < times.length; i++) {
+			int index = motor.addAnimationKey();
+			motor.setTimeAtIndex(index, times[i]);
+			motor.setTickAtIndex(index, ticks[i]);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Bulk key editing tests
+	// ------------------------------------------------------------------------
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void addAnimationKeysMergesByTime() {
+
+		addKeys(new long[] {100L, 300L, 500L}, new int[] {210, 230, 250});
+		motor.addAnimationKeys(new long[] {0L, 200L, 400L, 600L, 700L}, new int[] {300, 220, 240, 260, 500}, 0, 5);
+
+		assertKeys(new long[] {0L, 100L, 200L, 300L, 400L, 500L, 600L, 700L},
+				new int[] {300, 210, 220, 230, 240, 250, 260, 410});
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void addAnimationKeysWithoutExistingKeys() {
+
+		motor.addAnimationKeys(new long[] {-1L, 10L, 20L, 30L}, new int[] {0, 220, 230, 240}, 1, 3);
+		assertKeys(new long[] {10L, 20L, 30L}, new int[] {220, 230, 240});
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void addAnimationKeysWithUsedTime() {
+
+		addKeys(new long[] {100L, 300L}, new int[] {210, 230});
+
+		try {
+			motor.addAnimationKeys(new long[] {200L, 300L}, new int[] {220, 230}, 0, 2);
+		} catch (IllegalArgumentException e) {
+			assertKeys(new long[] {100L, 300L}, new int[] {210, 230});
+			return;
+		}
+
+		throw new AssertionError("Expected IllegalArgumentException.");
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"}, expectedExceptions=IllegalArgumentException.class)
+	public void addAnimationKeysOutOfOrder() {
+		motor.addAnimationKeys(new long[] {200L, 100L}, new int[] {220, 210}, 0, 2);
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void appendAnimationKeys() {
+
+		addKeys(new long[] {100L}, new int[] {210});
+		motor.appendAnimationKeys(new long[] {200L, 300L}, new int[] {100, 230}, 0, 2);
+
+		assertKeys(new long[] {100L, 200L, 300L}, new int[] {210, 204, 230});
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"}, expectedExceptions=IllegalArgumentException.class)
+	public void appendAnimationKeysBeforeLastKey() {
+
+		addKeys(new long[] {100L, 300L}, new int[] {210, 230});
+		motor.appendAnimationKeys(new long[] {300L, 400L}, new int[] {230, 240}, 0, 2);
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void removeKeyRange() {
+
+		addKeys(new long[] {0L, 100L, 200L, 300L, 400L}, new int[] {210, 220, 230, 240, 250});
+		motor.removeKeyRange(1, 4);
+
+		assertKeys(new long[] {0L, 400L}, new int[] {210, 250});
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"}, expectedExceptions=IndexOutOfBoundsException.class)
+	public void removeKeyRangePastLastKey() {
+
+		addKeys(new long[] {0L, 100L}, new int[] {210, 220});
+		motor.removeKeyRange(1, 3);
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void replaceKeyRangeWithMoreKeys() {
+
+		addKeys(new long[] {0L, 100L, 200L, 300L}, new int[] {210, 220, 230, 240});
+		motor.replaceKeyRange(1, 3, new long[] {50L, 150L, 250L}, new int[] {215, 225, 235}, 0, 3);
+
+		assertKeys(new long[] {0L, 50L, 150L, 250L, 300L}, new int[] {210, 215, 225, 235, 240});
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void replaceKeyRangeWithFewerKeys() {
+
+		addKeys(new long[] {0L, 100L, 200L, 300L}, new int[] {210, 220, 230, 240});
+		motor.replaceKeyRange(0, 3, new long[] {150L}, new int[] {225}, 0, 1);
+
+		assertKeys(new long[] {150L, 300L}, new int[] {225, 240});
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void replaceEmptyKeyRangeInsertsKeys() {
+
+		addKeys(new long[] {0L, 300L}, new int[] {210, 240});
+		motor.replaceKeyRange(1, 1, new long[] {100L, 200L}, new int[] {220, 230}, 0, 2);
+
+		assertKeys(new long[] {0L, 100L, 200L, 300L}, new int[] {210, 220, 230, 240});
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"}, expectedExceptions=IllegalArgumentException.class)
+	public void replaceKeyRangeOverlappingNextKey() {
+
+		addKeys(new long[] {0L, 100L, 200L}, new int[] {210, 220, 230});
+		motor.replaceKeyRange(1, 2, new long[] {150L, 200L}, new int[] {225, 230}, 0, 2);
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void bulkEditsRecomputeCurve() {
+
+		addKeys(new long[] {0L, 1000L, 2000L}, new int[] {250, 350, 300});
+		motor.setInterpolation(InterpolationMode.CATMULL_ROM);
+		assertThat(motor.getTickAtTime(1000L), is(equalTo(350)));
+
+		motor.replaceKeyRange(1, 2, new long[] {1000L}, new int[] {270}, 0, 1);
+		assertThat(motor.getTickAtTime(1000L), is(equalTo(270)));
+	}
+
+	private void assertKeys(long[] times, int[] ticks) {
+
+		assertThat(motor.getNumberOfKeys(), is(equalTo(times.length)));
+		for (int i = 0; i < times.length; i++) {
+			assertThat(motor.getTimeAtIndex(i), is(equalTo(times[i])));
+			assertThat(motor.getTickAtIndex(i), is(equalTo(ticks[i])));
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Decimation tests
+	// ------------------------------------------------------------------------
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void decimateStraightLine() {
+
+		for (int i = 0; i <= 100; i++) {
+			int index = motor.addAnimationKey();
+			motor.setTimeAtIndex(index, i * 20L);
+			motor.setTickAtIndex(index, 210 + i * 2);
+		}
+
+		DecimationResult result = motor.decimate(0);
+
+		assertThat(result.getKeysRemoved(), is(equalTo(99)));
+		assertThat(result.getKeysKept(), is(equalTo(2)));
+		assertThat(result.getMaxError(), is(equalTo(0)));
+		assertKeys(new long[] {0L, 2000L}, new int[] {210, 410});
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void decimateKeepsCorners() {
+
+		addKeys(new long[] {0L, 100L, 200L, 300L, 400L, 500L, 600L},
+				new int[] {210, 230, 250, 270, 250, 230, 210});
+
+		DecimationResult result = motor.decimate(1);
+
+		assertThat(result.getKeysRemoved(), is(equalTo(4)));
+		assertKeys(new long[] {0L, 300L, 600L}, new int[] {210, 270, 210});
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void decimateStaysWithinTolerance() {
+
+		int[] ticks = new int[500];
+		for (int i = 0; i < ticks.length; i++) {
+			int index = motor.addAnimationKey();
+			motor.setTimeAtIndex(index, i * 20L);
+			ticks[i] = 307 + (int) (100.0 * Math.sin(i / 25.0)) + (i * 7) % 3;
+			motor.setTickAtIndex(index, ticks[i]);
+		}
+
+		DecimationResult result = motor.decimate(4);
+
+		assertThat(result.getKeysRemoved() + result.getKeysKept(), is(equalTo(500)));
+		assertThat(motor.getNumberOfKeys(), is(equalTo(result.getKeysKept())));
+		assertThat(result.getKeysKept() < 100, is(equalTo(true)));
+
+		int maxError = 0;
+		for (int i = 0; i < ticks.length; i++) {
+			maxError = Math.max(maxError, Math.abs(motor.getTickAtTime(i * 20L) - ticks[i]));
+		}
+
+		assertThat(maxError <= 4, is(equalTo(true)));
+		assertThat(result.getMaxError(), is(equalTo(maxError)));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void decimateCurveStaysWithinTolerance() {
+
+		motor.setInterpolation(InterpolationMode.EASE_IN_OUT);
+
+		int[] ticks = new int[500];
+		for (int i = 0; i < ticks.length; i++) {
+			int index = motor.addAnimationKey();
+			motor.setTimeAtIndex(index, i * 20L);
+			ticks[i] = 307 + (int) (100.0 * Math.sin(i / 25.0)) + (i * 7) % 3;
+			motor.setTickAtIndex(index, ticks[i]);
+		}
+
+		DecimationResult result = motor.decimate(4);
+
+		assertThat(result.getKeysRemoved() > 0, is(equalTo(true)));
+
+		int maxError = 0;
+		for (int i = 0; i < ticks.length; i++) {
+			maxError = Math.max(maxError, Math.abs(motor.getTickAtTime(i * 20L) - ticks[i]));
+		}
+
+		assertThat(maxError <= 4, is(equalTo(true)));
+		assertThat(result.getMaxError(), is(equalTo(maxError)));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void decimateTwoKeys() {
+
+		addKeys(new long[] {0L, 100L}, new int[] {210, 220});
+
+		DecimationResult result = motor.decimate(10);
+
+		assertThat(result.getKeysRemoved(), is(equalTo(0)));
+		assertThat(motor.getNumberOfKeys(), is(equalTo(2)));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"}, expectedExceptions=IllegalArgumentException.class)
+	public void decimateWithNegativeTolerance() {
+		motor.decimate(-1);
+	}
+
+	// ------------------------------------------------------------------------
+	// Key storage tests
+	// ------------------------------------------------------------------------
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void getAnimationKeyAtIndexReturnsCopy() {
+
+		addKeys(new long[] {100L, 200L}, new int[] {210, 220});
+
+		AnimationKey key = motor.getAnimationKeyAtIndex(1);
+		assertThat(key.getTime(), is(equalTo(200L)));
+		assertThat(key.getTick(), is(equalTo(220)));
+
+		key.setTime(900L).setTick(300);
+		assertKeys(new long[] {100L, 200L}, new int[] {210, 220});
+		assertThat(motor.getAnimationKeyAtIndex(1) == key, is(equalTo(false)));
+		assertThat(motor.getAnimationKeyAtIndex(1), is(equalTo(new AnimationKey(220, 200L))));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"}, expectedExceptions=IndexOutOfBoundsException.class)
+	public void getAnimationKeyAtIndexWithoutAnyKeys() {
+		motor.getAnimationKeyAtIndex(0);
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void trimToSizeWithoutAnyKeys() {
+
+		motor.trimToSize();
+		assertThat(motor.getNumberOfKeys(), is(equalTo(0)));
+
+		motor.addAnimationKey();
+		motor.addAnimationKey();
+		motor.setTickAtIndex(1, 300);
+		motor.addAnimationKey();
+
+		assertKeys(new long[] {0L, 1000L, 2000L}, new int[] {0, 300, 300});
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void trimToSizeWithKeys() {
+
+		addKeys(new long[] {100L, 300L, 500L}, new int[] {210, 230, 250});
+		motor.trimToSize();
+		assertKeys(new long[] {100L, 300L, 500L}, new int[] {210, 230, 250});
+		assertThat(motor.getTickAtTime(200L), is(equalTo(220)));
+
+		motor.addAnimationKeyAtIndex(1);
+		addKeys(new long[] {700L}, new int[] {270});
+
+		assertKeys(new long[] {100L, 200L, 300L, 500L, 700L}, new int[] {210, 220, 230, 250, 270});
+		assertThat(motor.getTickAtTime(600L), is(equalTo(260)));
+	}
+
+	@Test(enabled=true, groups={"PwmMotorTests","unit"})
+	public void addKeysBeyondInitialCapacity() {
+
+		int numberOfKeys = 40;
+		long[] times = new long[numberOfKeys + 1];
+		int[] ticks = new int[numberOfKeys + 1];
+		for (int i = 0, j = 0; i < numberOfKeys; i++, j++) {
+			int index = motor.addAnimationKey();
+			motor.setTickAtIndex(index, 210 + i * 4);
+
+			// The key inserted at index 20 below lands half way between its neighbors.
+			if (i == 20) {
+				times[j] = 19500L;
+				ticks[j++] = 288;
+			}
+			times[j] = i * 1000L;
+			ticks[j] = 210 + i * 4;
+		}
+
+		assertThat(motor.addAnimationKeyAtIndex(20), is(equalTo(20)));
+		assertKeys(times, ticks);
+	}
+
 	// ------------------------------------------------------------------------
 	// Confirm equals implementation
 	// ------------------------------------------------------------------------
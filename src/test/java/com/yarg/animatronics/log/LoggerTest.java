@@ -32,6 +32,9 @@ public class LoggerTest {
 	@AfterMethod(alwaysRun = true)
 	public void afterTest()
 	{
+		Logger.stopAsync();
+		Logger.setLevel(SEVERITY.DEBUG);
+
 		// Put back stdout.
 		System.setOut(originalStdout);
 
@@ -107,4 +110,94 @@ public class LoggerTest {
 		String expectedMessage = "[INFO] " + message + "\n";
 		assertThat(consoleContent.toString(), is(equalTo(expectedMessage)));
 	}
+
+	@Test(enabled=true, groups={"LoggerTests","unit"})
+	public void logBelowLevel() {
+
+		Logger.setLevel(SEVERITY.WARNING);
+		Logger.log(SEVERITY.INFO, "Test info message.");
+		Logger.log(SEVERITY.DEBUG, "Test debug message.");
+
+		assertThat(consoleContent.toString().length(), is(equalTo(0)));
+	}
+
+	@Test(enabled=true, groups={"LoggerTests","unit"})
+	public void logAtOrAboveLevel() {
+
+		Logger.setLevel(SEVERITY.WARNING);
+		Logger.log(SEVERITY.WARNING, "Test warning message.");
+		Logger.log(SEVERITY.ERROR, "Test error message.");
+
+		String expectedMessage = "[WARNING] Test warning message.\n[ERROR] Test error message.\n";
+		assertThat(consoleContent.toString(), is(equalTo(expectedMessage)));
+	}
+
+	@Test(enabled=true, groups={"LoggerTests","unit"})
+	public void logSupplier() {
+
+		Logger.log(SEVERITY.INFO, () -> "Test info " + "message.");
+
+		String expectedMessage = "[INFO] Test info message.\n";
+		assertThat(consoleContent.toString(), is(equalTo(expectedMessage)));
+	}
+
+	@Test(enabled=true, groups={"LoggerTests","unit"})
+	public void supplierIsNotCalledBelowLevel() {
+
+		boolean[] called = new boolean[1];
+		Logger.setLevel(SEVERITY.ERROR);
+		Logger.log(SEVERITY.INFO, () -> {
+			called[0] = true;
+			return "Test info message.";
+		});
+
+		assertThat(called[0], is(equalTo(false)));
+	}
+
+	@Test(enabled=true, groups={"LoggerTests","unit"})
+	public void supplierIsNotCalledWithoutWriteFlag() {
+
+		boolean[] called = new boolean[1];
+		Logger.log(SEVERITY.INFO, () -> {
+			called[0] = true;
+			return "Test info message.";
+		}, false);
+
+		assertThat(called[0], is(equalTo(false)));
+	}
+
+	@Test(enabled=true, groups={"LoggerTests","unit"})
+	public void logAsync() {
+
+		Logger.startAsync(16);
+		for (int i = 0; i < 40; i++) {
+			Logger.log(SEVERITY.INFO, "Message " + i + ".");
+		}
+		Logger.flush();
+
+		StringBuilder expectedMessages = new StringBuilder();
+		int written = 0;
+		for (int i = 0; i < 40; i++) {
+			String expectedMessage = "[INFO] Message " + i + ".\n";
+			if (consoleContent.toString().contains(expectedMessage)) {
+				expectedMessages.append(expectedMessage);
+				written++;
+			}
+		}
+
+		// Entries are written in order, and every entry is either written or counted as dropped.
+		assertThat(consoleContent.toString(), is(equalTo(expectedMessages.toString())));
+		assertThat(written + Logger.getDroppedEntries(), is(equalTo(40L)));
+	}
+
+	@Test(enabled=true, groups={"LoggerTests","unit"})
+	public void stopAsyncWritesQueuedEntries() {
+
+		Logger.startAsync(64);
+		Logger.log(SEVERITY.INFO, "Test info message.");
+		Logger.stopAsync();
+
+		String expectedMessage = "[INFO] Test info message.\n";
+		assertThat(consoleContent.toString(), is(equalTo(expectedMessage)));
+	}
 }
@@ -0,0 +1,59 @@
+package com.yarg.animatronics.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ControllerMetricsTest {
+
+	private ControllerMetrics metrics;
+
+	@BeforeMethod(alwaysRun=true)
+	public void setup() {
+		metrics = new ControllerMetrics();
+	}
+
+	@Test(enabled=true, groups={"ControllerMetricsTests","unit"})
+	public void recordTransactions() {
+
+		metrics.recordTransaction(1);
+		metrics.recordTransaction(64);
+		metrics.recordSkippedChannelWrite();
+
+		assertThat(metrics.getI2cTransactions(), is(equalTo(2L)));
+		assertThat(metrics.getI2cBytesWritten(), is(equalTo(65L)));
+		assertThat(metrics.getSkippedChannelWrites(), is(equalTo(1L)));
+	}
+
+	@Test(enabled=true, groups={"ControllerMetricsTests","unit"})
+	public void registerWithJmx() throws JMException {
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("com.yarg.animatronics:type=Controller,name=\"test\"");
+		ObjectName histogramName = new ObjectName(
+				"com.yarg.animatronics:type=Controller,name=\"test\",histogram=BoardWriteTime");
+
+		metrics.recordTransaction(4);
+		metrics.recordBoardWrite(1000L);
+		metrics.register("test");
+
+		try {
+			assertThat(server.getAttribute(name, "I2cTransactions"), is(equalTo((Object) 1L)));
+			assertThat(server.getAttribute(histogramName, "Count"), is(equalTo((Object) 1L)));
+		} finally {
+			metrics.unregister();
+		}
+
+		assertThat(server.isRegistered(name), is(equalTo(false)));
+		assertThat(server.isRegistered(histogramName), is(equalTo(false)));
+	}
+}
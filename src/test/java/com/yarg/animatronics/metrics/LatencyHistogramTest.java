@@ -0,0 +1,90 @@
+package com.yarg.animatronics.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class LatencyHistogramTest {
+
+	private LatencyHistogram histogram;
+
+	@BeforeMethod(alwaysRun=true)
+	public void setup() {
+		histogram = new LatencyHistogram();
+	}
+
+	@Test(enabled=true, groups={"LatencyHistogramTests","unit"})
+	public void emptyHistogram() {
+
+		assertThat(histogram.getCount(), is(equalTo(0L)));
+		assertThat(histogram.getMin(), is(equalTo(0L)));
+		assertThat(histogram.getMax(), is(equalTo(0L)));
+		assertThat(histogram.getPercentile99(), is(equalTo(0L)));
+	}
+
+	@Test(enabled=true, groups={"LatencyHistogramTests","unit"})
+	public void smallValuesAreExact() {
+
+		for (long value = 1L; value <= 10L; value++) {
+			histogram.record(value);
+		}
+
+		assertThat(histogram.getCount(), is(equalTo(10L)));
+		assertThat(histogram.getMin(), is(equalTo(1L)));
+		assertThat(histogram.getMax(), is(equalTo(10L)));
+		assertThat(histogram.getMean(), is(equalTo(5.5)));
+		assertThat(histogram.getPercentile50(), is(equalTo(5L)));
+		assertThat(histogram.getPercentile90(), is(equalTo(9L)));
+	}
+
+	@Test(enabled=true, groups={"LatencyHistogramTests","unit"})
+	public void largeValuesAreWithinBucketPrecision() {
+
+		for (long value = 1L; value <= 100000L; value++) {
+			histogram.record(value * 1000L);
+		}
+
+		long percentile99 = histogram.getPercentile99();
+		assertThat(percentile99, is(greaterThanOrEqualTo(99000000L)));
+		assertThat(percentile99, is(lessThanOrEqualTo(99000000L + 99000000L / 16L)));
+		assertThat(histogram.getPercentile(100.0), is(equalTo(100000000L)));
+	}
+
+	@Test(enabled=true, groups={"LatencyHistogramTests","unit"})
+	public void bucketsCoverEveryValue() {
+
+		long[] values = {0L, 15L, 16L, 17L, 31L, 32L, 1000L, 123456789L, Long.MAX_VALUE};
+		for (long value : values) {
+			int bucket = LatencyHistogram.getBucket(value);
+			assertThat(LatencyHistogram.getBucketUpperBound(bucket), is(greaterThanOrEqualTo(value)));
+			if (bucket > 0) {
+				assertThat(LatencyHistogram.getBucketUpperBound(bucket - 1), is(lessThanOrEqualTo(value - 1)));
+			}
+		}
+	}
+
+	@Test(enabled=true, groups={"LatencyHistogramTests","unit"})
+	public void negativeValuesAreRecordedAsZero() {
+
+		histogram.record(-5L);
+
+		assertThat(histogram.getMin(), is(equalTo(0L)));
+		assertThat(histogram.getMax(), is(equalTo(0L)));
+	}
+
+	@Test(enabled=true, groups={"LatencyHistogramTests","unit"})
+	public void resetHistogram() {
+
+		histogram.record(100L);
+		histogram.reset();
+
+		assertThat(histogram.getCount(), is(equalTo(0L)));
+		assertThat(histogram.getPercentile50(), is(equalTo(0L)));
+		assertThat(histogram.getMin(), is(equalTo(0L)));
+	}
+}
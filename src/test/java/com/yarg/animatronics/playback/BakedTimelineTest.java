@@ -0,0 +1,132 @@
+package com.yarg.animatronics.playback;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.datamodel.PwmMotor;
+
+public class BakedTimelineTest {
+
+	private List<PwmBoard> boards;
+
+	@BeforeMethod(alwaysRun=true)
+	public void setup() {
+
+		TestPwmBoard board = new TestPwmBoard();
+		for (int channel = 1; channel <= 3; channel++) {
+			TestPwmMotor motor = new TestPwmMotor();
+			motor.setPwmChannel(channel);
+			for (int i = 0; i < 5; i++) {
+				motor.addAnimationKey();
+				motor.setTickAtIndex(i, 210 + (i * 37 * channel) % 200);
+			}
+			board.addMotor(motor);
+		}
+
+		boards = new ArrayList<>();
+		boards.add(board);
+	}
+
+	@Test(enabled=true, groups={"BakedTimelineTests","unit"})
+	public void frameCountCoversDuration() {
+
+		BakedTimeline timeline = new BakedTimeline(boards);
+
+		assertThat(timeline.getDuration(), is(equalTo(4000L)));
+		assertThat(timeline.getFrameCount(0), is(equalTo(201)));
+	}
+
+	@Test(enabled=true, groups={"BakedTimelineTests","unit"})
+	public void sizeInBytes() {
+
+		BakedTimeline timeline = new BakedTimeline(boards);
+
+		assertThat(timeline.getSizeInBytes(), is(equalTo(201L * 4 * 2)));
+		assertThat(BakedTimeline.estimateSizeInBytes(boards), is(equalTo(timeline.getSizeInBytes())));
+	}
+
+	@Test(enabled=true, groups={"BakedTimelineTests","unit"})
+	public void framesMatchInterpolatedKeys() {
+
+		BakedTimeline timeline = new BakedTimeline(boards);
+		KeyframeFrameSource keyframes = new KeyframeFrameSource(boards);
+
+		int[] bakedTicks = new int[4];
+		int[] expectedTicks = new int[4];
+		for (long time = 0L; time <= 4000L; time += 20L) {
+			timeline.renderFrame(0, time, bakedTicks);
+			keyframes.renderFrame(0, time, expectedTicks);
+			assertThat(bakedTicks, is(equalTo(expectedTicks)));
+		}
+	}
+
+	@Test(enabled=true, groups={"BakedTimelineTests","unit"})
+	public void renderFrameAfterDurationHoldsLastFrame() {
+
+		BakedTimeline timeline = new BakedTimeline(boards);
+
+		int[] lastTicks = new int[4];
+		int[] ticks = new int[4];
+		timeline.renderFrame(0, 4000L, lastTicks);
+		timeline.renderFrame(0, 9000L, ticks);
+
+		assertThat(ticks, is(equalTo(lastTicks)));
+		assertThat(ticks[3], is(equalTo(FrameSource.NO_VALUE)));
+	}
+
+	/*
+	 * Implementation of PwmBoard abstract class for testing purposes.
+	 */
+	class TestPwmBoard extends PwmBoard {
+
+		@Override
+		public int getFrequency() {
+			return 50;
+		}
+
+		@Override
+		public int getNumberOfChannels() {
+			return 4;
+		}
+
+	}
+
+	/*
+	 * Implementation of the PwmMotor abstract class for testing purposes.
+	 */
+	class TestPwmMotor extends PwmMotor {
+
+		@Override
+		public int getMaxTick() {
+			return 410;
+		}
+
+		@Override
+		public int getMinTick() {
+			return 204;
+		}
+
+		@Override
+		public double getMaxAngle() {
+			return 90;
+		}
+
+		@Override
+		public double getMinAngle() {
+			return -90;
+		}
+
+		@Override
+		public String getMotorId() {
+			return "Test Motor MG995R";
+		}
+	}
+}
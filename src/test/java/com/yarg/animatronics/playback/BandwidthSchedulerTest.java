@@ -0,0 +1,229 @@
+package com.yarg.animatronics.playback;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.datamodel.PwmMotor;
+
+public class BandwidthSchedulerTest {
+
+	// 1000 bytes per second, 20 bytes per frame of a 50 Hz board: a run of four channels with auto-increment.
+	private static final int SLOW_CLOCK_HERTZ = 9000;
+
+	private List<PwmBoard> boards;
+	private TestPwmBoard board;
+	private int[] ticks;
+
+	@BeforeMethod(alwaysRun=true)
+	public void setup() {
+
+		board = new TestPwmBoard();
+		boards = new ArrayList<>();
+		boards.add(board);
+
+		ticks = new int[board.getNumberOfChannels()];
+		Arrays.fill(ticks, 300);
+	}
+
+	@Test(enabled=true, groups={"BandwidthSchedulerTests","unit"})
+	public void frameWithinBudgetIsWrittenWhole() {
+
+		BandwidthScheduler scheduler = new BandwidthScheduler(boards, 400000, true, 0.8);
+		int[] scheduled = scheduler.schedule(0, ticks);
+
+		assertThat(scheduled, is(equalTo(ticks)));
+		assertThat(scheduler.getDeferredChannels(), is(equalTo(0L)));
+	}
+
+	@Test(enabled=true, groups={"BandwidthSchedulerTests","unit"})
+	public void unchangedChannelsAreNotWritten() {
+
+		BandwidthScheduler scheduler = new BandwidthScheduler(boards, 400000, true, 0.8);
+		scheduler.schedule(0, ticks);
+		ticks[3] = 310;
+		int[] scheduled = scheduler.schedule(0, ticks);
+
+		for (int channel = 0; channel < scheduled.length; channel++) {
+			assertThat(scheduled[channel], is(equalTo(channel == 3 ? 310 : FrameSource.NO_VALUE)));
+		}
+	}
+
+	@Test(enabled=true, groups={"BandwidthSchedulerTests","unit"})
+	public void frameOverBudgetIsCutToBudget() {
+
+		BandwidthScheduler scheduler = new BandwidthScheduler(boards, SLOW_CLOCK_HERTZ, true, 1.0);
+		assertThat(scheduler.getFrameBudget(0), is(equalTo(20)));
+
+		int[] scheduled = scheduler.schedule(0, ticks);
+
+		assertThat(countWritten(scheduled), is(equalTo(4)));
+		assertThat(scheduler.getDeferredChannels(), is(equalTo(12L)));
+		assertThat(ticks[15], is(equalTo(300)));
+	}
+
+	@Test(enabled=true, groups={"BandwidthSchedulerTests","unit"})
+	public void deferredChannelsCatchUp() {
+
+		BandwidthScheduler scheduler = new BandwidthScheduler(boards, SLOW_CLOCK_HERTZ, true, 1.0);
+
+		int written = 0;
+		for (int frame = 0; frame < 4; frame++) {
+			written += countWritten(scheduler.schedule(0, ticks));
+		}
+
+		assertThat(written, is(equalTo(16)));
+		assertThat(countWritten(scheduler.schedule(0, ticks)), is(equalTo(0)));
+	}
+
+	@Test(enabled=true, groups={"BandwidthSchedulerTests","unit"})
+	public void largestMovementsAreWrittenFirst() {
+
+		BandwidthScheduler scheduler = new BandwidthScheduler(boards, SLOW_CLOCK_HERTZ, true, 1.0);
+		for (int frame = 0; frame < 4; frame++) {
+			scheduler.schedule(0, ticks);
+		}
+
+		for (int channel = 0; channel < ticks.length; channel++) {
+			ticks[channel] += 1;
+		}
+		ticks[12] += 50;
+		ticks[5] += 20;
+
+		int[] scheduled = scheduler.schedule(0, ticks);
+
+		assertThat(countWritten(scheduled), is(equalTo(3)));
+		assertThat(scheduled[12], is(equalTo(351)));
+		assertThat(scheduled[5], is(equalTo(321)));
+		assertThat(scheduled[0], is(equalTo(301)));
+	}
+
+	@Test(enabled=true, groups={"BandwidthSchedulerTests","unit"})
+	public void motorPriorityComesBeforeMovement() {
+
+		TestPwmMotor motor = new TestPwmMotor();
+		motor.setPwmChannel(11);
+		motor.setPriority(1);
+		board.addMotor(motor);
+
+		BandwidthScheduler scheduler = new BandwidthScheduler(boards, SLOW_CLOCK_HERTZ, true, 1.0);
+		int[] scheduled = scheduler.schedule(0, ticks);
+
+		assertThat(scheduled[10], is(equalTo(300)));
+		assertThat(countWritten(scheduled), is(equalTo(4)));
+		assertThat(scheduled[3], is(equalTo(FrameSource.NO_VALUE)));
+	}
+
+	@Test(enabled=true, groups={"BandwidthSchedulerTests","unit"})
+	public void withoutAutoIncrementEveryRegisterCosts() {
+
+		BandwidthScheduler scheduler = new BandwidthScheduler(boards, SLOW_CLOCK_HERTZ, false, 1.0);
+		int[] scheduled = scheduler.schedule(0, ticks);
+
+		assertThat(countWritten(scheduled), is(equalTo(1)));
+	}
+
+	@Test(enabled=true, groups={"BandwidthSchedulerTests","unit"})
+	public void budgetIsSharedByBoardsOnTheSameBus() {
+
+		TestPwmBoard secondBoard = new TestPwmBoard();
+		boards.add(secondBoard);
+		TestPwmBoard otherBusBoard = new TestPwmBoard();
+		otherBusBoard.setI2cBusNumber(2);
+		boards.add(otherBusBoard);
+
+		BandwidthScheduler scheduler = new BandwidthScheduler(boards, 100000, true, 1.0);
+
+		// 2 + 16 * 4 bytes of 9 clocks, 50 times a second per board at 100 kHz.
+		assertThat(scheduler.getWorstCaseLoad(1), is(closeTo(0.594, 1e-9)));
+		assertThat(scheduler.getWorstCaseLoad(2), is(closeTo(0.297, 1e-9)));
+		assertThat(scheduler.getWorstCaseLoad(3), is(closeTo(0.0, 1e-9)));
+		assertThat(scheduler.getFrameBudget(0), is(equalTo(111)));
+		assertThat(scheduler.getFrameBudget(2), is(equalTo(222)));
+		assertThat(scheduler.isFullFrameRateSustainable(), is(equalTo(true)));
+	}
+
+	@Test(enabled=true, groups={"BandwidthSchedulerTests","unit"})
+	public void budgetNeverDropsBelowOneChannel() {
+
+		BandwidthScheduler scheduler = new BandwidthScheduler(boards, 900, true, 0.5);
+
+		assertThat(scheduler.getFrameBudget(0), is(equalTo(6)));
+		assertThat(countWritten(scheduler.schedule(0, ticks)), is(equalTo(1)));
+		assertThat(scheduler.isFullFrameRateSustainable(), is(equalTo(false)));
+	}
+
+	@Test(enabled=true, groups={"BandwidthSchedulerTests","unit"}, expectedExceptions=IllegalArgumentException.class)
+	public void invalidUtilization() {
+		new BandwidthScheduler(boards, 400000, true, 1.5);
+	}
+
+	private static int countWritten(int[] scheduled) {
+
+		int written = 0;
+		for (int tick : scheduled) {
+			if (tick != FrameSource.NO_VALUE) {
+				written++;
+			}
+		}
+
+		return written;
+	}
+
+	/*
+	 * Implementation of PwmBoard abstract class for testing purposes.
+	 */
+	class TestPwmBoard extends PwmBoard {
+
+		@Override
+		public int getFrequency() {
+			return 50;
+		}
+
+		@Override
+		public int getNumberOfChannels() {
+			return 16;
+		}
+
+	}
+
+	/*
+	 * Implementation of the PwmMotor abstract class for testing purposes.
+	 */
+	class TestPwmMotor extends PwmMotor {
+
+		@Override
+		public int getMaxTick() {
+			return 410;
+		}
+
+		@Override
+		public int getMinTick() {
+			return 204;
+		}
+
+		@Override
+		public double getMaxAngle() {
+			return 90;
+		}
+
+		@Override
+		public double getMinAngle() {
+			return -90;
+		}
+
+		@Override
+		public String getMotorId() {
+			return "Test Motor MG995R";
+		}
+	}
+}
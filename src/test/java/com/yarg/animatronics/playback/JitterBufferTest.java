@@ -0,0 +1,151 @@
+package com.yarg.animatronics.playback;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.yarg.animatronics.playback.JitterBuffer.UnderrunPolicy;
+
+public class JitterBufferTest {
+
+	private JitterBuffer jitterBuffer;
+	private int[] ticks;
+
+	@BeforeMethod(alwaysRun=true)
+	public void setup() {
+		jitterBuffer = new JitterBuffer(4, 2);
+		ticks = new int[2];
+	}
+
+	@Test(enabled=true, groups={"JitterBufferTests","unit"})
+	public void renderEmptyBuffer() {
+
+		boolean underrun = jitterBuffer.render(0L, 0, ticks, UnderrunPolicy.HOLD, 0L);
+
+		assertThat(underrun, is(equalTo(true)));
+		assertThat(ticks[0], is(equalTo(FrameSource.NO_VALUE)));
+	}
+
+	@Test(enabled=true, groups={"JitterBufferTests","unit"})
+	public void renderBetweenFrames() {
+
+		jitterBuffer.offer(100L, new int[] {300, 400});
+		jitterBuffer.offer(120L, new int[] {320, -1});
+
+		boolean underrun = jitterBuffer.render(105L, 0, ticks, UnderrunPolicy.HOLD, 0L);
+
+		assertThat(underrun, is(equalTo(false)));
+		assertThat(ticks[0], is(equalTo(305)));
+		assertThat(ticks[1], is(equalTo(400)));
+	}
+
+	@Test(enabled=true, groups={"JitterBufferTests","unit"})
+	public void renderSecondBoardChannels() {
+
+		jitterBuffer.offer(100L, new int[] {300, 400});
+
+		int[] boardTicks = new int[1];
+		jitterBuffer.render(100L, 1, boardTicks, UnderrunPolicy.HOLD, 0L);
+
+		assertThat(boardTicks[0], is(equalTo(400)));
+	}
+
+	@Test(enabled=true, groups={"JitterBufferTests","unit"})
+	public void underrunHoldsNewestFrame() {
+
+		jitterBuffer.offer(100L, new int[] {300, 400});
+		jitterBuffer.offer(120L, new int[] {320, 400});
+
+		boolean underrun = jitterBuffer.render(140L, 0, ticks, UnderrunPolicy.HOLD, 0L);
+
+		assertThat(underrun, is(equalTo(true)));
+		assertThat(ticks[0], is(equalTo(320)));
+		assertThat(jitterBuffer.getUnderruns(), is(equalTo(1L)));
+	}
+
+	@Test(enabled=true, groups={"JitterBufferTests","unit"})
+	public void underrunIsCountedOncePerFrame() {
+
+		jitterBuffer.offer(100L, new int[] {300, 400});
+
+		int[] boardTicks = new int[1];
+		jitterBuffer.render(120L, 0, boardTicks, UnderrunPolicy.HOLD, 0L);
+		jitterBuffer.render(120L, 1, boardTicks, UnderrunPolicy.HOLD, 0L);
+		assertThat(jitterBuffer.getUnderruns(), is(equalTo(1L)));
+
+		jitterBuffer.render(140L, 0, boardTicks, UnderrunPolicy.HOLD, 0L);
+		jitterBuffer.render(140L, 1, boardTicks, UnderrunPolicy.HOLD, 0L);
+		assertThat(jitterBuffer.getUnderruns(), is(equalTo(2L)));
+	}
+
+	@Test(enabled=true, groups={"JitterBufferTests","unit"})
+	public void underrunExtrapolatesNewestFrames() {
+
+		jitterBuffer.offer(100L, new int[] {300, 400});
+		jitterBuffer.offer(120L, new int[] {320, 400});
+
+		jitterBuffer.render(130L, 0, ticks, UnderrunPolicy.EXTRAPOLATE, 100L);
+
+		assertThat(ticks[0], is(equalTo(330)));
+	}
+
+	@Test(enabled=true, groups={"JitterBufferTests","unit"})
+	public void extrapolationHoldsChannelOnlyInNewestFrame() {
+
+		jitterBuffer.offer(100L, new int[] {300, -1});
+		jitterBuffer.offer(120L, new int[] {320, 410});
+
+		jitterBuffer.render(130L, 0, ticks, UnderrunPolicy.EXTRAPOLATE, 100L);
+
+		assertThat(ticks[0], is(equalTo(330)));
+		assertThat(ticks[1], is(equalTo(410)));
+	}
+
+	@Test(enabled=true, groups={"JitterBufferTests","unit"})
+	public void extrapolationIsLimited() {
+
+		jitterBuffer.offer(100L, new int[] {300, 400});
+		jitterBuffer.offer(120L, new int[] {320, 400});
+
+		jitterBuffer.render(500L, 0, ticks, UnderrunPolicy.EXTRAPOLATE, 20L);
+
+		assertThat(ticks[0], is(equalTo(340)));
+	}
+
+	@Test(enabled=true, groups={"JitterBufferTests","unit"})
+	public void fullBufferDropsOldestFrame() {
+
+		for (int i = 0; i < 5; i++) {
+			jitterBuffer.offer(100L + i * 20L, new int[] {300 + i, 400});
+		}
+
+		assertThat(jitterBuffer.size(), is(equalTo(4)));
+		assertThat(jitterBuffer.getOldestTimestamp(), is(equalTo(120L)));
+		assertThat(jitterBuffer.getDroppedFrames(), is(equalTo(1L)));
+	}
+
+	@Test(enabled=true, groups={"JitterBufferTests","unit"})
+	public void outOfOrderFrameIsDropped() {
+
+		jitterBuffer.offer(120L, new int[] {300, 400});
+		boolean added = jitterBuffer.offer(100L, new int[] {310, 400});
+
+		assertThat(added, is(equalTo(false)));
+		assertThat(jitterBuffer.size(), is(equalTo(1)));
+	}
+
+	@Test(enabled=true, groups={"JitterBufferTests","unit"})
+	public void discardKeepsFramesNeededForRendering() {
+
+		for (int i = 0; i < 4; i++) {
+			jitterBuffer.offer(100L + i * 20L, new int[] {300 + i, 400});
+		}
+
+		jitterBuffer.discardBefore(150L);
+
+		assertThat(jitterBuffer.getOldestTimestamp(), is(equalTo(120L)));
+	}
+}
@@ -0,0 +1,147 @@
+package com.yarg.animatronics.playback;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.datamodel.PwmMotor;
+
+public class KeyframeFrameSourceTest {
+
+	private TestPwmBoard board;
+	private TestPwmMotor motor;
+	private int[] ticks;
+
+	@BeforeMethod(alwaysRun=true)
+	public void setup() {
+
+		motor = new TestPwmMotor();
+		motor.setPwmChannel(2);
+		motor.addAnimationKey();
+		motor.setTickAtIndex(0, 300);
+		motor.addAnimationKey();
+		motor.setTickAtIndex(1, 400);
+		motor.addAnimationKey();
+		motor.setTickAtIndex(2, 250);
+
+		board = new TestPwmBoard();
+		board.addMotor(motor);
+
+		ticks = new int[board.getNumberOfChannels()];
+	}
+
+	@Test(enabled=true, groups={"KeyframeFrameSourceTests","unit"})
+	public void durationIsTimeOfLastKey() {
+
+		KeyframeFrameSource source = createSource();
+		assertThat(source.getDuration(), is(equalTo(2000L)));
+	}
+
+	@Test(enabled=true, groups={"KeyframeFrameSourceTests","unit"})
+	public void renderFrameAtKeyTime() {
+
+		KeyframeFrameSource source = createSource();
+		source.renderFrame(0, 1000L, ticks);
+
+		assertThat(ticks[1], is(equalTo(400)));
+	}
+
+	@Test(enabled=true, groups={"KeyframeFrameSourceTests","unit"})
+	public void renderFrameBetweenKeys() {
+
+		KeyframeFrameSource source = createSource();
+		source.renderFrame(0, 500L, ticks);
+
+		assertThat(ticks[1], is(equalTo(350)));
+	}
+
+	@Test(enabled=true, groups={"KeyframeFrameSourceTests","unit"})
+	public void renderFrameAfterLastKeyHoldsLastTick() {
+
+		KeyframeFrameSource source = createSource();
+		source.renderFrame(0, 5000L, ticks);
+
+		assertThat(ticks[1], is(equalTo(250)));
+	}
+
+	@Test(enabled=true, groups={"KeyframeFrameSourceTests","unit"})
+	public void renderFrameAfterSeekingBackwards() {
+
+		KeyframeFrameSource source = createSource();
+		source.renderFrame(0, 1500L, ticks);
+		source.renderFrame(0, 250L, ticks);
+
+		assertThat(ticks[1], is(equalTo(325)));
+	}
+
+	@Test(enabled=true, groups={"KeyframeFrameSourceTests","unit"})
+	public void renderFrameLeavesUnusedChannelsUntouched() {
+
+		KeyframeFrameSource source = createSource();
+		source.renderFrame(0, 0L, ticks);
+
+		assertThat(ticks[0], is(equalTo(FrameSource.NO_VALUE)));
+	}
+
+	private KeyframeFrameSource createSource() {
+
+		List<PwmBoard> boards = new ArrayList<>();
+		boards.add(board);
+		return new KeyframeFrameSource(boards);
+	}
+
+	/*
+	 * Implementation of PwmBoard abstract class for testing purposes.
+	 */
+	class TestPwmBoard extends PwmBoard {
+
+		@Override
+		public int getFrequency() {
+			return 50;
+		}
+
+		@Override
+		public int getNumberOfChannels() {
+			return 2;
+		}
+
+	}
+
+	/*
+	 * Implementation of the PwmMotor abstract class for testing purposes.
+	 */
+	class TestPwmMotor extends PwmMotor {
+
+		@Override
+		public int getMaxTick() {
+			return 410;
+		}
+
+		@Override
+		public int getMinTick() {
+			return 204;
+		}
+
+		@Override
+		public double getMaxAngle() {
+			return 90;
+		}
+
+		@Override
+		public double getMinAngle() {
+			return -90;
+		}
+
+		@Override
+		public String getMotorId() {
+			return "Test Motor MG995R";
+		}
+	}
+}
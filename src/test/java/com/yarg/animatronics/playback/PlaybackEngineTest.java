@@ -0,0 +1,122 @@
+package com.yarg.animatronics.playback;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.yarg.animatronics.controller.PCA69855Controller;
+import com.yarg.animatronics.controller.SimulatedI2CBus;
+import com.yarg.animatronics.controller.SimulatedI2CBus.ClockRate;
+import com.yarg.animatronics.controller.SimulatedPca9685;
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.datamodel.PwmMotor;
+import com.yarg.animatronics.datamodel.boards.PCA6985PwmBoard;
+import com.yarg.animatronics.timing.VirtualTimeSource;
+
+public class PlaybackEngineTest {
+
+	private static final int BOARD_ADDRESS = 0x40;
+
+	private SimulatedPca9685 device;
+	private VirtualTimeSource clock;
+	private PlaybackEngine engine;
+
+	@BeforeMethod(alwaysRun=true)
+	public void setup() throws IOException, InterruptedException {
+
+		SimulatedI2CBus bus = new SimulatedI2CBus(1, ClockRate.FAST);
+		device = bus.addDevice(BOARD_ADDRESS);
+		clock = new VirtualTimeSource();
+
+		TestPwmMotor motor = new TestPwmMotor();
+		motor.setPwmChannel(3);
+		motor.addAnimationKey();
+		motor.setTickAtIndex(0, 300);
+		motor.addAnimationKey();
+		motor.setTickAtIndex(1, 400);
+
+		PCA6985PwmBoard board = new PCA6985PwmBoard();
+		board.setPwmBoardAddress(BOARD_ADDRESS);
+		board.addMotor(motor);
+
+		PCA69855Controller controller = new PCA69855Controller(bus, false);
+		controller.setTimeSource(clock);
+		controller.addBoard(board);
+
+		List<PwmBoard> boards = new ArrayList<>();
+		boards.add(board);
+		engine = new PlaybackEngine(controller, new KeyframeFrameSource(boards));
+		engine.setTimeSource(clock);
+	}
+
+	@Test(enabled=true, groups={"PlaybackEngineTests","unit"})
+	public void playShowOnVirtualClock() throws InterruptedException {
+
+		long startTime = clock.nanoTime();
+		engine.start();
+		awaitEnd();
+
+		// One second at 50 Hz, both ends included, played without waiting for real time.
+		assertThat(engine.getFrameCount(), is(equalTo(51L)));
+		assertThat(engine.getFrameOverruns(), is(equalTo(0L)));
+		assertThat(clock.nanoTime() - startTime, is(equalTo(1000000000L)));
+		assertThat(device.getOffTick(2), is(equalTo(400)));
+	}
+
+	@Test(enabled=true, groups={"PlaybackEngineTests","unit"})
+	public void playShowWithSeparateRenderThreadOnVirtualClock() throws InterruptedException {
+
+		engine.setSeparateRenderThread(true);
+		engine.start();
+		awaitEnd();
+
+		assertThat(device.getOffTick(2), is(equalTo(400)));
+	}
+
+	private void awaitEnd() throws InterruptedException {
+
+		for (int i = 0; i < 5000 && engine.isRunning(); i++) {
+			Thread.sleep(1);
+		}
+
+		assertThat(engine.isRunning(), is(equalTo(false)));
+	}
+
+	/*
+	 * Implementation of the PwmMotor abstract class for testing purposes.
+	 */
+	class TestPwmMotor extends PwmMotor {
+
+		@Override
+		public int getMaxTick() {
+			return 410;
+		}
+
+		@Override
+		public int getMinTick() {
+			return 204;
+		}
+
+		@Override
+		public double getMaxAngle() {
+			return 90;
+		}
+
+		@Override
+		public double getMinAngle() {
+			return -90;
+		}
+
+		@Override
+		public String getMotorId() {
+			return "Test Motor MG995R";
+		}
+	}
+}
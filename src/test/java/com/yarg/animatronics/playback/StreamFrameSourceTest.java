@@ -0,0 +1,123 @@
+package com.yarg.animatronics.playback;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.yarg.animatronics.datamodel.PwmBoard;
+
+public class StreamFrameSourceTest {
+
+	private List<PwmBoard> boards;
+	private int[] ticks;
+
+	@BeforeMethod(alwaysRun=true)
+	public void setup() {
+
+		boards = new ArrayList<>();
+		boards.add(new TestPwmBoard());
+		boards.add(new TestPwmBoard());
+
+		ticks = new int[2];
+	}
+
+	@Test(enabled=true, groups={"StreamFrameSourceTests","unit"})
+	public void renderFramesAfterTargetLatency() throws IOException, InterruptedException {
+
+		StreamFrameSource source = createSource(5, 60L);
+
+		source.renderFrame(1, 1000L, ticks);
+		assertThat(ticks[0], is(equalTo(302)));
+
+		source.renderFrame(1, 1030L, ticks);
+		assertThat(ticks[0], is(equalTo(305)));
+
+		source.close();
+	}
+
+	@Test(enabled=true, groups={"StreamFrameSourceTests","unit"})
+	public void renderNothingBeforeTargetLatencyIsBuffered() {
+
+		StreamFrameSource source = new StreamFrameSource(new ByteArrayInputStream(new byte[0]), boards, 60L);
+		source.renderFrame(0, 0L, ticks);
+
+		assertThat(ticks[0], is(equalTo(FrameSource.NO_VALUE)));
+	}
+
+	@Test(enabled=true, groups={"StreamFrameSourceTests","unit"})
+	public void durationIsUnbounded() {
+
+		StreamFrameSource source = new StreamFrameSource(new ByteArrayInputStream(new byte[0]), boards, 60L);
+		assertThat(source.getDuration(), is(equalTo(Long.MAX_VALUE)));
+	}
+
+	@Test(enabled=true, groups={"StreamFrameSourceTests","unit"})
+	public void bufferTargetLatencyLongerThanDefaultCapacity() throws IOException, InterruptedException {
+
+		StreamFrameSource source = createSource(150, 3000L);
+
+		assertThat(source.getJitterBuffer().getDroppedFrames(), is(equalTo(0L)));
+		assertThat(source.getJitterBuffer().getBufferedTime(), is(equalTo(149L * 20L)));
+
+		source.close();
+	}
+
+	@Test(enabled=true, groups={"StreamFrameSourceTests","unit"}, expectedExceptions=IllegalArgumentException.class)
+	public void rejectTargetLatencyLongerThanCapacity() {
+		new StreamFrameSource(new ByteArrayInputStream(new byte[0]), boards, 1000L, 20L, 16);
+	}
+
+	/*
+	 * Create a source that has read the number of frames specified. Frames are 20 milliseconds apart and the tick of
+	 * every channel on the second board goes up by one per frame.
+	 */
+	private StreamFrameSource createSource(int numberOfFrames, long targetLatency)
+			throws IOException, InterruptedException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		for (int frame = 0; frame < numberOfFrames; frame++) {
+			out.writeLong(500L + frame * 20L);
+			out.writeShort(-1);
+			out.writeShort(-1);
+			out.writeShort(302 + frame * 2);
+			out.writeShort(302 + frame * 2);
+		}
+
+		StreamFrameSource source = new StreamFrameSource(new ByteArrayInputStream(bytes.toByteArray()), boards,
+				targetLatency);
+		source.start();
+		while (!source.isEndOfStream()) {
+			Thread.sleep(1);
+		}
+
+		return source;
+	}
+
+	/*
+	 * Implementation of PwmBoard abstract class for testing purposes.
+	 */
+	class TestPwmBoard extends PwmBoard {
+
+		@Override
+		public int getFrequency() {
+			return 50;
+		}
+
+		@Override
+		public int getNumberOfChannels() {
+			return 2;
+		}
+
+	}
+}
@@ -0,0 +1,96 @@
+package com.yarg.animatronics.playback;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TripleBufferTest {
+
+	private TripleBuffer<long[]> tripleBuffer;
+
+	@BeforeMethod(alwaysRun=true)
+	public void setup() {
+		tripleBuffer = new TripleBuffer<>(() -> new long[4]);
+	}
+
+	@Test(enabled=true, groups={"TripleBufferTests","unit"})
+	public void updateWithoutPublish() {
+		assertThat(tripleBuffer.update(), is(equalTo(false)));
+	}
+
+	@Test(enabled=true, groups={"TripleBufferTests","unit"})
+	public void updatePicksUpPublishedValue() {
+
+		tripleBuffer.getWriteBuffer()[0] = 7L;
+		tripleBuffer.publish();
+
+		assertThat(tripleBuffer.update(), is(equalTo(true)));
+		assertThat(tripleBuffer.getReadBuffer()[0], is(equalTo(7L)));
+		assertThat(tripleBuffer.update(), is(equalTo(false)));
+		assertThat(tripleBuffer.getReadBuffer()[0], is(equalTo(7L)));
+	}
+
+	@Test(enabled=true, groups={"TripleBufferTests","unit"})
+	public void updatePicksUpNewestValue() {
+
+		for (long value = 1L; value <= 5L; value++) {
+			tripleBuffer.getWriteBuffer()[0] = value;
+			tripleBuffer.publish();
+		}
+
+		tripleBuffer.update();
+
+		assertThat(tripleBuffer.getReadBuffer()[0], is(equalTo(5L)));
+	}
+
+	@Test(enabled=true, groups={"TripleBufferTests","unit"})
+	public void writeBufferIsNeverTheReadBuffer() {
+
+		tripleBuffer.getWriteBuffer()[0] = 1L;
+		tripleBuffer.publish();
+		tripleBuffer.update();
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(tripleBuffer.getWriteBuffer() == tripleBuffer.getReadBuffer(), is(equalTo(false)));
+			tripleBuffer.publish();
+			tripleBuffer.update();
+		}
+	}
+
+	@Test(enabled=true, groups={"TripleBufferTests","unit"})
+	public void readerSeesCompleteValuesInOrder() throws InterruptedException {
+
+		final long values = 200000L;
+
+		Thread writer = new Thread(() -> {
+			for (long value = 1L; value <= values; value++) {
+				long[] buffer = tripleBuffer.getWriteBuffer();
+				for (int i = 0; i < buffer.length; i++) {
+					buffer[i] = value;
+				}
+				tripleBuffer.publish();
+			}
+		});
+		writer.start();
+
+		long lastValue = 0L;
+		boolean consistent = true;
+		while (lastValue < values) {
+			if (tripleBuffer.update()) {
+				long[] buffer = tripleBuffer.getReadBuffer();
+				for (int i = 1; i < buffer.length; i++) {
+					consistent &= buffer[i] == buffer[0];
+				}
+				consistent &= buffer[0] > lastValue;
+				lastValue = buffer[0];
+			}
+		}
+
+		writer.join();
+
+		assertThat(consistent, is(equalTo(true)));
+	}
+}
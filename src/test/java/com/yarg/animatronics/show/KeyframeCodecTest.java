@@ -0,0 +1,141 @@
+package com.yarg.animatronics.show;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.yarg.animatronics.datamodel.PwmMotor;
+import com.yarg.animatronics.datamodel.motors.TowerProMG995R;
+
+public class KeyframeCodecTest {
+
+	private TowerProMG995R motor;
+
+	@BeforeMethod(alwaysRun=true)
+	public void setup() {
+
+		motor = new TowerProMG995R();
+		for (int i = 0; i < 1000; i++) {
+			int index = motor.addAnimationKey();
+			motor.setTimeAtIndex(index, 40L + i * 20L);
+			motor.setTickAtIndex(index, 307 + (int) (20.0 * Math.sin(i / 10.0)));
+		}
+	}
+
+	@Test(enabled=true, groups={"KeyframeCodecTests","unit"})
+	public void zigZagRoundTrip() {
+
+		for (long value : new long[] {0L, 1L, -1L, 63L, -64L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+			assertThat(KeyframeCodec.unZigZag(KeyframeCodec.zigZag(value)), is(equalTo(value)));
+		}
+
+		assertThat(KeyframeCodec.zigZag(-1L), is(equalTo(1L)));
+		assertThat(KeyframeCodec.zigZag(1L), is(equalTo(2L)));
+	}
+
+	@Test(enabled=true, groups={"KeyframeCodecTests","unit"})
+	public void varintRoundTrip() throws IOException {
+
+		long[] values = {0L, 127L, 128L, 16383L, 16384L, Long.MAX_VALUE, -1L};
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		for (long value : values) {
+			KeyframeCodec.writeVarint(bytes, value);
+		}
+
+		ByteArrayInputStream in = new ByteArrayInputStream(bytes.toByteArray());
+		for (long value : values) {
+			assertThat(KeyframeCodec.readVarint(in), is(equalTo(value)));
+		}
+
+		assertThat(KeyframeCodec.getVarintSize(127L), is(equalTo(1)));
+		assertThat(KeyframeCodec.getVarintSize(128L), is(equalTo(2)));
+		assertThat(KeyframeCodec.getVarintSize(-1L), is(equalTo(10)));
+	}
+
+	@Test(enabled=true, groups={"KeyframeCodecTests","unit"})
+	public void encodeAndDecode() throws IOException {
+
+		byte[] encoded = encode(motor);
+
+		TowerProMG995R decoded = new TowerProMG995R();
+		KeyframeCodec.decode(new ByteArrayInputStream(encoded), decoded);
+
+		assertKeysEqual(decoded, motor);
+	}
+
+	@Test(enabled=true, groups={"KeyframeCodecTests","unit"})
+	public void encodedSize() throws IOException {
+
+		byte[] encoded = encode(motor);
+
+		assertThat(KeyframeCodec.getEncodedSize(motor), is(equalTo(encoded.length)));
+		assertThat(encoded.length < motor.getNumberOfKeys() * 2 + 8, is(equalTo(true)));
+	}
+
+	@Test(enabled=true, groups={"KeyframeCodecTests","unit"})
+	public void encodeAndDecodeWithoutKeys() throws IOException {
+
+		byte[] encoded = encode(new TowerProMG995R());
+		assertThat(encoded.length, is(equalTo(1)));
+
+		TowerProMG995R decoded = new TowerProMG995R();
+		KeyframeCodec.decode(new ByteArrayInputStream(encoded), decoded);
+		assertThat(decoded.getNumberOfKeys(), is(equalTo(0)));
+	}
+
+	@Test(enabled=true, groups={"KeyframeCodecTests","unit"})
+	public void decodeToPlainLayout() throws IOException {
+
+		ByteBuffer in = ByteBuffer.wrap(encode(motor));
+		ByteBuffer keys = KeyframeCodec.decodeToPlainLayout(in, motor.getMinTick());
+
+		int numberOfKeys = motor.getNumberOfKeys();
+		assertThat(in.remaining(), is(equalTo(0)));
+		for (int i = 0; i < numberOfKeys; i++) {
+			assertThat(keys.getLong(i * Long.BYTES), is(equalTo(motor.getTimeAtIndex(i))));
+			assertThat((int) keys.getShort(numberOfKeys * Long.BYTES + i * Short.BYTES),
+					is(equalTo(motor.getTickAtIndex(i))));
+		}
+	}
+
+	@Test(enabled=true, groups={"KeyframeCodecTests","unit"}, expectedExceptions=EOFException.class)
+	public void decodeTruncatedKeys() throws IOException {
+
+		byte[] encoded = encode(motor);
+		KeyframeCodec.decode(new ByteArrayInputStream(Arrays.copyOf(encoded, encoded.length - 1)),
+				new TowerProMG995R());
+	}
+
+	@Test(enabled=true, groups={"KeyframeCodecTests","unit"}, expectedExceptions=IOException.class)
+	public void decodeToPlainLayoutTruncatedKeys() throws IOException {
+
+		byte[] encoded = encode(motor);
+		KeyframeCodec.decodeToPlainLayout(ByteBuffer.wrap(Arrays.copyOf(encoded, 100)), motor.getMinTick());
+	}
+
+	private static byte[] encode(PwmMotor motor) throws IOException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		KeyframeCodec.encode(motor, bytes);
+		return bytes.toByteArray();
+	}
+
+	private static void assertKeysEqual(PwmMotor actual, PwmMotor expected) {
+
+		assertThat(actual.getNumberOfKeys(), is(equalTo(expected.getNumberOfKeys())));
+		for (int i = 0; i < expected.getNumberOfKeys(); i++) {
+			assertThat(actual.getTimeAtIndex(i), is(equalTo(expected.getTimeAtIndex(i))));
+			assertThat(actual.getTickAtIndex(i), is(equalTo(expected.getTickAtIndex(i))));
+		}
+	}
+}
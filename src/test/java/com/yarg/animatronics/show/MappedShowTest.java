@@ -0,0 +1,256 @@
+package com.yarg.animatronics.show;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.yarg.animatronics.datamodel.InterpolationMode;
+import com.yarg.animatronics.datamodel.PwmBoard;
+import com.yarg.animatronics.datamodel.PwmMotor;
+import com.yarg.animatronics.datamodel.boards.PCA6985PwmBoard;
+import com.yarg.animatronics.datamodel.motors.TowerProMG995R;
+import com.yarg.animatronics.playback.KeyframeFrameSource;
+
+public class MappedShowTest {
+
+	private File showFile;
+	private List<PwmBoard> boards;
+
+	@BeforeMethod(alwaysRun=true)
+	public void setup() throws IOException {
+
+		showFile = File.createTempFile("show", ".anim");
+
+		boards = new ArrayList<>();
+		for (int address = 0x40; address < 0x42; address++) {
+			PCA6985PwmBoard board = new PCA6985PwmBoard();
+			board.setPwmBoardAddress(address);
+			board.setI2cBusNumber(address - 0x40);
+			for (int channel = 1; channel <= 3; channel++) {
+				TowerProMG995R motor = new TowerProMG995R();
+				motor.setPwmChannel(channel * 2);
+				motor.setInterpolation(InterpolationMode.values()[channel]);
+				for (int i = 0; i < 10 + channel; i++) {
+					motor.addAnimationKey();
+					motor.setTimeAtIndex(i, i * 730L);
+					motor.setTickAtIndex(i, 205 + (i * 53 * channel + address) % 205);
+				}
+				board.addMotor(motor);
+			}
+			boards.add(board);
+		}
+	}
+
+	@AfterMethod(alwaysRun=true)
+	public void cleanup() {
+		showFile.delete();
+	}
+
+	@Test(enabled=true, groups={"MappedShowTests","unit"})
+	public void readBoardsAndMotors() throws IOException {
+
+		new ShowFileWriter().write(showFile, boards);
+
+		try (MappedShow show = new MappedShow(showFile)) {
+			assertThat(show.getBoards().size(), is(equalTo(2)));
+			assertThat(show.getDuration(), is(equalTo(12L * 730L)));
+
+			PwmBoard board = show.getBoards().get(1);
+			assertThat(board.getPwmBoardAddress(), is(equalTo(0x41)));
+			assertThat(board.getI2cBusNumber(), is(equalTo(1)));
+			assertThat(board.getFrequency(), is(equalTo(50)));
+			assertThat(board.getNumberOfChannels(), is(equalTo(16)));
+
+			PwmMotor motor = board.getAttachedMotors().get(2);
+			assertThat(motor.getPwmChannel(), is(equalTo(6)));
+			assertThat(motor.getMotorId(), is(equalTo("TowerPro MG995R")));
+			assertThat(motor.getMinTick(), is(equalTo(205)));
+			assertThat(motor.getMaxAngle(), is(equalTo(90.0)));
+			assertThat(motor.getInterpolation(), is(equalTo(InterpolationMode.EASE_OUT)));
+		}
+	}
+
+	@Test(enabled=true, groups={"MappedShowTests","unit"})
+	public void renderFramesFromKeys() throws IOException {
+
+		new ShowFileWriter().write(showFile, boards);
+
+		try (MappedShow show = new MappedShow(showFile)) {
+			assertThat(show.hasBakedFrames(), is(equalTo(false)));
+			assertFramesMatchKeys(show);
+		}
+	}
+
+	@Test(enabled=true, groups={"MappedShowTests","unit"})
+	public void renderFramesFromBakedFrames() throws IOException {
+
+		ShowFileWriter writer = new ShowFileWriter();
+		writer.setIncludeBakedFrames(true);
+		writer.write(showFile, boards);
+
+		try (MappedShow show = new MappedShow(showFile)) {
+			assertThat(show.hasBakedFrames(), is(equalTo(true)));
+			assertFramesMatchKeys(show);
+		}
+	}
+
+	@Test(enabled=true, groups={"MappedShowTests","unit"})
+	public void renderFramesFromPackedKeys() throws IOException {
+
+		new ShowFileWriter().write(showFile, boards);
+		long plainLength = showFile.length();
+
+		ShowFileWriter writer = new ShowFileWriter();
+		writer.setPackKeys(true);
+		writer.write(showFile, boards);
+
+		assertThat(showFile.length() < plainLength, is(equalTo(true)));
+
+		try (MappedShow show = new MappedShow(showFile)) {
+			assertThat(show.hasBakedFrames(), is(equalTo(false)));
+			assertFramesMatchKeys(show);
+		}
+	}
+
+	@Test(enabled=true, groups={"MappedShowTests","unit"})
+	public void loadLargeShowInParallel() throws IOException {
+
+		addKeys(4000);
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			for (boolean packKeys : new boolean[] {false, true}) {
+				ShowFileWriter writer = new ShowFileWriter();
+				writer.setPackKeys(packKeys);
+				writer.write(showFile, boards);
+
+				try (MappedShow show = new MappedShow(showFile, pool)) {
+					assertThat(show.getBoards().get(1).getAttachedMotors().size(), is(equalTo(3)));
+					assertFramesMatchKeys(show);
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test(enabled=true, groups={"MappedShowTests","unit"})
+	public void serveLargeShowKeysFromMapping() throws IOException {
+
+		addKeys(4000);
+		new ShowFileWriter().write(showFile, boards);
+
+		try (MappedShow show = new MappedShow(showFile)) {
+			for (int i = 0; i < show.getBoards().size(); i++) {
+				for (int j = 0; j < show.getBoards().get(i).getAttachedMotors().size(); j++) {
+					assertThat(show.getKeyBuffer(i, j) instanceof MappedByteBuffer, is(equalTo(true)));
+				}
+			}
+			assertFramesMatchKeys(show);
+		}
+	}
+
+	@Test(enabled=true, groups={"MappedShowTests","unit"}, expectedExceptions=IOException.class)
+	public void openShowWithKeysOutOfOrder() throws IOException {
+
+		new ShowFileWriter().write(showFile, boards);
+		swapFirstKeyTimes();
+
+		new MappedShow(showFile).close();
+	}
+
+	@Test(enabled=true, groups={"MappedShowTests","unit"}, expectedExceptions=IOException.class)
+	public void openLargeShowWithKeysOutOfOrderInParallel() throws IOException {
+
+		addKeys(4000);
+		new ShowFileWriter().write(showFile, boards);
+		swapFirstKeyTimes();
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			new MappedShow(showFile, pool).close();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test(enabled=true, groups={"MappedShowTests","unit"}, expectedExceptions=IOException.class)
+	public void openFileThatIsNotAShow() throws IOException {
+
+		try (FileOutputStream out = new FileOutputStream(showFile)) {
+			out.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+		}
+
+		new MappedShow(showFile).close();
+	}
+
+	/*
+	 * Add keys to every motor so the show is large enough to be loaded in parallel.
+	 */
+	private void addKeys(int numberOfKeys) {
+
+		for (PwmBoard board : boards) {
+			for (PwmMotor motor : board.getAttachedMotors()) {
+				long start = motor.getTimeAtIndex(motor.getLastAnimationKeyIndex());
+				for (int i = 1; i <= numberOfKeys; i++) {
+					int index = motor.addAnimationKey();
+					motor.setTimeAtIndex(index, start + i * 20L);
+					motor.setTickAtIndex(index, 205 + (i * 7) % 205);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Swap the times of the first two keys of the first motor in a show written in the plain layout, where the first
+	 * key is at time 0 and the second at 730 ms.
+	 */
+	private void swapFirstKeyTimes() throws IOException {
+
+		byte[] bytes = Files.readAllBytes(showFile.toPath());
+		byte[] firstTimes = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0x02, (byte) 0xDA};
+
+		for (int offset = 0; offset + firstTimes.length <= bytes.length; offset += 8) {
+			if (Arrays.equals(Arrays.copyOfRange(bytes, offset, offset + firstTimes.length), firstTimes)) {
+				try (RandomAccessFile file = new RandomAccessFile(showFile, "rw")) {
+					file.seek(offset);
+					file.writeLong(730L);
+					file.writeLong(0L);
+				}
+				return;
+			}
+		}
+
+		throw new AssertionError("Keys of the first motor not found.");
+	}
+
+	private void assertFramesMatchKeys(MappedShow show) {
+
+		KeyframeFrameSource keyframes = new KeyframeFrameSource(boards);
+		int[] actualTicks = new int[16];
+		int[] expectedTicks = new int[16];
+
+		for (int boardIndex = 0; boardIndex < boards.size(); boardIndex++) {
+			for (long time = 0L; time <= show.getDuration() + 100L; time += 20L) {
+				show.renderFrame(boardIndex, time, actualTicks);
+				keyframes.renderFrame(boardIndex, time, expectedTicks);
+				assertThat(actualTicks, is(equalTo(expectedTicks)));
+			}
+		}
+	}
+}
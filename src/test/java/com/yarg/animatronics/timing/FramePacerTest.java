@@ -0,0 +1,82 @@
+package com.yarg.animatronics.timing;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class FramePacerTest {
+
+	private static final long START_TIME = 1000L;
+	private static final long PERIOD = 20000000L;
+
+	private VirtualTimeSource clock;
+	private FramePacer pacer;
+
+	@BeforeMethod(alwaysRun=true)
+	public void setup() {
+
+		clock = new VirtualTimeSource();
+		pacer = new FramePacer(clock, PERIOD);
+		pacer.start(START_TIME);
+	}
+
+	@Test(enabled=true, groups={"FramePacerTests","unit"})
+	public void framesFollowTheSchedule() throws InterruptedException {
+
+		assertThat(pacer.awaitNextFrame(), is(equalTo(0L)));
+		assertThat(pacer.awaitNextFrame(), is(equalTo(1L)));
+		assertThat(pacer.awaitNextFrame(), is(equalTo(2L)));
+
+		assertThat(clock.nanoTime(), is(equalTo(START_TIME + 2 * PERIOD)));
+		assertThat(pacer.getMaxLatenessNanos(), is(equalTo(0L)));
+		assertThat(pacer.getMissedFrames(), is(equalTo(0L)));
+	}
+
+	@Test(enabled=true, groups={"FramePacerTests","unit"})
+	public void slowFrameDoesNotShiftLaterDeadlines() throws InterruptedException {
+
+		pacer.awaitNextFrame();
+		clock.advance(PERIOD / 2 + 123L);
+
+		assertThat(pacer.awaitNextFrame(), is(equalTo(1L)));
+		assertThat(clock.nanoTime(), is(equalTo(START_TIME + PERIOD)));
+	}
+
+	@Test(enabled=true, groups={"FramePacerTests","unit"})
+	public void lateFrameSkipsFramesThatCameDue() throws InterruptedException {
+
+		pacer.awaitNextFrame();
+		clock.advance(PERIOD * 5 / 2);
+
+		assertThat(pacer.awaitNextFrame(), is(equalTo(2L)));
+		assertThat(pacer.getMissedFrames(), is(equalTo(1L)));
+		assertThat(pacer.getLastLatenessNanos(), is(equalTo(PERIOD * 3 / 2)));
+
+		assertThat(pacer.awaitNextFrame(), is(equalTo(3L)));
+		assertThat(clock.nanoTime(), is(equalTo(pacer.getDeadline(3L))));
+		assertThat(pacer.getLastLatenessNanos(), is(equalTo(0L)));
+		assertThat(pacer.getMaxLatenessNanos(), is(equalTo(PERIOD * 3 / 2)));
+	}
+
+	@Test(enabled=true, groups={"FramePacerTests","unit"})
+	public void restartResetsTheSchedule() throws InterruptedException {
+
+		pacer.awaitNextFrame();
+		clock.advance(PERIOD * 3);
+		pacer.awaitNextFrame();
+
+		pacer.start();
+
+		assertThat(pacer.getMissedFrames(), is(equalTo(0L)));
+		assertThat(pacer.getNextFrame(), is(equalTo(0L)));
+		assertThat(pacer.getDeadline(1L), is(equalTo(clock.nanoTime() + PERIOD)));
+	}
+
+	@Test(enabled=true, groups={"FramePacerTests","unit"}, expectedExceptions=IllegalArgumentException.class)
+	public void invalidPeriod() {
+		new FramePacer(clock, 0L);
+	}
+}
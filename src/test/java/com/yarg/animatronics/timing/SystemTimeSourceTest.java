@@ -0,0 +1,55 @@
+package com.yarg.animatronics.timing;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+public class SystemTimeSourceTest {
+
+	@Test(enabled=true, groups={"SystemTimeSourceTests","unit"})
+	public void sleepUntilWakesAtTheDeadline() throws InterruptedException {
+
+		SystemTimeSource clock = new SystemTimeSource();
+		long deadline = clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(5);
+		clock.sleepUntil(deadline);
+		long lateness = clock.nanoTime() - deadline;
+
+		// Generous bound, the spin phase normally wakes within microseconds.
+		assertThat(lateness, is(greaterThanOrEqualTo(0L)));
+		assertThat(lateness, is(lessThan(TimeUnit.MILLISECONDS.toNanos(5))));
+	}
+
+	@Test(enabled=true, groups={"SystemTimeSourceTests","unit"})
+	public void sleepUntilPastDeadlineReturnsStraightAway() throws InterruptedException {
+
+		SystemTimeSource clock = new SystemTimeSource(0L);
+		long start = clock.nanoTime();
+		clock.sleepUntil(start - TimeUnit.SECONDS.toNanos(1));
+
+		assertThat(clock.nanoTime() - start, is(lessThan(TimeUnit.MILLISECONDS.toNanos(100))));
+	}
+
+	@Test(enabled=true, groups={"SystemTimeSourceTests","unit"}, expectedExceptions=InterruptedException.class)
+	public void interruptedSleepThrows() throws InterruptedException {
+
+		Thread.currentThread().interrupt();
+		TimeSource.system().sleep(TimeUnit.SECONDS.toNanos(10));
+	}
+
+	@Test(enabled=true, groups={"SystemTimeSourceTests","unit"})
+	public void sharedSourceUsesTheDefaultSpin() {
+		assertThat(((SystemTimeSource) TimeSource.system()).getSpinNanos(),
+				is(equalTo(SystemTimeSource.DEFAULT_SPIN_NANOS)));
+	}
+
+	@Test(enabled=true, groups={"SystemTimeSourceTests","unit"}, expectedExceptions=IllegalArgumentException.class)
+	public void negativeSpin() {
+		new SystemTimeSource(-1L);
+	}
+}
@@ -0,0 +1,70 @@
+package com.yarg.animatronics.timing;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import org.testng.annotations.Test;
+
+public class VirtualTimeSourceTest {
+
+	@Test(enabled=true, groups={"VirtualTimeSourceTests","unit"})
+	public void sleepingAdvancesTheClock() throws InterruptedException {
+
+		VirtualTimeSource clock = new VirtualTimeSource();
+		clock.sleepUntil(500L);
+		clock.sleep(250L);
+
+		assertThat(clock.nanoTime(), is(equalTo(750L)));
+	}
+
+	@Test(enabled=true, groups={"VirtualTimeSourceTests","unit"})
+	public void sleepingUntilPastTimeKeepsTheClock() throws InterruptedException {
+
+		VirtualTimeSource clock = new VirtualTimeSource(1000L, true);
+		clock.sleepUntil(400L);
+		clock.advanceTo(600L);
+
+		assertThat(clock.nanoTime(), is(equalTo(1000L)));
+	}
+
+	@Test(enabled=true, groups={"VirtualTimeSourceTests","unit"})
+	public void sleepersWaitForTheClockWithoutAutoAdvance() throws InterruptedException {
+
+		VirtualTimeSource clock = new VirtualTimeSource(0L, false);
+		long[] wokenAt = new long[1];
+		Thread sleeper = new Thread(() -> {
+			try {
+				clock.sleepUntil(1000L);
+				wokenAt[0] = clock.nanoTime();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		sleeper.start();
+
+		while (clock.getSleepingThreads() == 0) {
+			Thread.sleep(1);
+		}
+
+		clock.advance(600L);
+		clock.advance(600L);
+		sleeper.join(5000L);
+
+		assertThat(sleeper.isAlive(), is(equalTo(false)));
+		assertThat(wokenAt[0], is(equalTo(1200L)));
+		assertThat(clock.getSleepingThreads(), is(equalTo(0)));
+	}
+
+	@Test(enabled=true, groups={"VirtualTimeSourceTests","unit"}, expectedExceptions=InterruptedException.class)
+	public void interruptedSleepThrows() throws InterruptedException {
+
+		Thread.currentThread().interrupt();
+		new VirtualTimeSource().sleepUntil(1000L);
+	}
+
+	@Test(enabled=true, groups={"VirtualTimeSourceTests","unit"}, expectedExceptions=IllegalArgumentException.class)
+	public void advanceBackwards() {
+		new VirtualTimeSource().advance(-1L);
+	}
+}